@@ -1,9 +1,13 @@
 package com.example.slackbot.adapters.primary;
 
 import com.example.slackbot.application.DailyStatusService;
+import com.example.slackbot.application.ReactiveDailyStatusService;
+import com.example.slackbot.application.ReactiveTeamService;
 import com.example.slackbot.application.TeamService;
 import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusSummary;
 import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamDigest;
 import com.slack.api.bolt.App;
 import com.slack.api.bolt.jakarta_servlet.SlackAppServlet;
 import com.slack.api.methods.response.views.ViewsOpenResponse;
@@ -13,6 +17,8 @@ import com.slack.api.model.block.LayoutBlock;
 import com.slack.api.model.block.SectionBlock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
 import java.time.LocalDate;
@@ -29,12 +35,33 @@ public class SlackEventAdapter {
     private final App app;
     private final DailyStatusService dailyStatusService;
     private final TeamService teamService;
+    private final ReactiveDailyStatusService reactiveDailyStatusService;
+    private final ReactiveTeamService reactiveTeamService;
+    private final StatusMessageCache statusMessages;
+
+    public SlackEventAdapter(
+            App app,
+            DailyStatusService dailyStatusService,
+            TeamService teamService,
+            ReactiveDailyStatusService reactiveDailyStatusService,
+            ReactiveTeamService reactiveTeamService) {
+        this(app, dailyStatusService, teamService, reactiveDailyStatusService, reactiveTeamService, new StatusMessageCache(1000));
+    }
 
     @Autowired
-    public SlackEventAdapter(App app, DailyStatusService dailyStatusService, TeamService teamService) {
+    public SlackEventAdapter(
+            App app,
+            DailyStatusService dailyStatusService,
+            TeamService teamService,
+            ReactiveDailyStatusService reactiveDailyStatusService,
+            ReactiveTeamService reactiveTeamService,
+            StatusMessageCache statusMessages) {
         this.app = app;
         this.dailyStatusService = dailyStatusService;
         this.teamService = teamService;
+        this.reactiveDailyStatusService = reactiveDailyStatusService;
+        this.reactiveTeamService = reactiveTeamService;
+        this.statusMessages = statusMessages;
     }
 
     @PostConstruct
@@ -75,84 +102,95 @@ public class SlackEventAdapter {
             
             dailyStatusService.addDailyStatus(status);
             
-            // Associate the status with the user's teams
+            // Add the status to the date index of each of the user's teams
             List<Team> userTeams = teamService.getTeamsByUserId(userId);
             for (Team team : userTeams) {
-                dailyStatusService.associateStatusWithTeam(userId, team.getId());
+                dailyStatusService.associateStatusWithTeam(status, team.getId());
             }
             
             return ctx.ack();
         });
 
-        // Handle slash command for all status
+        // Handle slash command for all status. The reply is composed without
+        // blocking and the handler thread waits once, for the finished text.
         app.command("/status", (req, ctx) -> {
             String text = req.getPayload().getText();
             String userId = req.getPayload().getUserId();
             String date = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
             
+            Mono<String> response;
             if (text.isEmpty()) {
-                // Show status for all teams the user is part of
-                List<Team> userTeams = teamService.getTeamsByUserId(userId);
-                
-                if (userTeams.isEmpty()) {
-                    return ctx.ack("You are not a member of any team. Join a team first or create one with '/team create'.");
-                }
-                
-                StringBuilder response = new StringBuilder("*Your Teams Status Summary:*\n\n");
-                
-                for (Team team : userTeams) {
-                    response.append("*Team: ").append(team.getName()).append("*\n");
-                    List<DailyStatus> teamStatuses = dailyStatusService.getTeamDailyStatuses(date, team.getId());
-                    response.append(createStatusSummaryText(teamStatuses));
-                    response.append("\n");
-                }
-                
-                return ctx.ack(response.toString());
+                response = allTeamsStatus(userId, date);
             } else if (text.startsWith("team ")) {
-                // Show status for a specific team
-                String teamId = text.substring(5).trim();
-                Optional<Team> teamOpt = teamService.getTeamById(teamId);
-                
-                if (!teamOpt.isPresent()) {
-                    return ctx.ack("Team not found with ID: " + teamId);
-                }
-                
-                Team team = teamOpt.get();
-                
-                // Check if user has permission to view this team's status
-                if (!team.isMember(userId) && !team.isManager(userId)) {
-                    return ctx.ack("You don't have permission to view this team's status.");
-                }
-                
-                List<DailyStatus> teamStatuses = dailyStatusService.getTeamDailyStatuses(date, teamId);
-                String response = "*Team " + team.getName() + " Status Summary:*\n\n" + createStatusSummaryText(teamStatuses);
-                
-                return ctx.ack(response);
+                response = teamStatus(userId, text.substring(5).trim(), date);
             } else {
                 // Assume it's a user ID and check permissions
-                String targetUserId = text.trim();
-                
-                if (!dailyStatusService.hasViewPermission(userId, targetUserId)) {
-                    return ctx.ack("You don't have permission to view this user's status.");
+                response = userStatus(userId, text.trim(), date);
+            }
+            
+            return ctx.ack(response.block());
+        });
+    }
+
+    /**
+     * Status of all teams the user is part of, with the teams read concurrently
+     */
+    private Mono<String> allTeamsStatus(String userId, String date) {
+        return reactiveTeamService.getTeamsByUserId(userId)
+            .collectList()
+            .flatMap(userTeams -> {
+                if (userTeams.isEmpty()) {
+                    return Mono.just("You are not a member of any team. Join a team first or create one with '/team create'.");
                 }
                 
-                List<DailyStatus> statuses = dailyStatusService.getDailyStatuses(date);
-                List<DailyStatus> filteredStatuses = new ArrayList<>();
+                return Flux.fromIterable(userTeams)
+                    .flatMapSequential(team -> reactiveDailyStatusService.getTeamDigest(date, team.getId())
+                        .map(digest -> "*Team: " + team.getName() + "*\n" + statusSummaryText(digest) + "\n"))
+                    .reduce(new StringBuilder("*Your Teams Status Summary:*\n\n"), StringBuilder::append)
+                    .map(StringBuilder::toString);
+            });
+    }
+
+    /**
+     * Status of one team, rolled up over every team below it. Managers of a
+     * team above it may view it too.
+     */
+    private Mono<String> teamStatus(String userId, String teamId, String date) {
+        return reactiveTeamService.getTeamById(teamId)
+            .flatMap(team -> {
+                Mono<Boolean> permitted = team.isMember(userId) || team.isManager(userId)
+                    ? Mono.just(true)
+                    : reactiveTeamService.getTeamHierarchy(teamId)
+                        .map(hierarchy -> hierarchy.isManagedFromAbove(userId))
+                        .defaultIfEmpty(false);
                 
-                for (DailyStatus status : statuses) {
-                    if (status.getDeveloperId().equals(targetUserId)) {
-                        filteredStatuses.add(status);
-                        break;
+                return permitted.flatMap(allowed -> {
+                    if (!allowed) {
+                        return Mono.just("You don't have permission to view this team's status.");
                     }
+                    return reactiveDailyStatusService.getTeamDigest(date, teamId)
+                        .map(digest -> "*Team " + team.getName() + " Status Summary:*\n\n" + statusSummaryText(digest));
+                });
+            })
+            .defaultIfEmpty("Team not found with ID: " + teamId);
+    }
+
+    private Mono<String> userStatus(String userId, String targetUserId, String date) {
+        // Read the status while the permission check is in flight; it is only shown if permitted
+        Mono<Optional<DailyStatus>> status = reactiveDailyStatusService.getUserDailyStatus(date, targetUserId)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty());
+        
+        return Mono.zip(reactiveDailyStatusService.hasViewPermission(userId, targetUserId), status)
+            .map(result -> {
+                if (!result.getT1()) {
+                    return "You don't have permission to view this user's status.";
                 }
-                
-                if (filteredStatuses.isEmpty()) {
-                    return ctx.ack("<@" + targetUserId + "> has not submitted a status update today.");
+                if (!result.getT2().isPresent()) {
+                    return "<@" + targetUserId + "> has not submitted a status update today.";
                 }
-                
-                return ctx.ack("*Status for <@" + targetUserId + ">:*\n\n" + createStatusSummaryText(filteredStatuses));
-            }
-        });
+                return "*Status for <@" + targetUserId + ">:*\n\n" + createStatusDetailText(result.getT2().get());
+            });
     }
 
     private View createSimpleStatusModal() {
@@ -193,20 +231,29 @@ public class SlackEventAdapter {
         return Collections.emptyList();
     }
 
-    private String createStatusSummaryText(List<DailyStatus> statuses) {
-        if (statuses.isEmpty()) {
+    /**
+     * The summary text of a digest, rendered once per digest version key. The
+     * team name is not part of it, so a renamed team needs no invalidation.
+     */
+    private String statusSummaryText(TeamDigest digest) {
+        return statusMessages.get(digest, d -> createStatusSummaryText(d.getSummaries()));
+    }
+
+    private String createStatusSummaryText(List<StatusSummary> summaries) {
+        if (summaries.isEmpty()) {
             return "No status updates available.\n";
         }
 
         StringBuilder summary = new StringBuilder();
         
-        for (DailyStatus status : statuses) {
+        for (StatusSummary status : summaries) {
             summary.append("*<@").append(status.getDeveloperId()).append(">*\n");
             summary.append("*Availability:* ").append(status.getAvailability()).append("\n");
             summary.append("*Tasks:* ").append(status.getTasks()).append("\n");
             
-            if (status.getNotes() != null && !status.getNotes().isEmpty()) {
-                summary.append("*Notes:* ").append(status.getNotes()).append("\n");
+            // Notes are only in the full status, shown by /status <user>
+            if (status.hasNotes()) {
+                summary.append("*Notes:* _see `/status ").append(status.getDeveloperId()).append("`_\n");
             }
             
             summary.append("\n");
@@ -215,6 +262,19 @@ public class SlackEventAdapter {
         return summary.toString();
     }
 
+    private String createStatusDetailText(DailyStatus status) {
+        StringBuilder detail = new StringBuilder();
+        detail.append("*<@").append(status.getDeveloperId()).append(">*\n");
+        detail.append("*Availability:* ").append(status.getAvailability()).append("\n");
+        detail.append("*Tasks:* ").append(status.getTasks()).append("\n");
+        
+        if (status.getNotes() != null && !status.getNotes().isEmpty()) {
+            detail.append("*Notes:* ").append(status.getNotes()).append("\n");
+        }
+        
+        return detail.append("\n").toString();
+    }
+
     public SlackAppServlet getServlet() {
         return new SlackAppServlet(app);
     }
@@ -1,32 +1,64 @@
 package com.example.slackbot.adapters.primary;
 
 import com.example.slackbot.application.TeamService;
+import com.example.slackbot.domain.MembershipResult;
 import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamPage;
+import com.example.slackbot.domain.TeamSnapshot;
+import com.slack.api.app_backend.interactive_components.response.ActionResponse;
 import com.slack.api.app_backend.slash_commands.response.SlashCommandResponse;
 import com.slack.api.bolt.App;
 import com.slack.api.bolt.context.builtin.SlashCommandContext;
 import com.slack.api.bolt.handler.builtin.SlashCommandHandler;
 import com.slack.api.bolt.request.builtin.SlashCommandRequest;
 import com.slack.api.bolt.response.Response;
+import com.slack.api.methods.SlackApiException;
+import com.slack.api.methods.response.conversations.ConversationsMembersResponse;
+import com.slack.api.methods.response.users.UsersInfoResponse;
 import com.slack.api.methods.response.views.ViewsOpenResponse;
+import com.slack.api.model.block.ActionsBlock;
 import com.slack.api.model.block.LayoutBlock;
 import com.slack.api.model.block.SectionBlock;
 import com.slack.api.model.block.composition.MarkdownTextObject;
+import com.slack.api.model.block.composition.PlainTextObject;
+import com.slack.api.model.block.element.ButtonElement;
+import com.slack.api.model.User;
 import com.slack.api.model.view.View;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Component
 public class SlackTeamAdapter {
+    // <@U123> or <@U123|name>, as Slack escapes user mentions in command text
+    private static final Pattern USER_MENTION = Pattern.compile("<@([A-Z0-9]+)(?:\\|[^>]*)?>");
+    // <#C123> or <#C123|name>
+    private static final Pattern CHANNEL_MENTION = Pattern.compile("<#([A-Z0-9]+)(?:\\|[^>]*)?>");
+    private static final int CHANNEL_MEMBERS_PAGE_SIZE = 200;
+    // Slackbot is listed in channels but is not flagged as a bot
+    private static final String SLACKBOT_USER_ID = "USLACKBOT";
+    private static final int TEAM_LIST_PAGE_SIZE = 20;
+    private static final String TEAM_LIST_NEXT_ACTION = "team_list_next";
+
     private final App app;
     private final TeamService teamService;
 
@@ -46,7 +78,7 @@ public class SlackTeamAdapter {
             
             if (args.length == 0 || args[0].isEmpty()) {
                 return ctx.ack(SlashCommandResponse.builder()
-                    .text("Usage: /team [create|list|join|leave|add|remove|promote|demote|info] [args]")
+                    .text("Usage: /team [create|list|join|leave|add|remove|sync|parent|promote|demote|info] [args]")
                     .build());
             }
             
@@ -57,7 +89,7 @@ public class SlackTeamAdapter {
                 case "create":
                     return handleCreateTeam(subArgs, userId, ctx);
                 case "list":
-                    return handleListTeams(userId, ctx);
+                    return handleListTeams(subArgs, userId, ctx);
                 case "join":
                     return handleJoinTeam(subArgs, userId, ctx);
                 case "leave":
@@ -66,6 +98,10 @@ public class SlackTeamAdapter {
                     return handleAddMember(subArgs, userId, ctx);
                 case "remove":
                     return handleRemoveMember(subArgs, userId, ctx);
+                case "sync":
+                    return handleSyncMembers(subArgs, userId, req.getPayload().getChannelId(), ctx);
+                case "parent":
+                    return handleSetParent(subArgs, userId, ctx);
                 case "promote":
                     return handlePromoteManager(subArgs, userId, ctx);
                 case "demote":
@@ -74,10 +110,25 @@ public class SlackTeamAdapter {
                     return handleTeamInfo(subArgs, ctx);
                 default:
                     return ctx.ack(SlashCommandResponse.builder()
-                        .text("Unknown subcommand. Use: create, list, join, leave, add, remove, promote, demote, or info")
+                        .text("Unknown subcommand. Use: create, list, join, leave, add, remove, sync, parent, promote, demote, or info")
                         .build());
             }
         });
+        
+        // Show the next page of a team list in place of the current one
+        app.blockAction(TEAM_LIST_NEXT_ACTION, (req, ctx) -> {
+            String value = req.getPayload().getActions().get(0).getValue();
+            String userId = req.getPayload().getUser().getId();
+            int separator = value.indexOf(':');
+            boolean mine = value.substring(0, separator).equals("mine");
+            
+            TeamPage page = listTeamsPage(mine, userId, value.substring(separator + 1));
+            ctx.respond(ActionResponse.builder()
+                .replaceOriginal(true)
+                .blocks(createTeamListBlocks(page, mine, userId))
+                .build());
+            return ctx.ack();
+        });
     }
 
     private Response handleCreateTeam(String args, String userId, SlashCommandContext ctx) {
@@ -99,15 +150,32 @@ public class SlackTeamAdapter {
         return ctx.ack("Team *" + teamName + "* created successfully with ID: " + createdTeam.getId());
     }
 
-    private Response handleListTeams(String userId, SlashCommandContext ctx) {
-        List<Team> teams = teamService.getAllTeams();
+    private Response handleListTeams(String args, String userId, SlashCommandContext ctx) {
+        boolean mine = args.trim().equalsIgnoreCase("mine");
+        TeamPage page = listTeamsPage(mine, userId, null);
         
-        if (teams.isEmpty()) {
-            return ctx.ack("No teams found.");
+        if (page.getTeams().isEmpty()) {
+            return ctx.ack(mine ? "You are not a member of any team." : "No teams found.");
+        }
+        
+        return ctx.ack(createTeamListBlocks(page, mine, userId));
+    }
+    
+    private TeamPage listTeamsPage(boolean mine, String userId, String cursor) {
+        return mine
+            ? teamService.listTeamsByUserId(userId, cursor, TEAM_LIST_PAGE_SIZE)
+            : teamService.listTeams(cursor, TEAM_LIST_PAGE_SIZE);
+    }
+    
+    private List<LayoutBlock> createTeamListBlocks(TeamPage page, boolean mine, String userId) {
+        List<LayoutBlock> blocks = new ArrayList<>();
+        blocks.add(markdownSection(mine ? "*Your Teams:*" : "*Available Teams:*"));
+        if (page.getTeams().isEmpty()) {
+            blocks.add(markdownSection("No more teams."));
         }
         
-        StringBuilder sb = new StringBuilder("*Available Teams:*\n");
-        for (Team team : teams) {
+        for (TeamSnapshot team : page.getTeams()) {
+            StringBuilder sb = new StringBuilder();
             sb.append("• *").append(team.getName()).append("* (ID: ").append(team.getId()).append(")");
             if (team.isMember(userId)) {
                 sb.append(" - You are a member");
@@ -115,10 +183,24 @@ public class SlackTeamAdapter {
             if (team.isManager(userId)) {
                 sb.append(" - You are a manager");
             }
-            sb.append("\n");
+            blocks.add(markdownSection(sb.toString()));
         }
         
-        return ctx.ack(sb.toString());
+        if (page.hasNext()) {
+            ButtonElement next = ButtonElement.builder()
+                .actionId(TEAM_LIST_NEXT_ACTION)
+                .text(PlainTextObject.builder().text("Next page").build())
+                .value((mine ? "mine:" : "all:") + page.getNextCursor())
+                .build();
+            blocks.add(ActionsBlock.builder().elements(Collections.singletonList(next)).build());
+        }
+        return blocks;
+    }
+    
+    private static SectionBlock markdownSection(String text) {
+        return SectionBlock.builder()
+            .text(MarkdownTextObject.builder().text(text).build())
+            .build();
     }
 
     private Response handleJoinTeam(String teamId, String userId, SlashCommandContext ctx) {
@@ -173,11 +255,15 @@ public class SlackTeamAdapter {
     private Response handleAddMember(String args, String userId, SlashCommandContext ctx) {
         String[] parts = args.split("\\s+", 2);
         if (parts.length < 2) {
-            return ctx.ack("Usage: /team add [team_id] [user_id]");
+            return ctx.ack("Usage: /team add [team_id] [user_id or @mentions...]");
         }
         
         String teamId = parts[0];
-        String memberToAddId = parts[1];
+        List<String> membersToAdd = parseUserIds(parts[1]);
+        if (membersToAdd.size() > 1) {
+            return handleAddMembers(teamId, membersToAdd, userId, ctx);
+        }
+        String memberToAddId = membersToAdd.isEmpty() ? parts[1] : membersToAdd.get(0);
         
         Optional<Team> teamOpt = teamService.getTeamById(teamId);
         if (!teamOpt.isPresent()) {
@@ -200,11 +286,15 @@ public class SlackTeamAdapter {
     private Response handleRemoveMember(String args, String userId, SlashCommandContext ctx) {
         String[] parts = args.split("\\s+", 2);
         if (parts.length < 2) {
-            return ctx.ack("Usage: /team remove [team_id] [user_id]");
+            return ctx.ack("Usage: /team remove [team_id] [user_id or @mentions...]");
         }
         
         String teamId = parts[0];
-        String memberToRemoveId = parts[1];
+        List<String> membersToRemove = parseUserIds(parts[1]);
+        if (membersToRemove.size() > 1) {
+            return handleRemoveMembers(teamId, membersToRemove, userId, ctx);
+        }
+        String memberToRemoveId = membersToRemove.isEmpty() ? parts[1] : membersToRemove.get(0);
         
         Optional<Team> teamOpt = teamService.getTeamById(teamId);
         if (!teamOpt.isPresent()) {
@@ -239,6 +329,183 @@ public class SlackTeamAdapter {
         return ctx.ack("Removed <@" + memberToRemoveId + "> from team: *" + team.getName() + "*");
     }
     
+    private Response handleAddMembers(String teamId, List<String> membersToAdd, String userId, SlashCommandContext ctx) {
+        Optional<Team> teamOpt = teamService.getTeamById(teamId);
+        if (!teamOpt.isPresent()) {
+            return ctx.ack("Team not found with ID: " + teamId);
+        }
+        
+        Team team = teamOpt.get();
+        if (!team.isManager(userId)) {
+            return ctx.ack("You must be a manager of the team to add members.");
+        }
+        
+        Map<String, MembershipResult> results = teamService.addUsersToTeam(teamId, membersToAdd);
+        return ctx.ack(formatMembershipResults(team, results));
+    }
+    
+    private Response handleRemoveMembers(String teamId, List<String> membersToRemove, String userId, SlashCommandContext ctx) {
+        Optional<Team> teamOpt = teamService.getTeamById(teamId);
+        if (!teamOpt.isPresent()) {
+            return ctx.ack("Team not found with ID: " + teamId);
+        }
+        
+        Team team = teamOpt.get();
+        if (!team.isManager(userId)) {
+            return ctx.ack("You must be a manager of the team to remove members.");
+        }
+        
+        if (membersToRemove.contains(userId)) {
+            return ctx.ack("You cannot remove yourself from the team. Use /team leave instead.");
+        }
+        
+        Map<String, MembershipResult> results = teamService.removeUsersFromTeam(teamId, membersToRemove);
+        return ctx.ack(formatMembershipResults(team, results));
+    }
+    
+    /**
+     * Make the people in a Slack channel the team's members. Bots, apps and
+     * deactivated accounts in the channel are left out, and managers stay on
+     * the team whether or not they are in the channel. Reading the channel
+     * takes a Slack call per member, so the command is acknowledged at once
+     * and the result is posted back through the command's response URL.
+     */
+    private Response handleSyncMembers(String args, String userId, String currentChannelId, SlashCommandContext ctx) {
+        String[] parts = args.split("\\s+", 2);
+        if (parts.length < 1 || parts[0].isEmpty()) {
+            return ctx.ack("Usage: /team sync [team_id] [optional #channel, defaults to this channel]");
+        }
+        
+        String teamId = parts[0];
+        String channelId = currentChannelId;
+        if (parts.length > 1) {
+            Matcher channel = CHANNEL_MENTION.matcher(parts[1]);
+            channelId = channel.find() ? channel.group(1) : parts[1].trim();
+        }
+        
+        Optional<Team> teamOpt = teamService.getTeamById(teamId);
+        if (!teamOpt.isPresent()) {
+            return ctx.ack("Team not found with ID: " + teamId);
+        }
+        
+        Team team = teamOpt.get();
+        if (!team.isManager(userId)) {
+            return ctx.ack("You must be a manager of the team to sync members.");
+        }
+        
+        String syncedChannelId = channelId;
+        Mono.fromCallable(() -> syncMembers(team, syncedChannelId, ctx))
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(
+                text -> respond(ctx, text),
+                e -> respond(ctx, "Could not sync team " + team.getName() + " with <#" + syncedChannelId + ">: " + e.getMessage()));
+        return ctx.ack("Syncing team *" + team.getName() + "* with the members of <#" + channelId + ">...");
+    }
+    
+    /**
+     * @return The text reporting what changed, or why nothing did
+     */
+    private String syncMembers(Team team, String channelId, SlashCommandContext ctx) throws IOException, SlackApiException {
+        List<String> channelMembers = new ArrayList<>();
+        String cursor = null;
+        do {
+            String pageCursor = cursor;
+            ConversationsMembersResponse page = ctx.client().conversationsMembers(r -> r
+                .channel(channelId)
+                .limit(CHANNEL_MEMBERS_PAGE_SIZE)
+                .cursor(pageCursor));
+            if (!page.isOk()) {
+                return "Could not read the members of <#" + channelId + ">: " + page.getError();
+            }
+            channelMembers.addAll(page.getMembers());
+            cursor = page.getResponseMetadata() != null ? page.getResponseMetadata().getNextCursor() : null;
+        } while (cursor != null && !cursor.isEmpty());
+        
+        List<String> people = new ArrayList<>();
+        int skipped = 0;
+        for (String memberId : channelMembers) {
+            if (isPerson(memberId, ctx)) {
+                people.add(memberId);
+            } else {
+                skipped++;
+            }
+        }
+        
+        Map<String, MembershipResult> results = teamService.replaceTeamMembers(team.getId(), people);
+        String text = formatMembershipResults(team, results);
+        return skipped > 0 ? text + "_Left out " + skipped + " bots, apps or deactivated users in the channel_\n" : text;
+    }
+    
+    /**
+     * @return Whether the user is an active person rather than a bot or app;
+     * a user Slack cannot look up is treated as not one
+     */
+    private static boolean isPerson(String userId, SlashCommandContext ctx) throws IOException, SlackApiException {
+        if (SLACKBOT_USER_ID.equals(userId)) {
+            return false;
+        }
+        UsersInfoResponse info = ctx.client().usersInfo(r -> r.user(userId));
+        if (!info.isOk() || info.getUser() == null) {
+            System.err.println("Could not look up user " + userId + ": " + info.getError());
+            return false;
+        }
+        User user = info.getUser();
+        return !user.isBot() && !user.isAppUser() && !user.isDeleted();
+    }
+    
+    private static void respond(SlashCommandContext ctx, String text) {
+        try {
+            ctx.respond(text);
+        } catch (IOException e) {
+            System.err.println("Failed to post the team sync result: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Place a team below another, or make it top-level with "none". The
+     * requester must manage both the team and its new parent.
+     */
+    private Response handleSetParent(String args, String userId, SlashCommandContext ctx) {
+        String[] parts = args.split("\\s+", 2);
+        if (parts.length < 2) {
+            return ctx.ack("Usage: /team parent [team_id] [parent_team_id or none]");
+        }
+        
+        String teamId = parts[0];
+        String parentId = parts[1].trim().equalsIgnoreCase("none") ? null : parts[1].trim();
+        
+        Optional<Team> teamOpt = teamService.getTeamById(teamId);
+        if (!teamOpt.isPresent()) {
+            return ctx.ack("Team not found with ID: " + teamId);
+        }
+        
+        Team team = teamOpt.get();
+        if (!team.isManager(userId)) {
+            return ctx.ack("You must be a manager of the team to change its parent team.");
+        }
+        
+        if (parentId != null) {
+            Optional<Team> parentOpt = teamService.getTeamById(parentId);
+            if (!parentOpt.isPresent()) {
+                return ctx.ack("Team not found with ID: " + parentId);
+            }
+            if (!parentOpt.get().isManager(userId)) {
+                return ctx.ack("You must be a manager of team " + parentOpt.get().getName() + " to place teams below it.");
+            }
+        }
+        
+        team.setParentId(parentId);
+        try {
+            teamService.updateTeam(team);
+        } catch (IllegalArgumentException | NoSuchElementException e) {
+            return ctx.ack("Cannot change the parent of team " + team.getName() + ": " + e.getMessage());
+        }
+        
+        return parentId == null
+            ? ctx.ack("Team *" + team.getName() + "* is now a top-level team")
+            : ctx.ack("Team *" + team.getName() + "* is now part of team: " + parentId);
+    }
+    
     private Response handlePromoteManager(String args, String userId, SlashCommandContext ctx) {
         String[] parts = args.split("\\s+", 2);
         if (parts.length < 2) {
@@ -331,6 +598,13 @@ public class SlackTeamAdapter {
         if (team.getDescription() != null && !team.getDescription().isEmpty()) {
             sb.append("*Description:* ").append(team.getDescription()).append("\n");
         }
+        if (team.getParentId() != null) {
+            sb.append("*Part of:* ").append(team.getParentId()).append("\n");
+        }
+        Optional<TeamHierarchy> hierarchy = teamService.getTeamHierarchy(teamId);
+        if (hierarchy.isPresent() && !hierarchy.get().getChildIds().isEmpty()) {
+            sb.append("*Sub-teams:* ").append(String.join(", ", hierarchy.get().getChildIds())).append("\n");
+        }
         
         sb.append("*Managers:* ").append(managers.size()).append("\n");
         for (String managerId : managers) {
@@ -346,4 +620,57 @@ public class SlackTeamAdapter {
         
         return ctx.ack(sb.toString());
     }
-} 
\ No newline at end of file
+
+    /**
+     * @return The user IDs in command text: escaped mentions, or else plain
+     * IDs separated by spaces or commas
+     */
+    static List<String> parseUserIds(String text) {
+        Set<String> userIds = new LinkedHashSet<>();
+        Matcher mention = USER_MENTION.matcher(text);
+        while (mention.find()) {
+            userIds.add(mention.group(1));
+        }
+        if (userIds.isEmpty()) {
+            for (String token : text.split("[\\s,]+")) {
+                if (!token.isEmpty()) {
+                    userIds.add(token);
+                }
+            }
+        }
+        return new ArrayList<>(userIds);
+    }
+    
+    private static String formatMembershipResults(Team team, Map<String, MembershipResult> results) {
+        Map<MembershipResult, List<String>> byResult = new EnumMap<>(MembershipResult.class);
+        for (Map.Entry<String, MembershipResult> entry : results.entrySet()) {
+            byResult.computeIfAbsent(entry.getValue(), result -> new ArrayList<>()).add("<@" + entry.getKey() + ">");
+        }
+        
+        StringBuilder sb = new StringBuilder("*Team:* ").append(team.getName()).append("\n");
+        for (Map.Entry<MembershipResult, List<String>> entry : byResult.entrySet()) {
+            sb.append("*").append(describe(entry.getKey())).append(" (").append(entry.getValue().size()).append("):* ");
+            sb.append(String.join(", ", entry.getValue())).append("\n");
+        }
+        return sb.toString();
+    }
+    
+    private static String describe(MembershipResult result) {
+        switch (result) {
+            case ADDED:
+                return "Added";
+            case ALREADY_MEMBER:
+                return "Already members";
+            case REMOVED:
+                return "Removed";
+            case NOT_MEMBER:
+                return "Not members";
+            case LAST_MANAGER:
+                return "Not removed, last manager";
+            case KEPT_MANAGER:
+                return "Kept as managers";
+            default:
+                return result.name();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.slackbot.adapters.primary;
+
+import com.example.slackbot.domain.TeamDigest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of rendered team status messages, keyed by team, date and
+ * the version key of the digest: a hash of its summaries.
+ *
+ * A submitted status changes the summaries of each of the user's team
+ * digests, so a message of an older digest is never read again and is
+ * evicted once it is the least recently used of {@code maxEntries}. Every
+ * node derives the same key from the same summaries.
+ *
+ * The first request for a key renders the message on its own thread,
+ * outside any lock; concurrent requests for the same key wait for that
+ * render instead of repeating it, and requests for other keys do not wait.
+ */
+@Component
+public class StatusMessageCache {
+    private static final class Message {
+        private final CompletableFuture<String> text = new CompletableFuture<>();
+        private volatile long lastUsed;
+    }
+
+    private final int maxEntries;
+    private final Map<String, Message> messages = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    // Serializes eviction only; reads and renders never take it
+    private final Object evictionLock = new Object();
+
+    @Autowired
+    public StatusMessageCache(@Value("${status.renderCache.maxEntries:1000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the rendered message of a digest, rendering it on a miss
+     * @param digest The digest to render
+     * @param render Renders the digest; must depend on nothing but the digest
+     * @return The rendered message
+     */
+    public String get(TeamDigest digest, Function<TeamDigest, String> render) {
+        String key = digest.getTeamId() + ":" + digest.getDate() + ":" + digest.getVersionKey();
+        Message created = new Message();
+        Message message = messages.computeIfAbsent(key, k -> created);
+        message.lastUsed = clock.incrementAndGet();
+        if (message != created) {
+            return message.text.join();
+        }
+
+        try {
+            created.text.complete(render.apply(digest));
+        } catch (RuntimeException e) {
+            // Let the next request render again rather than fail from the cache
+            messages.remove(key, created);
+            created.text.completeExceptionally(e);
+            throw e;
+        }
+        evictLeastRecentlyUsed();
+        return created.text.join();
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            while (messages.size() > maxEntries) {
+                Map.Entry<String, Message> eldest = null;
+                for (Map.Entry<String, Message> entry : messages.entrySet()) {
+                    if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                messages.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+}
@@ -1,62 +1,296 @@
 package com.example.slackbot.adapters.secondary;
 
+import com.example.slackbot.adapters.secondary.KVRateLimiter.Operation;
+import com.example.slackbot.adapters.secondary.KVWriteBehindBuffer.PendingWrite;
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ValueCodec;
 import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusKeys;
+import com.example.slackbot.domain.StatusSummary;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import java.util.List;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.OutputStream;
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
-public class CloudflareKVAdapter {
+@ConditionalOnProperty(name = "kv.backend", havingValue = "cloudflare", matchIfMissing = true)
+public class CloudflareKVAdapter implements KeyValueStore {
+    // KV rejects writes whose key metadata is larger than this
+    private static final int MAX_METADATA_BYTES = 1024;
+    // Most keys the bulk read endpoint accepts per request
+    private static final int BULK_GET_MAX_KEYS = 100;
+    // Shortest expiration KV accepts, in seconds
+    private static final long MIN_EXPIRATION_TTL = 60;
+
     private final WebClient client;
     private final String accountId;
     private final String namespaceId;
+    private final KVWriteBehindBuffer writeBehind;
+    private final KVWriteJournal journal;
+    private final KVNearCache nearCache;
+    private final KVRateLimiter rateLimiter;
+    private final KVReadCoalescer readCoalescer;
+    private final long shutdownFlushTimeoutMs;
+    private final int getManyConcurrency;
+    private final int listPageSize;
+    private final ObjectMapper objectMapper;
+    private final ValueCodec codec;
 
     public CloudflareKVAdapter(
             @Value("${cloudflare.apiToken}") String apiToken,
             @Value("${cloudflare.accountId}") String accountId,
-            @Value("${cloudflare.namespaceId}") String namespaceId) {
+            @Value("${cloudflare.namespaceId}") String namespaceId,
+            @Value("${cloudflare.writeBehind.maxBatchSize:500}") int maxBatchSize,
+            @Value("${cloudflare.writeBehind.maxInFlightBatches:4}") int maxInFlightBatches,
+            @Value("${cloudflare.writeBehind.shutdownTimeoutMs:10000}") long shutdownFlushTimeoutMs,
+            @Value("${cloudflare.writeBehind.maxUnacknowledged:10000}") int maxUnacknowledged,
+            @Value("${cloudflare.writeBehind.backpressureTimeoutMs:5000}") long backpressureTimeoutMs,
+            @Value("${cloudflare.journal.enabled:true}") boolean journalEnabled,
+            @Value("${cloudflare.journal.path:./data/kv-journal.log}") String journalPath,
+            @Value("${cloudflare.journal.compactThresholdBytes:16777216}") long journalCompactThresholdBytes,
+            @Value("${cloudflare.getMany.concurrency:16}") int getManyConcurrency,
+            @Value("${cloudflare.list.pageSize:1000}") int listPageSize,
+            KVNearCache nearCache,
+            KVRateLimiter rateLimiter,
+            ObjectMapper objectMapper,
+            ValueCodec codec,
+            MeterRegistry meterRegistry) {
         this.accountId = accountId;
         this.namespaceId = namespaceId;
         this.client = WebClient.builder()
             .baseUrl("https://api.cloudflare.com/client/v4")
             .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiToken)
             .build();
+        this.journal = journalEnabled
+            ? new KVWriteJournal(Paths.get(journalPath), journalCompactThresholdBytes, meterRegistry)
+            : null;
+        this.writeBehind = new KVWriteBehindBuffer(this::writeBatch, maxBatchSize, maxInFlightBatches,
+            maxUnacknowledged, backpressureTimeoutMs, journal, meterRegistry);
+        this.nearCache = nearCache;
+        this.rateLimiter = rateLimiter;
+        this.readCoalescer = new KVReadCoalescer(meterRegistry);
+        this.shutdownFlushTimeoutMs = shutdownFlushTimeoutMs;
+        this.getManyConcurrency = getManyConcurrency;
+        this.listPageSize = listPageSize;
+        this.objectMapper = objectMapper;
+        this.codec = codec;
     }
 
+    /**
+     * Store a daily status with its summary as key metadata, so summaries can
+     * be read from key listings
+     */
+    @Override
     public void storeDailyStatus(DailyStatus status) {
-        String jsonInputString = "{\"availability\": \"" + status.getAvailability() + "\", \"tasks\": \"" + status.getTasks() + "\", \"notes\": \"" + status.getNotes() + "\", \"date\": \"" + status.getDate() + "\"}";
+        storeDailyStatus(status, 0);
+    }
 
-        Mono<Void> save = client.put()
-            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/values/{key}", accountId, namespaceId, status.getDeveloperId())
-            .bodyValue(jsonInputString)
-            .retrieve()
-            .bodyToMono(Void.class);
+    @Override
+    public void storeDailyStatus(DailyStatus status, Duration ttl) {
+        storeDailyStatus(status, expirationTtl(ttl));
+    }
 
-        save.subscribe();
+    private void storeDailyStatus(DailyStatus status, long expirationTtl) {
+        String key = StatusKeys.statusKey(status.getDate(), status.getDeveloperId());
+        try {
+            writeBehind.put(key, codec.encode(status), summaryMetadata(StatusSummary.of(status)), expirationTtl);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize daily status", e);
+        }
+        nearCache.invalidate(key);
+        readCoalescer.forget(key);
     }
 
+    @Override
     public List<DailyStatus> retrieveDailyStatuses(String date) {
-        List<DailyStatus> statuses = new ArrayList<>();
+        return streamDailyStatuses(date).collectList().block();
+    }
 
-        client.get()
-            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/values?prefix={date}", accountId, namespaceId, date)
-            .retrieve()
-            .bodyToMono(String.class)
-            .doOnNext(response -> {
-                // Parse response to extract DailyStatus objects and add to statuses list
-            })
-            .block();
+    @Override
+    public List<DailyStatus> retrieveDailyStatuses(String date, Collection<String> userIds) {
+        return retrieveDailyStatusesAsync(date, userIds).block();
+    }
+
+    @Override
+    public Mono<List<DailyStatus>> retrieveDailyStatusesAsync(String date, Collection<String> userIds) {
+        List<String> keys = new ArrayList<>();
+        for (String userId : userIds) {
+            keys.add(StatusKeys.statusKey(date, userId));
+        }
+        return getManyAsync(keys).map(values -> {
+            List<DailyStatus> statuses = new ArrayList<>();
+            for (String key : keys) {
+                String json = values.get(key);
+                if (json != null) {
+                    statuses.add(decodeStatus(key, json));
+                }
+            }
+            return statuses;
+        });
+    }
+
+    /**
+     * Retrieve status summaries of exactly the requested users. Statuses still
+     * in the write-behind buffer are summarized locally; the rest are read
+     * with their key metadata through the bulk read endpoint, up to
+     * {@value #BULK_GET_MAX_KEYS} keys per request. The summary comes from the
+     * metadata where the status was stored with one, and from the status
+     * itself otherwise.
+     */
+    @Override
+    public Mono<List<StatusSummary>> retrieveStatusSummariesAsync(String date, Collection<String> userIds) {
+        Map<String, StatusSummary> summaries = new HashMap<>();
+        List<String> toFetch = new ArrayList<>();
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            String key = StatusKeys.statusKey(date, userId);
+            Optional<PendingWrite> pendingWrite = writeBehind.lookup(key);
+            if (pendingWrite.isPresent()) {
+                if (!pendingWrite.get().isDelete()) {
+                    summaries.put(userId, StatusSummary.of(decodeStatus(key, pendingWrite.get().getValue())));
+                }
+                continue;
+            }
+            toFetch.add(key);
+        }
+
+        List<List<String>> requests = new ArrayList<>();
+        for (int from = 0; from < toFetch.size(); from += BULK_GET_MAX_KEYS) {
+            requests.add(toFetch.subList(from, Math.min(from + BULK_GET_MAX_KEYS, toFetch.size())));
+        }
+
+        return Flux.fromIterable(requests)
+            .flatMap(this::bulkGetWithMetadata, getManyConcurrency)
+            .collectList()
+            .map(stored -> {
+                for (ListedKey listed : stored) {
+                    StatusSummary summary = summaryOf(listed);
+                    if (summary == null && listed.value != null) {
+                        summary = StatusSummary.of(decodeStatus(listed.name, listed.value));
+                    }
+                    if (summary != null) {
+                        summaries.put(StatusKeys.userIdOf(listed.name), summary);
+                    }
+                }
+                List<StatusSummary> ordered = new ArrayList<>();
+                for (String userId : new LinkedHashSet<>(userIds)) {
+                    if (summaries.containsKey(userId)) {
+                        ordered.add(summaries.get(userId));
+                    }
+                }
+                return ordered;
+            });
+    }
+
+    /**
+     * Store a status summary with itself as key metadata, so it is read from
+     * key listings
+     */
+    @Override
+    public void putStatusSummary(String key, StatusSummary summary) {
+        putStatusSummary(key, summary, 0);
+    }
+
+    @Override
+    public void putStatusSummary(String key, StatusSummary summary, Duration ttl) {
+        putStatusSummary(key, summary, expirationTtl(ttl));
+    }
+
+    private void putStatusSummary(String key, StatusSummary summary, long expirationTtl) {
+        try {
+            writeBehind.put(key, codec.encode(summary), summaryMetadata(summary), expirationTtl);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize status summary", e);
+        }
+        nearCache.invalidate(key);
+        readCoalescer.forget(key);
+    }
 
-        return statuses;
+    /**
+     * List the summaries under a prefix from their key metadata, one list
+     * request per {@code cloudflare.list.pageSize} keys. Only a summary too
+     * long for metadata is read from its value. Writes of this node still in
+     * the write-behind buffer replace what KV lists.
+     */
+    @Override
+    public Mono<List<StatusSummary>> listStatusSummariesAsync(String prefix) {
+        return Mono.defer(() -> {
+            Map<String, PendingWrite> pendingWrites = new HashMap<>();
+            for (PendingWrite write : writeBehind.lookupPrefix(prefix)) {
+                pendingWrites.put(write.getKey(), write);
+            }
+            return listKeyPage(prefix, null)
+                .expand(page -> page.cursor == null ? Mono.empty() : listKeyPage(prefix, page.cursor))
+                .concatMapIterable(page -> page.keys)
+                .filter(listed -> !pendingWrites.containsKey(listed.name))
+                .flatMapSequential(listed -> {
+                    StatusSummary summary = summaryOf(listed);
+                    if (summary != null) {
+                        return Mono.just(Map.entry(listed.name, summary));
+                    }
+                    return fetchAsync(listed.name).map(value -> Map.entry(listed.name, decodeSummary(listed.name, value)));
+                }, getManyConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, TreeMap<String, StatusSummary>::new)
+                .map(summaries -> {
+                    for (PendingWrite write : pendingWrites.values()) {
+                        if (!write.isDelete()) {
+                            summaries.put(write.getKey(), decodeSummary(write.getKey(), write.getValue()));
+                        }
+                    }
+                    return new ArrayList<>(summaries.values());
+                });
+        });
+    }
+
+    /**
+     * Stream the daily statuses of a date. Key pages are listed one cursor at a
+     * time as downstream demand requires, and values are fetched concurrently,
+     * at most {@code cloudflare.getMany.concurrency} at a time. Cancelling the
+     * stream stops both listing and fetching.
+     */
+    @Override
+    public Flux<DailyStatus> streamDailyStatuses(String date) {
+        return listKeys(StatusKeys.datePrefix(date))
+            .flatMap(key -> fetchAsync(key).map(json -> decodeStatus(key, json)), getManyConcurrency);
+    }
+
+    /**
+     * List keys with a prefix, following the list cursor page by page
+     * @param prefix The key prefix
+     * @return The key names in KV order
+     */
+    @Override
+    public Flux<String> listKeys(String prefix) {
+        return listKeyPage(prefix, null)
+            .expand(page -> page.cursor == null ? Mono.empty() : listKeyPage(prefix, page.cursor))
+            .concatMapIterable(page -> page.keys)
+            .map(listed -> listed.name);
     }
     
     /**
@@ -64,38 +298,451 @@ public class CloudflareKVAdapter {
      * @param key The key to retrieve
      * @return The value associated with the key, or null if not found
      */
+    @Override
     public String get(String key) {
-        return client.get()
-            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/values/{key}", accountId, namespaceId, key)
-            .retrieve()
-            .bodyToMono(String.class)
-            .onErrorReturn(null)  // Return null on error
-            .block();
+        return getAsync(key).block();
+    }
+
+    /**
+     * Get a value from Cloudflare KV without blocking. Pending writes and the
+     * near cache answer without a request.
+     * @param key The key to retrieve
+     * @return The value, or empty if not found
+     */
+    @Override
+    public Mono<String> getAsync(String key) {
+        // Serve this node's own writes until KV has acknowledged them
+        Optional<PendingWrite> pendingWrite = writeBehind.lookup(key);
+        if (pendingWrite.isPresent()) {
+            return Mono.justOrEmpty(pendingWrite.get().getValue());
+        }
+
+        if (!nearCache.isCacheable(key)) {
+            return fetchAsync(key);
+        }
+
+        Optional<String> cached = nearCache.get(key);
+        if (cached.isPresent()) {
+            return Mono.just(cached.get());
+        }
+
+        long loadStamp = nearCache.loadStamp(key);
+        return fetchAsync(key).doOnNext(value -> nearCache.put(key, value, loadStamp));
     }
     
     /**
-     * Put a value into Cloudflare KV
+     * Read a value from Cloudflare KV, skipping the near cache. A pending
+     * write of the key answers without a request.
+     * @param key The key to retrieve
+     * @return The value, or empty if not found
+     */
+    public Mono<String> getUncached(String key) {
+        Optional<PendingWrite> pendingWrite = writeBehind.lookup(key);
+        if (pendingWrite.isPresent()) {
+            return Mono.justOrEmpty(pendingWrite.get().getValue());
+        }
+        return fetchAsync(key);
+    }
+    
+    /**
+     * Get several values from Cloudflare KV
+     * @param keys The keys to retrieve
+     * @return The values by key; keys that were not found are absent
+     */
+    @Override
+    public Map<String, String> getMany(Collection<String> keys) {
+        return getManyAsync(keys).block();
+    }
+
+    /**
+     * Get several values from Cloudflare KV without blocking. Keys that are not
+     * served by pending writes or the near cache are fetched concurrently, at
+     * most {@code cloudflare.getMany.concurrency} at a time.
+     * @param keys The keys to retrieve
+     * @return The values by key; keys that were not found are absent
+     */
+    @Override
+    public Mono<Map<String, String>> getManyAsync(Collection<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        Map<String, Long> toFetch = new HashMap<>();
+
+        for (String key : new LinkedHashSet<>(keys)) {
+            Optional<PendingWrite> pendingWrite = writeBehind.lookup(key);
+            if (pendingWrite.isPresent()) {
+                if (!pendingWrite.get().isDelete()) {
+                    values.put(key, pendingWrite.get().getValue());
+                }
+                continue;
+            }
+            if (nearCache.isCacheable(key)) {
+                Optional<String> cached = nearCache.get(key);
+                if (cached.isPresent()) {
+                    values.put(key, cached.get());
+                    continue;
+                }
+            }
+            toFetch.put(key, nearCache.loadStamp(key));
+        }
+
+        if (toFetch.isEmpty()) {
+            return Mono.just(values);
+        }
+
+        return Flux.fromIterable(toFetch.keySet())
+            .flatMap(key -> fetchAsync(key).map(value -> Map.entry(key, value)), getManyConcurrency)
+            .collectList()
+            .map(fetched -> {
+                for (Map.Entry<String, String> entry : fetched) {
+                    nearCache.put(entry.getKey(), entry.getValue(), toFetch.get(entry.getKey()));
+                    values.put(entry.getKey(), entry.getValue());
+                }
+                return values;
+            });
+    }
+    
+    /**
+     * Put a value into Cloudflare KV. The write is buffered and sent with the next batch.
      * @param key The key to store
      * @param value The value to store
      */
+    @Override
     public void put(String key, String value) {
-        client.put()
-            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/values/{key}", accountId, namespaceId, key)
-            .bodyValue(value)
-            .retrieve()
-            .bodyToMono(Void.class)
-            .subscribe();
+        writeBehind.put(key, value);
+        nearCache.invalidate(key);
+        readCoalescer.forget(key);
+    }
+
+    /**
+     * Put a value into Cloudflare KV with an expiration. The write is buffered
+     * and sent with the next batch; KV counts the time to live from when it
+     * receives the batch.
+     * @param key The key to store
+     * @param value The value to store
+     * @param ttl The time to live, at least one minute
+     */
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        writeBehind.put(key, value, null, expirationTtl(ttl));
+        nearCache.invalidate(key);
+        readCoalescer.forget(key);
     }
     
     /**
-     * Delete a value from Cloudflare KV
+     * Delete a value from Cloudflare KV. The delete is buffered and sent with the next batch.
      * @param key The key to delete
      */
+    @Override
     public void delete(String key) {
-        client.delete()
+        writeBehind.delete(key);
+        nearCache.invalidate(key);
+        readCoalescer.forget(key);
+    }
+
+    @Override
+    public void evictCached(Collection<String> keys) {
+        for (String key : keys) {
+            nearCache.invalidate(key);
+            readCoalescer.forget(key);
+        }
+    }
+
+    @Override
+    public void evictAllCached() {
+        nearCache.invalidateAll();
+    }
+
+    /**
+     * Send buffered writes that have not filled a batch yet
+     */
+    @Scheduled(fixedDelayString = "${cloudflare.writeBehind.flushIntervalMs:200}")
+    public void flushWrites() {
+        writeBehind.flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!writeBehind.flushAndWait(shutdownFlushTimeoutMs)) {
+            System.err.println("Shutting down with " + (writeBehind.getPendingCount() + writeBehind.getInFlightCount())
+                + " KV writes not acknowledged" + (journal != null ? "; they will be replayed from the journal" : ""));
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public KVWriteBehindBuffer getWriteBehindBuffer() {
+        return writeBehind;
+    }
+
+    public KVNearCache getNearCache() {
+        return nearCache;
+    }
+
+    public KVReadCoalescer getReadCoalescer() {
+        return readCoalescer;
+    }
+
+    /**
+     * Read one value. Concurrent reads of the same key share one request. A
+     * missing key completes empty; any other failure, including a 429 that is
+     * still throttled after the rate limiter's retries, is an error rather than
+     * a missing value.
+     */
+    private Mono<String> fetchAsync(String key) {
+        return readCoalescer.read(key, this::sendGet);
+    }
+
+    private Mono<String> sendGet(String key) {
+        return rateLimiter.execute(Operation.READ, () -> client.get()
             .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/values/{key}", accountId, namespaceId, key)
             .retrieve()
-            .bodyToMono(Void.class)
-            .subscribe();
+            .bodyToMono(String.class)
+            .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty()));
+    }
+
+    private static final class ListedKey {
+        private final String name;
+        private final JsonNode metadata;
+        // Only set for keys read through the bulk read endpoint
+        private final String value;
+
+        private ListedKey(String name, JsonNode metadata) {
+            this(name, metadata, null);
+        }
+
+        private ListedKey(String name, JsonNode metadata, String value) {
+            this.name = name;
+            this.metadata = metadata;
+            this.value = value;
+        }
+    }
+
+    private static final class KeyPage {
+        private final List<ListedKey> keys;
+        private final String cursor;
+
+        private KeyPage(List<ListedKey> keys, String cursor) {
+            this.keys = keys;
+            this.cursor = cursor;
+        }
+    }
+
+    private Mono<KeyPage> listKeyPage(String prefix, String cursor) {
+        return rateLimiter.execute(Operation.LIST, () -> client.get()
+            .uri(uriBuilder -> {
+                // Prefix and cursor go in as variables so they are fully encoded
+                uriBuilder.path("/accounts/{acct}/storage/kv/namespaces/{ns}/keys")
+                    .queryParam("limit", listPageSize)
+                    .queryParam("prefix", "{prefix}");
+                if (cursor == null) {
+                    return uriBuilder.build(accountId, namespaceId, prefix);
+                }
+                return uriBuilder.queryParam("cursor", "{cursor}").build(accountId, namespaceId, prefix, cursor);
+            })
+            .retrieve()
+            .bodyToMono(byte[].class))
+            .map(this::parseKeyPage);
+    }
+
+    /**
+     * Pull the key names, their metadata and the next cursor out of a list
+     * response with the streaming parser, building a tree only for metadata
+     */
+    private KeyPage parseKeyPage(byte[] body) {
+        List<ListedKey> keys = new ArrayList<>();
+        String cursor = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("result".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String name = null;
+                        JsonNode metadata = null;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String keyField = parser.getCurrentName();
+                            JsonToken keyValue = parser.nextToken();
+                            if ("name".equals(keyField)) {
+                                name = parser.getText();
+                            } else if ("metadata".equals(keyField) && keyValue == JsonToken.START_OBJECT) {
+                                metadata = objectMapper.readTree(parser);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        keys.add(new ListedKey(name, metadata));
+                    }
+                } else if ("result_info".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String infoField = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("cursor".equals(infoField)) {
+                            cursor = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse KV key listing", e);
+        }
+        // The last page comes back with an empty cursor
+        return new KeyPage(keys, cursor == null || cursor.isEmpty() ? null : cursor);
+    }
+
+    /**
+     * Read keys with their values and metadata in one request
+     * @param keys At most {@value #BULK_GET_MAX_KEYS} keys
+     * @return The keys that are stored; missing keys are absent
+     */
+    private Flux<ListedKey> bulkGetWithMetadata(List<String> keys) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("keys", keys);
+        body.put("type", "text");
+        body.put("withMetadata", true);
+        return rateLimiter.execute(Operation.READ, () -> client.post()
+            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/bulk/get", accountId, namespaceId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(body)
+            .retrieve()
+            .bodyToMono(byte[].class))
+            .flatMapIterable(this::parseBulkValues);
+    }
+
+    /**
+     * Pull the values and metadata out of a bulk read response, in which a
+     * missing key maps to null
+     */
+    private List<ListedKey> parseBulkValues(byte[] body) {
+        List<ListedKey> stored = new ArrayList<>();
+        try {
+            JsonNode values = objectMapper.readTree(body).path("result").path("values");
+            Iterator<Map.Entry<String, JsonNode>> fields = values.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode entry = field.getValue();
+                if (entry == null || entry.isNull()) {
+                    continue;
+                }
+                JsonNode metadata = entry.get("metadata");
+                stored.add(new ListedKey(
+                    field.getKey(),
+                    metadata != null && metadata.isObject() ? metadata : null,
+                    entry.path("value").isNull() ? null : entry.path("value").asText(null)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse KV bulk read", e);
+        }
+        return stored;
+    }
+
+    private static long expirationTtl(Duration ttl) {
+        return Math.max(ttl.getSeconds(), MIN_EXPIRATION_TTL);
+    }
+
+    /**
+     * The compact key metadata of a status summary: availability, task line and whether it has notes
+     * @return The metadata as a JSON object, or null if it would exceed what KV accepts
+     */
+    private String summaryMetadata(StatusSummary summary) throws IOException {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("a", summary.getAvailability());
+        metadata.put("t", summary.getTasks());
+        metadata.put("n", summary.hasNotes());
+        String json = objectMapper.writeValueAsString(metadata);
+        return json.getBytes(StandardCharsets.UTF_8).length <= MAX_METADATA_BYTES ? json : null;
+    }
+
+    /**
+     * @return The summary in a listed key's metadata, or null if it was stored without one
+     */
+    private StatusSummary summaryOf(ListedKey listed) {
+        if (listed.metadata == null || !listed.metadata.has("a")) {
+            return null;
+        }
+        return new StatusSummary(
+            StatusKeys.userIdOf(listed.name),
+            listed.metadata.path("a").asText(null),
+            listed.metadata.path("t").asText(null),
+            listed.metadata.path("n").asBoolean());
+    }
+
+    private StatusSummary decodeSummary(String key, String json) {
+        try {
+            StatusSummary summary = codec.decode(json, StatusSummary.class);
+            if (summary.getDeveloperId() == null) {
+                summary.setDeveloperId(StatusKeys.userIdOf(key));
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to deserialize status summary " + key, e);
+        }
+    }
+
+    private DailyStatus decodeStatus(String key, String json) {
+        try {
+            DailyStatus status = codec.decode(json, DailyStatus.class);
+            if (status.getDeveloperId() == null) {
+                status.setDeveloperId(StatusKeys.userIdOf(key));
+            }
+            // Statuses concatenated by hand before the codec spelled missing notes as "null"
+            if ("null".equals(status.getNotes())) {
+                status.setNotes(null);
+            }
+            return status;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to deserialize daily status " + key, e);
+        }
+    }
+
+    /**
+     * Send one batch through the bulk endpoints: puts in one request and deletes in another
+     */
+    private Mono<Void> writeBatch(List<PendingWrite> batch) {
+        List<Map<String, Object>> puts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.isDelete()) {
+                deletes.add(write.getKey());
+            } else {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("key", write.getKey());
+                entry.put("value", write.getValue());
+                if (write.getMetadata() != null) {
+                    try {
+                        entry.put("metadata", objectMapper.readTree(write.getMetadata()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to parse metadata of " + write.getKey(), e);
+                    }
+                }
+                if (write.getExpirationTtl() > 0) {
+                    entry.put("expiration_ttl", write.getExpirationTtl());
+                }
+                puts.add(entry);
+            }
+        }
+
+        // Writes wait behind reads for rate limiter permits
+        Mono<Void> putRequest = puts.isEmpty() ? Mono.empty() : rateLimiter.execute(Operation.WRITE, () -> client.put()
+            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/bulk", accountId, namespaceId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(puts)
+            .retrieve()
+            .bodyToMono(Void.class));
+
+        Mono<Void> deleteRequest = deletes.isEmpty() ? Mono.empty() : rateLimiter.execute(Operation.WRITE, () -> client.post()
+            .uri("/accounts/{acct}/storage/kv/namespaces/{ns}/bulk/delete", accountId, namespaceId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(deletes)
+            .retrieve()
+            .bodyToMono(Void.class));
+
+        return Mono.when(putRequest, deleteRequest);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,599 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusKeys;
+import com.example.slackbot.domain.StatusSummary;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key-value store built on an append-only log of memory-mapped
+ * segment files, with an in-memory hash index from key to record location.
+ *
+ * Every put or delete appends a record to the active segment; a full segment
+ * is sealed and a new one started. Reads look the key up in the index and
+ * copy the value straight out of the mapped segment.
+ *
+ * Record layout: {@code [crc32][keyLength][valueLength][key][value]}, where a
+ * value length of -1 marks a delete. The checksum covers everything after it,
+ * so a torn write at the end of the log is detected on startup and the log is
+ * truncated there.
+ *
+ * Compaction merges the live records of all sealed segments into the active
+ * segment and then deletes the sealed files. Copies are appended under the
+ * write lock only while the index still points at the original record, so a
+ * concurrent write of the same key always lands after the copy.
+ *
+ * Records reach the page cache on write and survive a process crash; they are
+ * forced to disk by the periodic sync, or on every write if
+ * {@code kv.embedded.syncEveryWrite} is set.
+ *
+ * A put with a time to live also writes the key's deadline, in epoch
+ * milliseconds, under {@code __expires:{key}}; the periodic expiry sweep
+ * deletes keys whose deadline has passed. Deadline keys are not listed.
+ */
+@Component
+@ConditionalOnProperty(name = "kv.backend", havingValue = "embedded")
+public class EmbeddedLogKVStore implements KeyValueStore {
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    private static final String EXPIRY_PREFIX = "__expires:";
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int writePosition;
+        private final AtomicLong deadBytes = new AtomicLong();
+
+        private Segment(long id, Path path, MappedByteBuffer buffer, int capacity) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int keyLength;
+        private final int valueLength;
+
+        private Location(Segment segment, int offset, int keyLength, int valueLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+        private int recordSize() {
+            return HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final boolean syncEveryWrite;
+    private final ValueCodec codec;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    // Guarded by "this"; ordered by segment id, the last one is active
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+
+    public EmbeddedLogKVStore(
+            @Value("${kv.embedded.directory:./data/kv}") String directory,
+            @Value("${kv.embedded.segmentSizeBytes:67108864}") int segmentSize,
+            @Value("${kv.embedded.compactionThreshold:0.5}") double compactionThreshold,
+            @Value("${kv.embedded.syncEveryWrite:false}") boolean syncEveryWrite,
+            ValueCodec codec) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        this.syncEveryWrite = syncEveryWrite;
+        this.codec = codec;
+
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedded KV store in " + directory, e);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        Location location = index.get(key);
+        return location == null ? null : readValue(location);
+    }
+
+    @Override
+    public Map<String, String> getMany(Collection<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        for (String key : keys) {
+            String value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    // Reads are served from the memory-mapped segments and never wait on I/O
+    @Override
+    public Mono<String> getAsync(String key) {
+        return Mono.fromSupplier(() -> get(key));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getManyAsync(Collection<String> keys) {
+        return Mono.fromSupplier(() -> getMany(keys));
+    }
+
+    @Override
+    public synchronized void put(String key, String value) {
+        append(key, value.getBytes(StandardCharsets.UTF_8));
+        // A plain put makes the key permanent again
+        if (index.containsKey(EXPIRY_PREFIX + key)) {
+            append(EXPIRY_PREFIX + key, null);
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, String value, Duration ttl) {
+        append(key, value.getBytes(StandardCharsets.UTF_8));
+        long deadline = System.currentTimeMillis() + ttl.toMillis();
+        append(EXPIRY_PREFIX + key, String.valueOf(deadline).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void delete(String key) {
+        if (index.containsKey(key)) {
+            append(key, null);
+        }
+        if (index.containsKey(EXPIRY_PREFIX + key)) {
+            append(EXPIRY_PREFIX + key, null);
+        }
+    }
+
+    // Nothing is cached in front of the local store
+    @Override
+    public void evictCached(Collection<String> keys) {
+    }
+
+    @Override
+    public void evictAllCached() {
+    }
+
+    @Override
+    public void storeDailyStatus(DailyStatus status) {
+        try {
+            put(StatusKeys.statusKey(status.getDate(), status.getDeveloperId()), codec.encode(status));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize daily status", e);
+        }
+    }
+
+    @Override
+    public void storeDailyStatus(DailyStatus status, Duration ttl) {
+        try {
+            put(StatusKeys.statusKey(status.getDate(), status.getDeveloperId()), codec.encode(status), ttl);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize daily status", e);
+        }
+    }
+
+    @Override
+    public List<DailyStatus> retrieveDailyStatuses(String date) {
+        return streamDailyStatuses(date).collectList().block();
+    }
+
+    @Override
+    public List<DailyStatus> retrieveDailyStatuses(String date, Collection<String> userIds) {
+        List<DailyStatus> statuses = new ArrayList<>();
+        for (String userId : userIds) {
+            DailyStatus status = readStatus(StatusKeys.statusKey(date, userId));
+            if (status != null) {
+                statuses.add(status);
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public Mono<List<DailyStatus>> retrieveDailyStatusesAsync(String date, Collection<String> userIds) {
+        return Mono.fromSupplier(() -> retrieveDailyStatuses(date, userIds));
+    }
+
+    /**
+     * Summaries are derived from the full statuses, which are local reads here
+     */
+    @Override
+    public Mono<List<StatusSummary>> retrieveStatusSummariesAsync(String date, Collection<String> userIds) {
+        return retrieveDailyStatusesAsync(date, userIds)
+            .map(statuses -> statuses.stream().map(StatusSummary::of).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void putStatusSummary(String key, StatusSummary summary) {
+        put(key, encodeSummary(summary));
+    }
+
+    @Override
+    public void putStatusSummary(String key, StatusSummary summary, Duration ttl) {
+        put(key, encodeSummary(summary), ttl);
+    }
+
+    @Override
+    public Mono<List<StatusSummary>> listStatusSummariesAsync(String prefix) {
+        return listKeys(prefix)
+            .sort()
+            .concatMap(key -> Mono.justOrEmpty(readSummary(key)))
+            .collectList();
+    }
+
+    @Override
+    public Flux<DailyStatus> streamDailyStatuses(String date) {
+        return listKeys(StatusKeys.datePrefix(date))
+            .concatMap(key -> Flux.justOrEmpty(readStatus(key)));
+    }
+
+    @Override
+    public Flux<String> listKeys(String prefix) {
+        boolean listDeadlines = prefix.startsWith(EXPIRY_PREFIX);
+        return Flux.fromIterable(index.keySet())
+            .filter(key -> key.startsWith(prefix) && (listDeadlines || !key.startsWith(EXPIRY_PREFIX)));
+    }
+
+    /**
+     * Delete the keys whose time to live has passed
+     */
+    @Scheduled(fixedDelayString = "${kv.embedded.expiryIntervalMs:60000}")
+    public void expireKeys() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            if (!entry.getKey().startsWith(EXPIRY_PREFIX)) {
+                continue;
+            }
+            Location location = entry.getValue();
+            long deadline = Long.parseLong(readValue(location));
+            if (deadline > now) {
+                continue;
+            }
+            synchronized (this) {
+                // Skip keys written again since the deadline was read
+                if (index.get(entry.getKey()) == location) {
+                    delete(entry.getKey().substring(EXPIRY_PREFIX.length()));
+                }
+            }
+        }
+    }
+
+    private String encodeSummary(StatusSummary summary) {
+        try {
+            return codec.encode(summary);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize status summary", e);
+        }
+    }
+
+    private StatusSummary readSummary(String key) {
+        String json = get(key);
+        if (json == null) {
+            return null;
+        }
+        try {
+            StatusSummary summary = codec.decode(json, StatusSummary.class);
+            if (summary.getDeveloperId() == null) {
+                summary.setDeveloperId(StatusKeys.userIdOf(key));
+            }
+            return summary;
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable status summary " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private DailyStatus readStatus(String key) {
+        String json = get(key);
+        if (json == null) {
+            return null;
+        }
+        try {
+            DailyStatus status = codec.decode(json, DailyStatus.class);
+            if (status.getDeveloperId() == null) {
+                status.setDeveloperId(StatusKeys.userIdOf(key));
+            }
+            return status;
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable daily status " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Merge the live records of all sealed segments into the active segment
+     * once enough of the sealed data is garbage.
+     */
+    @Scheduled(fixedDelayString = "${kv.embedded.compactionIntervalMs:60000}")
+    public void compactIfNeeded() {
+        long sealedBytes = 0;
+        long deadBytes = 0;
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if (segment != active) {
+                    sealedBytes += segment.writePosition;
+                    deadBytes += segment.deadBytes.get();
+                }
+            }
+        }
+        if (sealedBytes > 0 && deadBytes >= sealedBytes * compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Merge the live records of all sealed segments into the active segment
+     * and delete the sealed segment files
+     */
+    public void compact() {
+        List<Segment> sealed;
+        synchronized (this) {
+            sealed = new ArrayList<>(segments);
+            sealed.remove(active);
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (!sealed.contains(location.segment)) {
+                continue;
+            }
+            byte[] value = readBytes(location);
+            synchronized (this) {
+                // Skip keys rewritten since the scan started; the newer record wins
+                if (index.get(entry.getKey()) == location) {
+                    append(entry.getKey(), value);
+                }
+            }
+        }
+
+        synchronized (this) {
+            sync();
+            segments.removeAll(sealed);
+        }
+        for (Segment segment : sealed) {
+            try {
+                // The mapping stays valid for readers still holding a location in this segment
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                System.err.println("Failed to delete compacted segment " + segment.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Force written records to disk
+     */
+    @Scheduled(fixedDelayString = "${kv.embedded.syncIntervalMs:1000}")
+    public synchronized void sync() {
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        sync();
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private synchronized void append(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value == null ? TOMBSTONE : value.length;
+        int recordSize = HEADER_SIZE + keyBytes.length + Math.max(valueLength, 0);
+
+        if (active.capacity - active.writePosition < recordSize) {
+            active.buffer.force();
+            active = createSegment(active.id + 1, Math.max(segmentSize, recordSize));
+        }
+
+        int offset = active.writePosition;
+        MappedByteBuffer buffer = active.buffer;
+        buffer.putInt(offset + 4, keyBytes.length);
+        buffer.putInt(offset + 8, valueLength);
+        buffer.put(offset + HEADER_SIZE, keyBytes);
+        if (value != null) {
+            buffer.put(offset + HEADER_SIZE + keyBytes.length, value);
+        }
+        buffer.putInt(offset, checksum(keyBytes.length, valueLength, keyBytes, value));
+        active.writePosition += recordSize;
+
+        Location location = new Location(active, offset, keyBytes.length, valueLength);
+        Location previous = value == null ? index.remove(key) : index.put(key, location);
+        if (previous != null) {
+            previous.segment.deadBytes.addAndGet(previous.recordSize());
+        }
+        if (value == null) {
+            // A tombstone is garbage as soon as the sealed data it shadows is compacted
+            active.deadBytes.addAndGet(recordSize);
+        }
+
+        if (syncEveryWrite) {
+            buffer.force();
+        }
+    }
+
+    private String readValue(Location location) {
+        return new String(readBytes(location), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(Location location) {
+        byte[] value = new byte[location.valueLength];
+        location.segment.buffer.get(location.offset + HEADER_SIZE + location.keyLength, value);
+        return value;
+    }
+
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+
+        for (long id : ids) {
+            Segment segment = openSegment(id);
+            replay(segment);
+            segments.add(segment);
+        }
+
+        if (segments.isEmpty()) {
+            active = createSegment(0, segmentSize);
+        } else {
+            active = segments.get(segments.size() - 1);
+        }
+    }
+
+    /**
+     * Rebuild the index from one segment, stopping at the first empty or corrupt record
+     */
+    private void replay(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.capacity) {
+            int crc = buffer.getInt(position);
+            int keyLength = buffer.getInt(position + 4);
+            int valueLength = buffer.getInt(position + 8);
+            int recordSize = HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+            if (keyLength <= 0 || valueLength < TOMBSTONE
+                    || recordSize <= 0 || position + recordSize > segment.capacity) {
+                break;
+            }
+
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + HEADER_SIZE, keyBytes);
+            byte[] value = null;
+            if (valueLength != TOMBSTONE) {
+                value = new byte[valueLength];
+                buffer.get(position + HEADER_SIZE + keyLength, value);
+            }
+            if (checksum(keyLength, valueLength, keyBytes, value) != crc) {
+                break;
+            }
+
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            Location location = new Location(segment, position, keyLength, valueLength);
+            Location previous = value == null ? index.remove(key) : index.put(key, location);
+            if (previous != null) {
+                previous.segment.deadBytes.addAndGet(previous.recordSize());
+            }
+            if (value == null) {
+                segment.deadBytes.addAndGet(recordSize);
+            }
+            position += recordSize;
+        }
+
+        if (hasData(buffer, position, Math.min(segment.capacity, position + HEADER_SIZE))) {
+            System.err.println("Truncating torn or corrupt record in " + segment.path + " at offset " + position);
+            // Clear the rest so the leftover bytes cannot be mistaken for data later
+            for (int i = position; i < segment.capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        segment.writePosition = position;
+    }
+
+    private static boolean hasData(MappedByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Segment createSegment(long id, int capacity) {
+        Path path = directory.resolve(String.format("segment-%010d.log", id));
+        Segment segment = mapSegment(id, path, capacity);
+        segments.add(segment);
+        return segment;
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("segment-%010d.log", id));
+        return mapSegment(id, path, (int) Files.size(path));
+    }
+
+    private Segment mapSegment(long id, Path path, int capacity) {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < capacity) {
+                file.setLength(capacity);
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(id, path, buffer, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map segment " + path, e);
+        }
+    }
+
+    private static int checksum(int keyLength, int valueLength, byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(keyLength >>> 24);
+        crc.update(keyLength >>> 16);
+        crc.update(keyLength >>> 8);
+        crc.update(keyLength);
+        crc.update(valueLength >>> 24);
+        crc.update(valueLength >>> 16);
+        crc.update(valueLength >>> 8);
+        crc.update(valueLength);
+        crc.update(key);
+        if (value != null) {
+            crc.update(value);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.application.CacheInvalidationBus;
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ValueCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Invalidation bus that passes change events through the key-value store.
+ *
+ * Each node owns one key, {@code invalidation:{nodeId}}, holding a version
+ * stamp and its most recent change events. Published keys are collected and
+ * written as one event every {@code cache.invalidation.kv.publishIntervalMs},
+ * which also keeps each node within KV's limit of one write per key per
+ * second. Every {@code cache.invalidation.kv.pollIntervalMs}, a node lists
+ * the other nodes' keys, reads them, and delivers the events newer than the
+ * version it last saw. If a node's log no longer reaches back to that
+ * version, subscribers are told to drop everything. Changes therefore reach
+ * other nodes within the poll interval plus KV's propagation delay.
+ *
+ * Node keys expire after {@code cache.invalidation.kv.nodeTtl} without a
+ * publish, so stopped nodes drop out of the listing.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "kv")
+public class KVInvalidationBus implements CacheInvalidationBus {
+    static final String KEY_PREFIX = "invalidation:";
+
+    /**
+     * The stored change log of one node
+     */
+    public static class ChangeLog {
+        private long version;
+        private List<ChangeEvent> events = new ArrayList<>();
+
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
+        public List<ChangeEvent> getEvents() {
+            return events;
+        }
+
+        public void setEvents(List<ChangeEvent> events) {
+            this.events = events;
+        }
+    }
+
+    /**
+     * The keys one node changed within one publish interval
+     */
+    public static class ChangeEvent {
+        private long version;
+        private List<String> keys = new ArrayList<>();
+
+        public ChangeEvent() {
+        }
+
+        public ChangeEvent(long version, List<String> keys) {
+            this.version = version;
+            this.keys = keys;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(List<String> keys) {
+            this.keys = keys;
+        }
+    }
+
+    private final KeyValueStore kvStore;
+    private final ValueCodec codec;
+    private final String nodeKey;
+    private final int maxEvents;
+    private final Duration nodeTtl;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    // Guarded by "this"
+    private final Set<String> unpublished = new LinkedHashSet<>();
+    private final Deque<ChangeEvent> events = new ArrayDeque<>();
+    private long version;
+
+    // Only touched by the polling thread; null until the first poll
+    private Map<String, Long> lastSeen;
+
+    @Autowired
+    public KVInvalidationBus(
+            KeyValueStore kvStore,
+            ValueCodec codec,
+            @Value("${cache.invalidation.kv.nodeId:}") String nodeId,
+            @Value("${cache.invalidation.kv.maxEvents:100}") int maxEvents,
+            @Value("${cache.invalidation.kv.nodeTtl:1d}") Duration nodeTtl) {
+        this.kvStore = kvStore;
+        this.codec = codec;
+        this.nodeKey = KEY_PREFIX + (nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId);
+        this.maxEvents = maxEvents;
+        this.nodeTtl = nodeTtl;
+        // Start after the current time so a restarted node is never behind what it published before
+        this.version = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void publish(Collection<String> keys) {
+        unpublished.addAll(keys);
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Write the keys published since the last call as one change event
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.kv.publishIntervalMs:1000}")
+    public void flush() {
+        String log;
+        synchronized (this) {
+            if (unpublished.isEmpty()) {
+                return;
+            }
+            events.addLast(new ChangeEvent(++version, new ArrayList<>(unpublished)));
+            unpublished.clear();
+            while (events.size() > maxEvents) {
+                events.removeFirst();
+            }
+
+            ChangeLog changeLog = new ChangeLog();
+            changeLog.setVersion(version);
+            changeLog.setEvents(new ArrayList<>(events));
+            try {
+                log = codec.encode(changeLog);
+            } catch (IOException e) {
+                System.err.println("Failed to encode invalidation log: " + e.getMessage());
+                return;
+            }
+        }
+        kvStore.put(nodeKey, log, nodeTtl);
+    }
+
+    /**
+     * Read the other nodes' change logs and deliver the events not seen yet.
+     * The first poll only records where each log stands.
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.kv.pollIntervalMs:5000}")
+    public void poll() {
+        Map<String, String> logs;
+        try {
+            List<String> nodeKeys = kvStore.listKeys(KEY_PREFIX)
+                .filter(key -> !key.equals(nodeKey))
+                .collectList()
+                .block();
+            logs = kvStore.getMany(nodeKeys);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to poll invalidation logs: " + e.getMessage());
+            return;
+        }
+
+        boolean first = lastSeen == null;
+        Map<String, Long> seen = new HashMap<>();
+        Set<String> changed = new LinkedHashSet<>();
+        boolean missedChanges = false;
+        for (Map.Entry<String, String> entry : logs.entrySet()) {
+            ChangeLog log;
+            try {
+                log = codec.decode(entry.getValue(), ChangeLog.class);
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable invalidation log " + entry.getKey() + ": " + e.getMessage());
+                continue;
+            }
+            seen.put(entry.getKey(), log.getVersion());
+            if (first) {
+                continue;
+            }
+
+            // A node that appeared since the last poll is read from its oldest event
+            long previous = lastSeen.getOrDefault(entry.getKey(), 0L);
+            if (log.getVersion() <= previous) {
+                continue;
+            }
+            if (previous > 0 && (log.getEvents().isEmpty() || log.getEvents().get(0).getVersion() > previous + 1)) {
+                missedChanges = true;
+            }
+            for (ChangeEvent event : log.getEvents()) {
+                if (event.getVersion() > previous) {
+                    changed.addAll(event.getKeys());
+                }
+            }
+        }
+        lastSeen = seen;
+
+        if (missedChanges) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.invalidateAll();
+            }
+        } else if (!changed.isEmpty()) {
+            List<String> keys = new ArrayList<>(changed);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.invalidate(keys);
+            }
+        }
+    }
+}
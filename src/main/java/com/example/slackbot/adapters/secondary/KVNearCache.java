@@ -0,0 +1,240 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded in-process cache of KV values, keyed by KV key.
+ *
+ * Only keys matching a configured prefix are cached, each prefix with its own
+ * TTL. The least recently used entry is evicted once {@code maxEntries} is
+ * reached. Writes made by this node invalidate the key; a load that started
+ * before such an invalidation is not stored, so a slow read cannot put a
+ * stale value back. Values restored from a snapshot are served as stale, for
+ * their own lifetime, until they are loaded again.
+ */
+@Component
+public class KVNearCache {
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private static final class Entry {
+        private final String value;
+        private final long expiresAt;
+        private final boolean stale;
+
+        private Entry(String value, long expiresAt, boolean stale) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.stale = stale;
+        }
+    }
+
+    private final int maxEntries;
+    // Longest prefix first, so "team:" does not shadow a more specific prefix
+    private final List<Map.Entry<String, Duration>> ttlByPrefix;
+    private final LinkedHashMap<String, Entry> entries;
+    private final AtomicLongArray invalidationStamps = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public KVNearCache(
+            @Value("${cloudflare.nearCache.maxEntries:10000}") int maxEntries,
+            @Value("${cloudflare.nearCache.ttl.team:30s}") Duration teamTtl,
+            @Value("${cloudflare.nearCache.ttl.allTeams:15s}") Duration allTeamsTtl,
+            @Value("${cloudflare.nearCache.ttl.statusTeam:30s}") Duration statusTeamTtl,
+            MeterRegistry meterRegistry) {
+        this(maxEntries, ttlMap(teamTtl, allTeamsTtl, statusTeamTtl), meterRegistry);
+    }
+
+    /**
+     * @param maxEntries Maximum number of cached keys
+     * @param ttlByPrefix TTL per key prefix; keys matching no prefix are not cached
+     * @param meterRegistry Registry for the hit, miss and eviction metrics
+     */
+    public KVNearCache(int maxEntries, Map<String, Duration> ttlByPrefix, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttlByPrefix = new ArrayList<>(ttlByPrefix.entrySet());
+        this.ttlByPrefix.sort(Comparator.comparingInt((Map.Entry<String, Duration> e) -> e.getKey().length()).reversed());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > KVNearCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("kv.near_cache.requests").tag("result", "hit")
+            .description("KV reads served from the near cache").register(meterRegistry);
+        this.misses = Counter.builder("kv.near_cache.requests").tag("result", "miss")
+            .description("KV reads of cacheable keys that went to KV").register(meterRegistry);
+        this.evictions = Counter.builder("kv.near_cache.evictions")
+            .description("Entries evicted because the near cache was full").register(meterRegistry);
+        meterRegistry.gauge("kv.near_cache.size", this, KVNearCache::size);
+    }
+
+    /**
+     * Whether values of this key are cached at all
+     */
+    public boolean isCacheable(String key) {
+        return ttlFor(key) != null;
+    }
+
+    /**
+     * Look up a cached value, counting a hit or a miss
+     * @param key The KV key
+     * @return The cached value, or empty if absent or expired
+     */
+    public Optional<String> get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return Optional.of(entry.value);
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Stamp to take before loading a key from KV and pass to {@link #put}
+     */
+    public long loadStamp(String key) {
+        return invalidationStamps.get(stripe(key));
+    }
+
+    /**
+     * Cache a value loaded from KV, unless the key was invalidated since the load started
+     * @param key The KV key
+     * @param value The loaded value; null values are not cached
+     * @param loadStamp The stamp returned by {@link #loadStamp} before loading
+     */
+    public void put(String key, String value, long loadStamp) {
+        Duration ttl = ttlFor(key);
+        if (ttl == null || value == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (invalidationStamps.get(stripe(key)) != loadStamp) {
+                return;
+            }
+            entries.put(key, new Entry(value, System.nanoTime() + ttl.toNanos(), false));
+        }
+    }
+
+    /**
+     * Cache a value restored from a snapshot as stale. It is served until it
+     * is loaded again or its own lifetime ends, whichever comes first; the
+     * key's TTL does not apply until then.
+     * @param key The KV key
+     * @param value The restored value
+     * @param servedFor How long the value may be served if it is not loaded again
+     */
+    public void seed(String key, String value, Duration servedFor) {
+        if (ttlFor(key) == null || value == null || servedFor.isNegative() || servedFor.isZero()) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + servedFor.toNanos();
+        synchronized (entries) {
+            // A value loaded or written since startup is newer than the snapshot
+            entries.putIfAbsent(key, new Entry(value, expiresAt, true));
+        }
+    }
+
+    /**
+     * @return Whether the key holds a value restored from a snapshot that has
+     *     not been loaded again
+     */
+    public boolean isStale(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return entry != null && entry.stale && entry.expiresAt - System.nanoTime() > 0;
+        }
+    }
+
+    /**
+     * The unexpired values loaded from KV whose key starts with one of the
+     * prefixes; restored values not loaded again are left out
+     */
+    public Map<String, String> entries(List<String> prefixes) {
+        Map<String, String> copy = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                if (!value.stale && value.expiresAt - now > 0 && prefixes.stream().anyMatch(entry.getKey()::startsWith)) {
+                    copy.put(entry.getKey(), value.value);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Drop a key, e.g. because this node has written it
+     */
+    public void invalidate(String key) {
+        synchronized (entries) {
+            invalidationStamps.incrementAndGet(stripe(key));
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+                invalidationStamps.incrementAndGet(i);
+            }
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static Map<String, Duration> ttlMap(Duration teamTtl, Duration allTeamsTtl, Duration statusTeamTtl) {
+        Map<String, Duration> ttlByPrefix = new HashMap<>();
+        ttlByPrefix.put("team:", teamTtl);
+        ttlByPrefix.put("all_teams", allTeamsTtl);
+        ttlByPrefix.put("status_team:", statusTeamTtl);
+        return ttlByPrefix;
+    }
+
+    private Duration ttlFor(String key) {
+        for (Map.Entry<String, Duration> prefix : ttlByPrefix) {
+            if (key.startsWith(prefix.getKey()) && !prefix.getValue().isZero()) {
+                return prefix.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static int stripe(String key) {
+        return Math.floorMod(key.hashCode(), INVALIDATION_STRIPES);
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.domain.StatusKeys;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Local snapshot of the near cache, used to warm it after a restart.
+ *
+ * The snapshot is written from the near cache's own contents periodically
+ * and at shutdown, so writing it reads nothing from KV. At startup, its
+ * entries are put back into the near cache as stale values before the web
+ * server starts, so the first reads after a restart do not wait for KV.
+ * Once the application is ready, the restored keys are read again from KV
+ * one at a time, each read taking a read permit of the rate limiter, and
+ * replaced with fresh values. A restored value that has not been read again
+ * is served for at most {@code cloudflare.snapshot.maxAgeMs} after the
+ * snapshot was written, independently of the near cache TTL.
+ *
+ * The file is ignored if its checksum does not match, if it was written for
+ * another namespace, under another stored schema version (the value of
+ * {@link StatusKeys#SCHEMA_VERSION_KEY}), or more than
+ * {@code cloudflare.snapshot.maxAgeMs} ago.
+ *
+ * File layout: {@code [magic][format version][namespace][schema version]
+ * [written at][entry count][key, value]...[crc32]}, with strings written as
+ * modified UTF-8 and values as length-prefixed UTF-8 bytes. The checksum
+ * covers everything before it.
+ */
+@Component
+@ConditionalOnProperty(name = "kv.backend", havingValue = "cloudflare", matchIfMissing = true)
+public class KVNearCacheSnapshot {
+    private static final int MAGIC = 0x54505331; // "TPS1"
+    private static final int FORMAT_VERSION = 3;
+
+    private final boolean enabled;
+    private final Path path;
+    private final long maxAgeMs;
+    private final String namespaceId;
+    private final List<String> prefixes;
+    private final CloudflareKVAdapter kvAdapter;
+    private final KVNearCache nearCache;
+    // The keys restored at startup and not yet read again
+    private volatile List<String> restoredKeys = Collections.emptyList();
+
+    @Autowired
+    public KVNearCacheSnapshot(
+            @Value("${cloudflare.snapshot.enabled:true}") boolean enabled,
+            @Value("${cloudflare.snapshot.path:./data/kv-snapshot.bin}") String path,
+            @Value("${cloudflare.snapshot.maxAgeMs:1800000}") long maxAgeMs,
+            @Value("${cloudflare.namespaceId}") String namespaceId,
+            @Value("${cloudflare.snapshot.prefixes:team:,all_teams}") String prefixes,
+            CloudflareKVAdapter kvAdapter,
+            KVNearCache nearCache) {
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.maxAgeMs = maxAgeMs;
+        this.namespaceId = namespaceId;
+        this.prefixes = Arrays.stream(prefixes.split(","))
+            .map(String::trim)
+            .filter(prefix -> !prefix.isEmpty())
+            .collect(Collectors.toList());
+        this.kvAdapter = kvAdapter;
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * Put the snapshot entries back into the near cache as stale values
+     */
+    @PostConstruct
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+
+        Map<String, Map.Entry<String, Duration>> entries = read();
+        for (Map.Entry<String, Map.Entry<String, Duration>> entry : entries.entrySet()) {
+            nearCache.seed(entry.getKey(), entry.getValue().getKey(), entry.getValue().getValue());
+        }
+        restoredKeys = new ArrayList<>(entries.keySet());
+        if (!entries.isEmpty()) {
+            System.out.println("Warmed near cache with " + entries.size() + " values from " + path);
+        }
+    }
+
+    /**
+     * Read the restored keys again from KV in the background, one at a time,
+     * replacing the stale values. Keys loaded or written since startup are
+     * skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshRestored() {
+        List<String> keys = restoredKeys;
+        restoredKeys = Collections.emptyList();
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        Flux.fromIterable(keys)
+            .concatMap(this::refresh)
+            .filter(refreshed -> refreshed)
+            .count()
+            .subscribe(
+                count -> System.out.println("Refreshed " + count + " near cache values restored from " + path),
+                e -> System.err.println("Failed to refresh restored near cache values: " + e.getMessage()));
+    }
+
+    /**
+     * @return Whether the key was read again; false if it no longer held a
+     *     restored value or the read failed
+     */
+    private Mono<Boolean> refresh(String key) {
+        if (!nearCache.isStale(key)) {
+            return Mono.just(false);
+        }
+        long loadStamp = nearCache.loadStamp(key);
+        return kvAdapter.getUncached(key)
+            .map(value -> {
+                nearCache.put(key, value, loadStamp);
+                return true;
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                // Deleted since the snapshot was written
+                nearCache.invalidate(key);
+                return true;
+            }))
+            .onErrorResume(e -> {
+                System.err.println("Failed to refresh restored near cache value " + key + ": " + e.getMessage());
+                return Mono.just(false);
+            });
+    }
+
+    /**
+     * Rewrite the snapshot from the near cache entries under the snapshot prefixes
+     */
+    @Scheduled(
+        initialDelayString = "${cloudflare.snapshot.intervalMs:300000}",
+        fixedDelayString = "${cloudflare.snapshot.intervalMs:300000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            write(nearCache.entries(prefixes), schemaVersion(), System.currentTimeMillis());
+        } catch (RuntimeException | IOException e) {
+            System.err.println("Failed to write near cache snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the snapshot file, replacing the previous one atomically
+     */
+    void write(Map<String, String> entries, String schemaVersion, long writtenAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(namespaceId);
+        out.writeUTF(schemaVersion);
+        out.writeLong(writtenAt);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(value.length);
+            out.write(value);
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read the snapshot file
+     * @return The values by key, each with how much longer it may be served,
+     *     or an empty map if the file is missing, corrupt, too old or foreign
+     */
+    Map<String, Map.Entry<String, Duration>> read() {
+        if (!Files.exists(path)) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            if (bytes.length < 4) {
+                throw new IOException("File is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            in.skipBytes(bytes.length - 4);
+            if (in.readInt() != (int) crc.getValue()) {
+                throw new IOException("Checksum mismatch");
+            }
+
+            in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format");
+            }
+            if (!namespaceId.equals(in.readUTF())) {
+                System.err.println("Ignoring near cache snapshot " + path + " written for another namespace");
+                return Collections.emptyMap();
+            }
+            if (!in.readUTF().equals(schemaVersion())) {
+                System.err.println("Ignoring near cache snapshot " + path + " written under another schema version");
+                return Collections.emptyMap();
+            }
+            long age = System.currentTimeMillis() - in.readLong();
+            if (age > maxAgeMs || age < 0) {
+                System.err.println("Ignoring stale near cache snapshot " + path);
+                return Collections.emptyMap();
+            }
+
+            Duration servedFor = Duration.ofMillis(maxAgeMs - age);
+            int count = in.readInt();
+            Map<String, Map.Entry<String, Duration>> values = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                values.put(key, Map.entry(new String(value, StandardCharsets.UTF_8), servedFor));
+            }
+            return values;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable near cache snapshot " + path + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * The stored schema version, or an empty string before the first migration
+     */
+    private String schemaVersion() {
+        String version = kvAdapter.get(StatusKeys.SCHEMA_VERSION_KEY);
+        return version == null ? "" : version.trim();
+    }
+}
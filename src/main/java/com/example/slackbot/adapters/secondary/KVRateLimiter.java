@@ -0,0 +1,357 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Client-side rate control for Cloudflare KV requests.
+ *
+ * Every request takes a permit. A permit needs a free slot under the
+ * concurrency limit and a token from the bucket of its operation type. The
+ * limit adapts with AIMD: each fast success raises it by 1/limit, so it grows
+ * by about one per round of requests. A response slower than
+ * {@code latencyThresholdMs} cuts it by 10%, and a 429 halves it. Decreases are
+ * applied at most once per latency threshold, so a burst of throttled
+ * responses counts as one signal. A 429 also pauses all requests for its
+ * {@code Retry-After}, and the request is retried with backoff.
+ *
+ * Waiting reads and listings are granted before waiting background writes.
+ * Permits are handed out without blocking: waiters are completed when a slot
+ * frees up or a bucket refills.
+ */
+@Component
+public class KVRateLimiter {
+    private static final double THROTTLE_DECREASE = 0.5;
+    private static final double LATENCY_DECREASE = 0.9;
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(200);
+
+    public enum Operation {
+        READ(true), LIST(true), WRITE(false);
+
+        private final boolean foreground;
+
+        Operation(boolean foreground) {
+            this.foreground = foreground;
+        }
+    }
+
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(double perSecond, int burst, long now) {
+            this.capacity = burst;
+            this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+         */
+        private long tryTake(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+
+        /**
+         * Return a token taken for a request that was never sent
+         */
+        private void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+
+    private static final class Permit {
+        private final Operation operation;
+        private final long acquiredAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Operation operation) {
+            this.operation = operation;
+        }
+    }
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int DELIVERED = 2;
+    private static final int CANCELLED = 3;
+
+    private static final class Waiter {
+        private final Operation operation;
+        private final MonoSink<Permit> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        // Set before the waiter is granted, so a cancel that sees GRANTED sees the permit
+        private volatile Permit permit;
+
+        private Waiter(Operation operation, MonoSink<Permit> sink) {
+            this.operation = operation;
+            this.sink = sink;
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final int maxRetries;
+    private final Map<Operation, Timer> permitWaits = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> throttledResponses = new EnumMap<>(Operation.class);
+
+    // Guarded by "this"
+    private final Map<Operation, TokenBucket> buckets = new EnumMap<>(Operation.class);
+    private final Deque<Waiter> foregroundWaiters = new ArrayDeque<>();
+    private final Deque<Waiter> backgroundWaiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long pausedUntil;
+    private long lastDecrease;
+    private boolean drainScheduled;
+
+    @Autowired
+    public KVRateLimiter(
+            @Value("${cloudflare.rateLimit.initialConcurrency:16}") int initialLimit,
+            @Value("${cloudflare.rateLimit.minConcurrency:1}") int minLimit,
+            @Value("${cloudflare.rateLimit.maxConcurrency:64}") int maxLimit,
+            @Value("${cloudflare.rateLimit.latencyThresholdMs:1000}") long latencyThresholdMs,
+            @Value("${cloudflare.rateLimit.maxRetries:3}") int maxRetries,
+            @Value("${cloudflare.rateLimit.read.perSecond:20}") double readsPerSecond,
+            @Value("${cloudflare.rateLimit.read.burst:50}") int readBurst,
+            @Value("${cloudflare.rateLimit.list.perSecond:2}") double listsPerSecond,
+            @Value("${cloudflare.rateLimit.list.burst:10}") int listBurst,
+            @Value("${cloudflare.rateLimit.write.perSecond:2}") double writesPerSecond,
+            @Value("${cloudflare.rateLimit.write.burst:10}") int writeBurst,
+            MeterRegistry meterRegistry) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.maxRetries = maxRetries;
+
+        long now = System.nanoTime();
+        this.lastDecrease = now - latencyThresholdNanos;
+        this.pausedUntil = now;
+        buckets.put(Operation.READ, new TokenBucket(readsPerSecond, readBurst, now));
+        buckets.put(Operation.LIST, new TokenBucket(listsPerSecond, listBurst, now));
+        buckets.put(Operation.WRITE, new TokenBucket(writesPerSecond, writeBurst, now));
+
+        for (Operation operation : Operation.values()) {
+            String tag = operation.name().toLowerCase();
+            permitWaits.put(operation, Timer.builder("kv.rate_limiter.permit.wait")
+                .description("Time KV requests waited for a rate limiter permit")
+                .tag("operation", tag)
+                .register(meterRegistry));
+            throttledResponses.put(operation, Counter.builder("kv.rate_limiter.throttled")
+                .description("KV requests answered with 429 Too Many Requests")
+                .tag("operation", tag)
+                .register(meterRegistry));
+        }
+        meterRegistry.gauge("kv.rate_limiter.limit", this, KVRateLimiter::getLimit);
+        meterRegistry.gauge("kv.rate_limiter.in_flight", this, KVRateLimiter::getInFlight);
+        meterRegistry.gauge("kv.rate_limiter.queued", this, KVRateLimiter::getQueued);
+    }
+
+    /**
+     * Run a KV request under a permit. The request is subscribed once a permit
+     * is granted, and again with backoff if it is answered with 429.
+     * @param operation The operation type, which selects the token bucket and the priority
+     * @param request Supplies the request; called once per attempt
+     * @return The request's result
+     */
+    public <T> Mono<T> execute(Operation operation, Supplier<Mono<T>> request) {
+        Mono<T> attempt = Mono.usingWhen(
+            acquire(operation),
+            permit -> request.get(),
+            permit -> Mono.fromRunnable(() -> release(permit, null, true)),
+            (permit, error) -> Mono.fromRunnable(() -> release(permit, error, true)),
+            permit -> Mono.fromRunnable(() -> release(permit, null, false)));
+
+        return attempt.retryWhen(Retry.backoff(maxRetries, RETRY_BACKOFF)
+            .filter(KVRateLimiter::isThrottled)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return foregroundWaiters.size() + backgroundWaiters.size();
+    }
+
+    private Mono<Permit> acquire(Operation operation) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(operation, sink);
+            synchronized (this) {
+                queueFor(operation).addLast(waiter);
+            }
+            sink.onCancel(() -> cancel(waiter));
+            drain();
+        });
+    }
+
+    private void cancel(Waiter waiter) {
+        if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+            synchronized (this) {
+                queueFor(waiter.operation).remove(waiter);
+            }
+        } else if (waiter.state.compareAndSet(GRANTED, CANCELLED)) {
+            // Granted but never handed over; nobody else will release it, and
+            // the token it took was not spent on a request
+            synchronized (this) {
+                buckets.get(waiter.operation).refund();
+            }
+            release(waiter.permit, null, false);
+        }
+    }
+
+    private void release(Permit permit, Throwable error, boolean adapt) {
+        if (!permit.released.compareAndSet(false, true)) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            inFlight--;
+            if (error != null && isThrottled(error)) {
+                throttledResponses.get(permit.operation).increment();
+                decrease(THROTTLE_DECREASE, now);
+                long retryAfter = retryAfter((WebClientResponseException) error).toNanos();
+                if (now + retryAfter - pausedUntil > 0) {
+                    pausedUntil = now + retryAfter;
+                }
+            } else if (adapt && error == null) {
+                if (now - permit.acquiredAt > latencyThresholdNanos) {
+                    decrease(LATENCY_DECREASE, now);
+                } else {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+        }
+        drain();
+    }
+
+    // Guarded by "this"
+    private void decrease(double factor, long now) {
+        if (now - lastDecrease < latencyThresholdNanos) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * factor);
+    }
+
+    /**
+     * Grant permits to waiters while there is room, foreground waiters first
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        long retryIn = 0;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (pausedUntil - now > 0) {
+                retryIn = pausedUntil - now;
+            } else {
+                while (inFlight < (int) limit) {
+                    Waiter next = null;
+                    for (Deque<Waiter> queue : List.of(foregroundWaiters, backgroundWaiters)) {
+                        Waiter head = queue.peekFirst();
+                        if (head == null) {
+                            continue;
+                        }
+                        long wait = buckets.get(head.operation).tryTake(now);
+                        if (wait == 0) {
+                            next = queue.pollFirst();
+                            break;
+                        }
+                        retryIn = retryIn == 0 ? wait : Math.min(retryIn, wait);
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    next.permit = new Permit(next.operation);
+                    if (!next.state.compareAndSet(WAITING, GRANTED)) {
+                        // Cancelled while queued; its token goes back to the bucket
+                        buckets.get(next.operation).refund();
+                        continue;
+                    }
+                    inFlight++;
+                    granted.add(next);
+                }
+            }
+
+            if (retryIn > 0 && !drainScheduled && !(foregroundWaiters.isEmpty() && backgroundWaiters.isEmpty())) {
+                drainScheduled = true;
+                Schedulers.parallel().schedule(this::scheduledDrain, retryIn, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // Complete waiters outside the lock; their requests start on this thread
+        for (Waiter waiter : granted) {
+            if (waiter.state.compareAndSet(GRANTED, DELIVERED)) {
+                permitWaits.get(waiter.operation).record(waiter.permit.acquiredAt - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+                waiter.sink.success(waiter.permit);
+            }
+        }
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+
+    private Deque<Waiter> queueFor(Operation operation) {
+        return operation.foreground ? foregroundWaiters : backgroundWaiters;
+    }
+
+    static boolean isThrottled(Throwable error) {
+        return error instanceof WebClientResponseException
+            && ((WebClientResponseException) error).getStatusCode().value() == 429;
+    }
+
+    private static Duration retryAfter(WebClientResponseException error) {
+        String retryAfter = error.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                // An HTTP date; fall back to the default pause
+            }
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Single-flight coalescing of KV reads.
+ *
+ * While a read of a key is in flight, further reads of the same key subscribe
+ * to it instead of sending their own request, and all of them get its value,
+ * its empty completion or its error. The flight is forgotten as soon as it
+ * terminates, so a later read always starts a new request. A caller that
+ * cancels does not cancel the request for the others.
+ */
+public class KVReadCoalescer {
+
+    private static final class Flight {
+        private Mono<String> result;
+    }
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    /**
+     * @param meterRegistry Registry for the coalesced read counter
+     */
+    public KVReadCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("kv.read.coalesced")
+            .description("KV reads answered by a request already in flight for the same key")
+            .register(meterRegistry);
+        meterRegistry.gauge("kv.read.in_flight_keys", inFlight, Map::size);
+    }
+
+    /**
+     * Read a key, joining the read already in flight for it if there is one
+     * @param key The key to read
+     * @param loader Sends the request for a key; only called when no read of the key is in flight
+     * @return The shared result of the read
+     */
+    public Mono<String> read(String key, Function<String, Mono<String>> loader) {
+        return Mono.defer(() -> {
+            // The shared result is built before the flight is published, and
+            // only sends its request when the first caller subscribes
+            Flight flight = new Flight();
+            flight.result = Mono.defer(() -> loader.apply(key))
+                .doFinally(signal -> inFlight.remove(key, flight))
+                .cache();
+
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                coalesced.increment();
+                return existing.result;
+            }
+            return flight.result;
+        });
+    }
+
+    /**
+     * Detach the read in flight for a key, so reads after a write do not join
+     * a request that may have been answered before the write
+     */
+    public void forget(String key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * @return The number of keys with a read in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return The number of reads that joined a request already in flight
+     */
+    public long getCoalescedCount() {
+        return (long) coalesced.count();
+    }
+}
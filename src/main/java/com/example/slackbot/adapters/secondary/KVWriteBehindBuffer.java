@@ -0,0 +1,539 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Write-behind buffer for KV writes.
+ *
+ * Writes are merged per key while they wait, so only the latest value of a key
+ * is ever sent. Pending writes are flushed in batches of at most
+ * {@code maxBatchSize} entries, either when a batch fills up or when the
+ * scheduled flush runs. At most {@code maxInFlightBatches} batches are sent
+ * concurrently; callers that fill a batch while that limit is reached wait
+ * for a permit, which pushes back on bursts instead of piling up requests.
+ *
+ * With a journal, every write is on disk before {@code put} or {@code delete}
+ * returns, and writes the journal recovered at startup are queued again.
+ * Batch results are then handled on the bounded elastic scheduler, since
+ * journaling them touches the disk, and an in-flight permit is released only
+ * once its batch is journaled.
+ * At most {@code maxUnacknowledged} keys wait for KV at a time; when KV is
+ * down, further writes of new keys wait up to {@code backpressureTimeoutMs}
+ * for room and then fail, instead of growing the buffer without bound.
+ *
+ * A key has at most one write in flight; a newer write of the key waits in
+ * the buffer until the older one is acknowledged or has failed, so writes of
+ * a key reach KV in order. Failed batches are retried, except on errors that
+ * cannot succeed on retry, such as a 400. The writes of such a batch are then
+ * sent one per batch, and a write that fails on its own is dead-lettered:
+ * logged, counted and dropped from the journal.
+ */
+public class KVWriteBehindBuffer {
+    private static final int MAX_DEAD_LETTERS = 100;
+
+    /**
+     * A pending write. A {@code null} value marks a delete.
+     */
+    public static final class PendingWrite {
+        private final String key;
+        private final String value;
+        private final String metadata;
+        private final long expirationTtl;
+        private final long enqueuedAt;
+        private final long sequence;
+
+        PendingWrite(String key, String value, long enqueuedAt) {
+            this(key, value, null, enqueuedAt, 0);
+        }
+
+        PendingWrite(String key, String value, String metadata, long enqueuedAt, long sequence) {
+            this(key, value, metadata, 0, enqueuedAt, sequence);
+        }
+
+        PendingWrite(String key, String value, String metadata, long expirationTtl, long enqueuedAt, long sequence) {
+            this.key = key;
+            this.value = value;
+            this.metadata = metadata;
+            this.expirationTtl = expirationTtl;
+            this.enqueuedAt = enqueuedAt;
+            this.sequence = sequence;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return The key metadata as a JSON object, or null if the write has none
+         */
+        public String getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * @return The seconds after which KV deletes the key, or 0 if it does not expire
+         */
+        public long getExpirationTtl() {
+            return expirationTtl;
+        }
+
+        public boolean isDelete() {
+            return value == null;
+        }
+
+        long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+        /**
+         * @return The journal sequence number of the write, or 0 if it is not journaled
+         */
+        long getSequence() {
+            return sequence;
+        }
+    }
+
+    private final Function<List<PendingWrite>, Mono<Void>> sink;
+    private final int maxBatchSize;
+    private final int maxInFlightBatches;
+    private final Semaphore inFlightPermits;
+    private final int maxUnacknowledged;
+    private final long backpressureTimeoutMs;
+    private final KVWriteJournal journal;
+
+    // Guarded by "this"; insertion order keeps the oldest write first
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    // Writes that have been handed to the sink but not yet acknowledged
+    private final Map<String, PendingWrite> inFlight = new ConcurrentHashMap<>();
+    // Guarded by "this"; keys of writes that failed permanently in a batch and are retried alone
+    private final Set<String> isolated = new HashSet<>();
+    // Guarded by "this"; the most recent writes that were given up on, oldest first
+    private final Deque<PendingWrite> deadLetters = new ArrayDeque<>();
+
+    private final Timer flushLatency;
+    private final Counter flushFailures;
+    private final Counter rejectedWrites;
+    private final Counter deadLettered;
+
+    /**
+     * @param sink Sends one batch; the returned Mono completes when the batch is stored
+     * @param maxBatchSize Maximum number of writes per batch
+     * @param maxInFlightBatches Maximum number of batches sent concurrently
+     * @param meterRegistry Registry for the flush latency and failure metrics
+     */
+    public KVWriteBehindBuffer(
+            Function<List<PendingWrite>, Mono<Void>> sink,
+            int maxBatchSize,
+            int maxInFlightBatches,
+            MeterRegistry meterRegistry) {
+        this(sink, maxBatchSize, maxInFlightBatches, Integer.MAX_VALUE, 0, null, meterRegistry);
+    }
+
+    /**
+     * @param sink Sends one batch; the returned Mono completes when the batch is stored
+     * @param maxBatchSize Maximum number of writes per batch
+     * @param maxInFlightBatches Maximum number of batches sent concurrently
+     * @param maxUnacknowledged Maximum number of keys waiting for KV before writers are held back
+     * @param backpressureTimeoutMs Maximum time a writer waits for room
+     * @param journal Journal that makes writes durable, or null to keep them in memory only
+     * @param meterRegistry Registry for the flush latency and failure metrics
+     */
+    public KVWriteBehindBuffer(
+            Function<List<PendingWrite>, Mono<Void>> sink,
+            int maxBatchSize,
+            int maxInFlightBatches,
+            int maxUnacknowledged,
+            long backpressureTimeoutMs,
+            KVWriteJournal journal,
+            MeterRegistry meterRegistry) {
+        if (maxBatchSize < 1 || maxInFlightBatches < 1 || maxUnacknowledged < 1) {
+            throw new IllegalArgumentException("Batch size, in-flight limit and unacknowledged limit must be positive");
+        }
+        this.sink = sink;
+        this.maxBatchSize = maxBatchSize;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.inFlightPermits = new Semaphore(maxInFlightBatches, true);
+        this.maxUnacknowledged = maxUnacknowledged;
+        this.backpressureTimeoutMs = backpressureTimeoutMs;
+        this.journal = journal;
+        this.flushLatency = Timer.builder("kv.write_behind.flush.latency")
+            .description("Time from sending a KV write batch until it is acknowledged")
+            .register(meterRegistry);
+        this.flushFailures = Counter.builder("kv.write_behind.flush.failures")
+            .description("KV write batches that failed and were re-queued")
+            .register(meterRegistry);
+        this.rejectedWrites = Counter.builder("kv.write_behind.rejected")
+            .description("KV writes that failed because the buffer stayed full")
+            .register(meterRegistry);
+        this.deadLettered = Counter.builder("kv.write_behind.dead_lettered")
+            .description("KV writes dropped after an error that retrying cannot fix")
+            .register(meterRegistry);
+        meterRegistry.gauge("kv.write_behind.pending", this, KVWriteBehindBuffer::getPendingCount);
+
+        if (journal != null) {
+            for (PendingWrite write : journal.getRecovered()) {
+                pending.put(write.getKey(), write);
+            }
+            if (!pending.isEmpty()) {
+                System.out.println("Recovered " + pending.size() + " unacknowledged KV writes from the journal");
+            }
+        }
+    }
+
+    /**
+     * Queue a put, replacing any pending write of the same key
+     */
+    public void put(String key, String value) {
+        enqueue(key, value, null, 0);
+    }
+
+    /**
+     * Queue a put with key metadata, replacing any pending write of the same key
+     * @param metadata The metadata as a JSON object
+     */
+    public void put(String key, String value, String metadata) {
+        enqueue(key, value, metadata, 0);
+    }
+
+    /**
+     * Queue a put that expires, replacing any pending write of the same key
+     * @param metadata The metadata as a JSON object, or null
+     * @param expirationTtl The seconds after which KV deletes the key, or 0 if it does not expire
+     */
+    public void put(String key, String value, String metadata, long expirationTtl) {
+        enqueue(key, value, metadata, expirationTtl);
+    }
+
+    /**
+     * Queue a delete, replacing any pending write of the same key
+     */
+    public void delete(String key) {
+        enqueue(key, null, null, 0);
+    }
+
+    /**
+     * Look up a write that has not been acknowledged yet, so reads observe
+     * this node's own writes before they reach KV.
+     * @param key The key to look up
+     * @return The latest unacknowledged write of the key, or empty if none
+     */
+    public Optional<PendingWrite> lookup(String key) {
+        synchronized (this) {
+            PendingWrite write = pending.get(key);
+            if (write != null) {
+                return Optional.of(write);
+            }
+        }
+        return Optional.ofNullable(inFlight.get(key));
+    }
+
+    /**
+     * Look up the writes of keys with a prefix that have not been acknowledged yet
+     * @param prefix The key prefix
+     * @return The latest unacknowledged write of each such key
+     */
+    public List<PendingWrite> lookupPrefix(String prefix) {
+        Map<String, PendingWrite> writes = new LinkedHashMap<>();
+        synchronized (this) {
+            for (PendingWrite write : pending.values()) {
+                if (write.getKey().startsWith(prefix)) {
+                    writes.put(write.getKey(), write);
+                }
+            }
+        }
+        // A pending write of a key is newer than the one in flight
+        for (PendingWrite write : inFlight.values()) {
+            if (write.getKey().startsWith(prefix)) {
+                writes.putIfAbsent(write.getKey(), write);
+            }
+        }
+        return new ArrayList<>(writes.values());
+    }
+
+    /**
+     * Send every pending write. Blocks only while waiting for an in-flight permit.
+     */
+    public void flush() {
+        // Only send what is pending now; failed batches are retried by the next flush
+        int remaining = getPendingCount();
+        while (remaining > 0) {
+            List<PendingWrite> batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            remaining -= batch.size();
+            send(batch);
+        }
+    }
+
+    /**
+     * Send every pending write and wait until all batches are acknowledged
+     * @param timeoutMillis Maximum time to wait
+     * @return true if everything was acknowledged in time
+     */
+    public boolean flushAndWait(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (true) {
+                double failures = flushFailures.count();
+                flush();
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (!inFlightPermits.tryAcquire(maxInFlightBatches, Math.max(remainingMs, 0), TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                inFlightPermits.release(maxInFlightBatches);
+                if (getPendingCount() == 0) {
+                    return true;
+                }
+                // Writes that waited behind an in-flight write of their key are sent next;
+                // failed writes are left to the scheduled flush
+                if (flushFailures.count() > failures || System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return The most recent writes that were dropped after a permanent error, oldest first
+     */
+    public synchronized List<PendingWrite> getDeadLetters() {
+        return Collections.unmodifiableList(new ArrayList<>(deadLetters));
+    }
+
+    /**
+     * Whether a failed batch may succeed if sent again. KV answers a bad
+     * request, such as an oversized value or an invalid key, with a 4xx other
+     * than 408 or 429; every other error is taken to be transient.
+     */
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) error).getStatusCode().value();
+            return !(status >= 400 && status < 500)
+                || status == HttpStatus.REQUEST_TIMEOUT.value()
+                || status == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return true;
+    }
+
+    private void enqueue(String key, String value, String metadata, long expirationTtl) {
+        awaitCapacity(key);
+        long sequence = journal != null ? journal.append(key, value, metadata, expirationTtl) : 0;
+
+        boolean batchFull;
+        synchronized (this) {
+            PendingWrite previous = pending.get(key);
+            // A concurrent write of the key that was journaled later wins
+            if (previous != null && previous.getSequence() > sequence) {
+                return;
+            }
+            // Keep the original enqueue time so merging does not postpone the flush
+            long enqueuedAt = previous != null ? previous.getEnqueuedAt() : System.nanoTime();
+            pending.put(key, new PendingWrite(key, value, metadata, expirationTtl, enqueuedAt, sequence));
+            batchFull = pending.size() >= maxBatchSize;
+        }
+
+        if (batchFull) {
+            List<PendingWrite> batch = drain();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        }
+    }
+
+    /**
+     * Wait until there is room for a write of a key that is not pending yet
+     */
+    private synchronized void awaitCapacity(String key) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backpressureTimeoutMs);
+        while (!pending.containsKey(key) && pending.size() + inFlight.size() >= maxUnacknowledged) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                rejectedWrites.increment();
+                throw new IllegalStateException("KV write buffer is full: " + (pending.size() + inFlight.size())
+                    + " writes are waiting for KV");
+            }
+            try {
+                wait(remainingMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for room in the KV write buffer", e);
+            }
+        }
+    }
+
+    private List<PendingWrite> drain() {
+        List<PendingWrite> batch = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PendingWrite> it = pending.values().iterator();
+            while (it.hasNext() && batch.size() < maxBatchSize) {
+                PendingWrite write = it.next();
+                // Keep a key in order: its next write waits for the one in flight
+                if (inFlight.containsKey(write.getKey())) {
+                    continue;
+                }
+                // A write that failed permanently in a batch goes alone
+                if (isolated.contains(write.getKey())) {
+                    if (!batch.isEmpty()) {
+                        continue;
+                    }
+                    it.remove();
+                    inFlight.put(write.getKey(), write);
+                    batch.add(write);
+                    break;
+                }
+                it.remove();
+                inFlight.put(write.getKey(), write);
+                batch.add(write);
+            }
+        }
+        return batch;
+    }
+
+    private void send(List<PendingWrite> batch) {
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requeue(batch);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Mono<Void> request;
+        try {
+            request = sink.apply(batch);
+        } catch (RuntimeException e) {
+            request = Mono.error(e);
+        }
+        if (journal != null) {
+            // Acknowledging writes and compacts the journal file, which must not happen on a Netty thread
+            request = request.publishOn(Schedulers.boundedElastic());
+        }
+
+        request
+            .doFinally(signal -> inFlightPermits.release())
+            .subscribe(
+                null,
+                error -> {
+                    flushFailures.increment();
+                    System.err.println("Failed to flush " + batch.size() + " KV writes: " + error.getMessage());
+                    if (isRetryable(error)) {
+                        requeue(batch);
+                    } else if (batch.size() > 1) {
+                        isolate(batch);
+                    } else {
+                        deadLetter(batch.get(0), error);
+                    }
+                },
+                () -> {
+                    flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    acknowledge(batch);
+                });
+    }
+
+    private void acknowledge(List<PendingWrite> batch) {
+        if (journal != null) {
+            try {
+                journal.acknowledge(batch);
+            } catch (RuntimeException e) {
+                // The writes are stored; at worst they are sent again after a restart
+                System.err.println("Failed to journal acknowledgement of " + batch.size() + " KV writes: " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            for (PendingWrite write : batch) {
+                inFlight.remove(write.getKey(), write);
+                isolated.remove(write.getKey());
+            }
+            notifyAll();
+        }
+    }
+
+    private void requeue(List<PendingWrite> batch) {
+        synchronized (this) {
+            for (PendingWrite write : batch) {
+                if (inFlight.get(write.getKey()) != write) {
+                    continue;
+                }
+                inFlight.remove(write.getKey());
+                // A newer write of the key waits behind the failed one and supersedes it
+                pending.putIfAbsent(write.getKey(), write);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Queue the writes of a batch that failed permanently again, to be sent
+     * one per batch so only the writes at fault are dead-lettered
+     */
+    private void isolate(List<PendingWrite> batch) {
+        synchronized (this) {
+            for (PendingWrite write : batch) {
+                isolated.add(write.getKey());
+            }
+        }
+        requeue(batch);
+    }
+
+    private void deadLetter(PendingWrite write, Throwable error) {
+        System.err.println("Dropping KV write of " + write.getKey() + " that cannot succeed: " + error.getMessage());
+        deadLettered.increment();
+        if (journal != null) {
+            try {
+                journal.acknowledge(Collections.singletonList(write));
+            } catch (RuntimeException e) {
+                System.err.println("Failed to journal dropped KV write of " + write.getKey() + ": " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            if (inFlight.remove(write.getKey(), write)) {
+                // A newer write of the key may still succeed; it is not isolated
+                isolated.remove(write.getKey());
+            }
+            deadLetters.addLast(write);
+            if (deadLetters.size() > MAX_DEAD_LETTERS) {
+                deadLetters.removeFirst();
+            }
+            notifyAll();
+        }
+    }
+}
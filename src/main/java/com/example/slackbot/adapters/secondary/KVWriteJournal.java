@@ -0,0 +1,417 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.adapters.secondary.KVWriteBehindBuffer.PendingWrite;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of KV writes that have not been acknowledged by KV yet.
+ *
+ * A write is appended and forced to disk before {@link #append} returns.
+ * Forces are shared: while one caller forces the file, the writes appended
+ * by others queue up and are covered by the next force, so a burst of
+ * writes costs a few syncs rather than one each. Acknowledgements are
+ * appended without waiting for a sync; losing one only means the write is
+ * sent again after a restart.
+ *
+ * On open, the latest unacknowledged write of every key is recovered and
+ * the file is rewritten with just those. The file is rewritten the same way
+ * whenever it grows past {@code compactThresholdBytes}.
+ *
+ * Record layout: {@code [length][crc32][type][sequence][key][value]}, with
+ * the key written as modified UTF-8 and the value as length-prefixed UTF-8
+ * bytes. Puts with key metadata are followed by {@code [metadata]}, written
+ * like the value, and expiring puts by {@code [metadata][expirationTtl]}. Replay stops at the first torn or corrupt record.
+ */
+public class KVWriteJournal implements Closeable {
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_ACK = 3;
+    private static final byte TYPE_PUT_WITH_METADATA = 4;
+    private static final byte TYPE_PUT_EXPIRING = 5;
+
+    private final Path path;
+    private final long compactThresholdBytes;
+    private final Timer syncLatency;
+
+    // Guarded by "this"
+    private FileChannel channel;
+    private long lastSequence;
+    private long compactAt;
+    // Latest unacknowledged write of each key
+    private final Map<String, PendingWrite> unacknowledged = new LinkedHashMap<>();
+    private final List<PendingWrite> recovered;
+
+    // Guarded by syncLock; acquired before "this" when both are needed
+    private final Object syncLock = new Object();
+    private long syncedSequence;
+    private boolean syncing;
+
+    /**
+     * @param path The journal file; created if missing
+     * @param compactThresholdBytes File size above which the journal is rewritten
+     * @param meterRegistry Registry for the sync latency and backlog metrics
+     */
+    public KVWriteJournal(Path path, long compactThresholdBytes, MeterRegistry meterRegistry) {
+        this.path = path;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.syncLatency = Timer.builder("kv.journal.sync")
+            .description("Time to force KV journal appends to disk")
+            .register(meterRegistry);
+
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            replay();
+            this.recovered = new ArrayList<>(unacknowledged.values());
+            rewrite();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open KV write journal " + path, e);
+        }
+        meterRegistry.gauge("kv.journal.unacknowledged", this, KVWriteJournal::getUnacknowledgedCount);
+    }
+
+    /**
+     * @return The writes that were not acknowledged when the journal was last closed, oldest first
+     */
+    public List<PendingWrite> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Record a put or, with a {@code null} value, a delete, and wait until it is on disk
+     * @return The sequence number of the write
+     */
+    public long append(String key, String value) {
+        return append(key, value, null);
+    }
+
+    /**
+     * Record a put with key metadata and wait until it is on disk
+     * @param metadata The metadata as a JSON object, or null if the put has none
+     * @return The sequence number of the write
+     */
+    public long append(String key, String value, String metadata) {
+        return append(key, value, metadata, 0);
+    }
+
+    /**
+     * Record a put that expires and wait until it is on disk
+     * @param metadata The metadata as a JSON object, or null if the put has none
+     * @param expirationTtl The seconds after which KV deletes the key, or 0 if it does not expire
+     * @return The sequence number of the write
+     */
+    public long append(String key, String value, String metadata, long expirationTtl) {
+        long sequence;
+        synchronized (this) {
+            sequence = ++lastSequence;
+            PendingWrite write = new PendingWrite(key, value, metadata, expirationTtl, System.nanoTime(), sequence);
+            write(channel, write);
+            unacknowledged.put(key, write);
+        }
+        awaitSync(sequence);
+        return sequence;
+    }
+
+    /**
+     * Record that writes were stored by KV
+     */
+    public void acknowledge(Collection<PendingWrite> writes) {
+        boolean compact;
+        synchronized (this) {
+            for (PendingWrite write : writes) {
+                if (write.getSequence() == 0) {
+                    continue;
+                }
+                writeRecord(channel, TYPE_ACK, write.getSequence(), "", null, null, 0);
+                PendingWrite latest = unacknowledged.get(write.getKey());
+                if (latest != null && latest.getSequence() == write.getSequence()) {
+                    unacknowledged.remove(write.getKey());
+                }
+            }
+            compact = size() > compactAt;
+        }
+        if (compact) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the unacknowledged writes
+     */
+    public void compact() {
+        synchronized (syncLock) {
+            awaitNoSync();
+            synchronized (this) {
+                try {
+                    rewrite();
+                } catch (IOException e) {
+                    System.err.println("Failed to compact KV write journal " + path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public synchronized int getUnacknowledgedCount() {
+        return unacknowledged.size();
+    }
+
+    synchronized long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read KV write journal size", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            awaitNoSync();
+            synchronized (this) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close KV write journal " + path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until a sequence number is on disk. The first caller to find no
+     * force running starts one covering everything appended so far; the
+     * others wait for it and start the next one if it did not cover them.
+     */
+    private void awaitSync(long sequence) {
+        while (true) {
+            synchronized (syncLock) {
+                while (syncing && syncedSequence < sequence) {
+                    waitForSync();
+                }
+                if (syncedSequence >= sequence) {
+                    return;
+                }
+                syncing = true;
+            }
+
+            long target;
+            FileChannel syncChannel;
+            synchronized (this) {
+                target = lastSequence;
+                syncChannel = channel;
+            }
+            boolean synced = false;
+            try {
+                long start = System.nanoTime();
+                syncChannel.force(false);
+                syncLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                synced = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync KV write journal " + path, e);
+            } finally {
+                synchronized (syncLock) {
+                    if (synced) {
+                        syncedSequence = Math.max(syncedSequence, target);
+                    }
+                    syncing = false;
+                    syncLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void awaitNoSync() {
+        while (syncing) {
+            waitForSync();
+        }
+    }
+
+    private void waitForSync() {
+        try {
+            syncLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the KV write journal", e);
+        }
+    }
+
+    private void write(FileChannel target, PendingWrite write) {
+        byte type;
+        if (write.isDelete()) {
+            type = TYPE_DELETE;
+        } else if (write.getExpirationTtl() > 0) {
+            type = TYPE_PUT_EXPIRING;
+        } else {
+            type = write.getMetadata() != null ? TYPE_PUT_WITH_METADATA : TYPE_PUT;
+        }
+        writeRecord(target, type, write.getSequence(), write.getKey(), write.getValue(),
+            write.getMetadata(), write.getExpirationTtl());
+    }
+
+    private void writeRecord(FileChannel target, byte type, long sequence, String key, String value,
+            String metadata, long expirationTtl) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(type);
+            out.writeLong(sequence);
+            out.writeUTF(key);
+            writeString(out, value);
+            if (type == TYPE_PUT_WITH_METADATA || type == TYPE_PUT_EXPIRING) {
+                writeString(out, metadata);
+            }
+            if (type == TYPE_PUT_EXPIRING) {
+                out.writeLong(expirationTtl);
+            }
+            out.flush();
+
+            byte[] bytes = body.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            ByteBuffer record = ByteBuffer.allocate(8 + bytes.length);
+            record.putInt(bytes.length);
+            record.putInt((int) crc.getValue());
+            record.put(bytes);
+            record.flip();
+            while (record.hasRemaining()) {
+                target.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to KV write journal " + path, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the journal into {@code unacknowledged}, stopping at the first torn or corrupt record
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        Map<String, PendingWrite> latest = new LinkedHashMap<>();
+        Set<Long> acknowledged = new HashSet<>();
+        int position = 0;
+        try {
+            while (position < bytes.length) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length <= 0 || length > bytes.length - position - 8) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                CRC32 actual = new CRC32();
+                actual.update(body);
+                if ((int) actual.getValue() != crc) {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                byte type = record.readByte();
+                long sequence = record.readLong();
+                String key = record.readUTF();
+                String value = readString(record);
+                String metadata = type == TYPE_PUT_WITH_METADATA || type == TYPE_PUT_EXPIRING ? readString(record) : null;
+                long expirationTtl = type == TYPE_PUT_EXPIRING ? record.readLong() : 0;
+
+                lastSequence = Math.max(lastSequence, sequence);
+                if (type == TYPE_ACK) {
+                    acknowledged.add(sequence);
+                } else {
+                    // Re-insert so the map stays ordered by the latest write of each key
+                    latest.remove(key);
+                    latest.put(key, new PendingWrite(key, value, metadata, expirationTtl, System.nanoTime(), sequence));
+                }
+                position += 8 + length;
+            }
+        } catch (EOFException e) {
+            // Torn record at the end
+        }
+        if (position < bytes.length) {
+            System.err.println("Ignoring torn or corrupt record in " + path + " at offset " + position);
+        }
+
+        for (PendingWrite write : latest.values()) {
+            if (!acknowledged.contains(write.getSequence())) {
+                unacknowledged.put(write.getKey(), write);
+            }
+        }
+    }
+
+    /**
+     * Replace the file with one holding only the unacknowledged writes
+     */
+    private void rewrite() throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (PendingWrite write : unacknowledged.values()) {
+                    write(compacted, write);
+                }
+                compacted.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        compactAt = Math.max(compactThresholdBytes, 2 * channel.size());
+        synchronized (syncLock) {
+            // Everything still in the journal was just forced with the rewrite
+            syncedSequence = lastSequence;
+        }
+    }
+}
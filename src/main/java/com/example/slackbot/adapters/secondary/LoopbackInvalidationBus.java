@@ -0,0 +1,25 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.application.CacheInvalidationBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Invalidation bus for a single node. There are no other nodes to tell, and
+ * a node's own changes are not delivered back to it, so published keys are
+ * dropped and subscribers are never called.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationBus implements CacheInvalidationBus {
+
+    @Override
+    public void publish(Collection<String> keys) {
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+    }
+}
@@ -47,7 +47,7 @@ public class OutlookCalendarAdapter {
      * Get access token from Microsoft Graph API
      * @return Access token
      */
-    private String getAccessToken() {
+    private Mono<String> getAccessToken() {
         // In a real implementation, you would use MSAL or similar library
         // This is a simplified example
         WebClient authClient = WebClient.builder()
@@ -73,8 +73,7 @@ public class OutlookCalendarAdapter {
                     // In a real implementation, parse the JSON response
                     // and extract the access token
                     return "dummy_token";
-                })
-                .block();
+                });
     }
     
     /**
@@ -85,8 +84,17 @@ public class OutlookCalendarAdapter {
      * @return List of calendar events
      */
     public List<CalendarEvent> getUserEvents(String userEmail, LocalDateTime start, LocalDateTime end) {
-        String accessToken = getAccessToken();
-        
+        return getUserEventsAsync(userEmail, start, end).block();
+    }
+
+    /**
+     * Get calendar events for a user within a specific time range without blocking
+     * @param userEmail The email of the user
+     * @param start The start time
+     * @param end The end time
+     * @return List of calendar events
+     */
+    public Mono<List<CalendarEvent>> getUserEventsAsync(String userEmail, LocalDateTime start, LocalDateTime end) {
         // Convert LocalDateTime to ZonedDateTime with the configured timezone
         ZonedDateTime zonedStart = start.atZone(ZoneId.systemDefault()).withZoneSameInstant(timezone);
         ZonedDateTime zonedEnd = end.atZone(ZoneId.systemDefault()).withZoneSameInstant(timezone);
@@ -96,18 +104,21 @@ public class OutlookCalendarAdapter {
         String endFormatted = zonedEnd.format(dateTimeFormatter);
         
         // Example API call to Microsoft Graph
-        String response = webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/users/{email}/calendarView")
-                        .queryParam("startDateTime", startFormatted)
-                        .queryParam("endDateTime", endFormatted)
-                        .queryParam("$select", "subject,start,end,isAllDay,organizer,location,showAs,onlineMeeting")
-                        .build(userEmail))
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-        
+        return getAccessToken()
+                .flatMap(accessToken -> webClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/users/{email}/calendarView")
+                                .queryParam("startDateTime", startFormatted)
+                                .queryParam("endDateTime", endFormatted)
+                                .queryParam("$select", "subject,start,end,isAllDay,organizer,location,showAs,onlineMeeting")
+                                .build(userEmail))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .map(this::parseEvents);
+    }
+
+    private List<CalendarEvent> parseEvents(String response) {
         // In a real implementation, parse the JSON response and convert to CalendarEvent objects
         // This is a simplified example
         List<CalendarEvent> events = new ArrayList<>();
@@ -136,18 +147,24 @@ public class OutlookCalendarAdapter {
      * @return The availability status
      */
     public String getUserAvailabilityStatus(String userEmail) {
-        String accessToken = getAccessToken();
-        
+        return getUserAvailabilityStatusAsync(userEmail).block();
+    }
+
+    /**
+     * Get the current availability status of a user without blocking
+     * @param userEmail The email of the user
+     * @return The availability status
+     */
+    public Mono<String> getUserAvailabilityStatusAsync(String userEmail) {
         // Example API call to Microsoft Graph for presence
-        String response = webClient.get()
-                .uri("/users/{email}/presence", userEmail)
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-        
-        // In a real implementation, parse the JSON response and extract the availability status
-        // This is a simplified example
-        return "Available";
+        return getAccessToken()
+                .flatMap(accessToken -> webClient.get()
+                        .uri("/users/{email}/presence", userEmail)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .retrieve()
+                        .bodyToMono(String.class))
+                // In a real implementation, parse the JSON response and extract the availability status
+                // This is a simplified example
+                .map(response -> "Available");
     }
 } 
\ No newline at end of file
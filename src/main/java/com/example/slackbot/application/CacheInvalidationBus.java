@@ -0,0 +1,42 @@
+package com.example.slackbot.application;
+
+import java.util.Collection;
+
+/**
+ * Carries key-level change events between the nodes of a deployment, so
+ * each node can drop what it has cached for keys written elsewhere. The
+ * transport is selected with the {@code cache.invalidation.transport}
+ * property.
+ *
+ * A node's own changes are never delivered back to it: the writing node
+ * updates its caches as it writes, so subscribers only see changes made by
+ * other nodes. Publish only keys some cache holds.
+ */
+public interface CacheInvalidationBus {
+    /**
+     * Receives the keys changed by other nodes, never those this node published
+     */
+    interface Subscriber {
+        /**
+         * @param keys The KV keys that were written or deleted
+         */
+        void invalidate(Collection<String> keys);
+
+        /**
+         * Changes were missed, e.g. after a transport gap; drop everything cached
+         */
+        void invalidateAll();
+    }
+
+    /**
+     * Announce that keys were written or deleted by this node. The keys are
+     * delivered to the subscribers of the other nodes only.
+     * @param keys The KV keys
+     */
+    void publish(Collection<String> keys);
+
+    /**
+     * Register a subscriber for the rest of the process lifetime
+     */
+    void subscribe(Subscriber subscriber);
+}
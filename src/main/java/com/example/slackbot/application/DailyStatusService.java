@@ -2,6 +2,7 @@ package com.example.slackbot.application;
 
 import com.example.slackbot.domain.DailyStatus;
 import java.util.List;
+import java.util.Optional;
 
 public interface DailyStatusService {
     /**
@@ -25,6 +26,14 @@ public interface DailyStatusService {
      */
     List<DailyStatus> getTeamDailyStatuses(String date, String teamId);
     
+    /**
+     * Get the daily status of a user on a specific date
+     * @param date The date in format YYYY-MM-DD
+     * @param userId The ID of the user
+     * @return The status, or empty if the user has not submitted one
+     */
+    Optional<DailyStatus> getUserDailyStatus(String date, String userId);
+    
     /**
      * Check if a user has permission to view another user's status
      * @param viewerId The ID of the user trying to view the status
@@ -39,4 +48,12 @@ public interface DailyStatusService {
      * @param teamId The ID of the team
      */
     void associateStatusWithTeam(String statusId, String teamId);
+    
+    /**
+     * Add a submitted status to the team's index for its date, so the team's
+     * statuses can be read without scanning every status of the date
+     * @param status The submitted status
+     * @param teamId The ID of the team
+     */
+    void associateStatusWithTeam(DailyStatus status, String teamId);
 } 
\ No newline at end of file
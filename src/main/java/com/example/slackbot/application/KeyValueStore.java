@@ -0,0 +1,161 @@
+package com.example.slackbot.application;
+
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusSummary;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage port used by the application services. Implemented by the
+ * Cloudflare KV adapter and by an embedded local store; the backend is
+ * selected with the {@code kv.backend} property.
+ */
+public interface KeyValueStore {
+    /**
+     * Get a value
+     * @param key The key to retrieve
+     * @return The value associated with the key, or null if not found
+     */
+    String get(String key);
+
+    /**
+     * Get several values at once
+     * @param keys The keys to retrieve
+     * @return The values by key; keys that were not found are absent
+     */
+    Map<String, String> getMany(Collection<String> keys);
+
+    /**
+     * Get a value without blocking the caller
+     * @param key The key to retrieve
+     * @return The value, or empty if not found
+     */
+    Mono<String> getAsync(String key);
+
+    /**
+     * Get several values at once without blocking the caller
+     * @param keys The keys to retrieve
+     * @return The values by key; keys that were not found are absent
+     */
+    Mono<Map<String, String>> getManyAsync(Collection<String> keys);
+
+    /**
+     * Put a value
+     * @param key The key to store
+     * @param value The value to store
+     */
+    void put(String key, String value);
+
+    /**
+     * Put a value that the store deletes once its time to live has passed
+     * @param key The key to store
+     * @param value The value to store
+     * @param ttl The time to live, counted from this write
+     */
+    void put(String key, String value, Duration ttl);
+
+    /**
+     * Delete a value
+     * @param key The key to delete
+     */
+    void delete(String key);
+
+    /**
+     * Drop any copy of keys this node has cached, e.g. because another node wrote them
+     * @param keys The keys to drop
+     */
+    void evictCached(Collection<String> keys);
+
+    /**
+     * Drop every value this node has cached
+     */
+    void evictAllCached();
+
+    /**
+     * Store a daily status
+     * @param status The status to store
+     */
+    void storeDailyStatus(DailyStatus status);
+
+    /**
+     * Store a daily status that the store deletes once its time to live has passed
+     * @param status The status to store
+     * @param ttl The time to live, counted from this write
+     */
+    void storeDailyStatus(DailyStatus status, Duration ttl);
+
+    /**
+     * Retrieve the daily statuses of a date
+     * @param date The date in format YYYY-MM-DD
+     * @return List of daily statuses
+     */
+    List<DailyStatus> retrieveDailyStatuses(String date);
+
+    /**
+     * Retrieve the daily statuses of specific users on a date
+     * @param date The date in format YYYY-MM-DD
+     * @param userIds The IDs of the users
+     * @return The statuses that exist; users without a status are skipped
+     */
+    List<DailyStatus> retrieveDailyStatuses(String date, Collection<String> userIds);
+
+    /**
+     * Retrieve the daily statuses of specific users on a date without blocking the caller
+     * @param date The date in format YYYY-MM-DD
+     * @param userIds The IDs of the users
+     * @return The statuses that exist; users without a status are skipped
+     */
+    Mono<List<DailyStatus>> retrieveDailyStatusesAsync(String date, Collection<String> userIds);
+
+    /**
+     * Retrieve the status summaries of specific users on a date, reading as
+     * few full statuses as the backend allows
+     * @param date The date in format YYYY-MM-DD
+     * @param userIds The IDs of the users
+     * @return The summaries in the order of {@code userIds}; users without a status are skipped
+     */
+    Mono<List<StatusSummary>> retrieveStatusSummariesAsync(String date, Collection<String> userIds);
+
+    /**
+     * Store a status summary on its own key, such as a team digest entry
+     * @param key The key to store the summary under
+     * @param summary The summary to store
+     */
+    void putStatusSummary(String key, StatusSummary summary);
+
+    /**
+     * Store a status summary that the store deletes once its time to live has passed
+     * @param key The key to store the summary under
+     * @param summary The summary to store
+     * @param ttl The time to live, counted from this write
+     */
+    void putStatusSummary(String key, StatusSummary summary, Duration ttl);
+
+    /**
+     * List the status summaries stored with {@link #putStatusSummary} under a
+     * prefix, reading as few values as the backend allows
+     * @param prefix The key prefix
+     * @return The summaries in key order
+     */
+    Mono<List<StatusSummary>> listStatusSummariesAsync(String prefix);
+
+    /**
+     * Stream the daily statuses of a date without holding them all in memory.
+     * Subscribers may cancel early, e.g. once every status they need has arrived.
+     * @param date The date in format YYYY-MM-DD
+     * @return The daily statuses, in no particular order
+     */
+    Flux<DailyStatus> streamDailyStatuses(String date);
+
+    /**
+     * List keys with a prefix
+     * @param prefix The key prefix; an empty prefix lists every key
+     * @return The key names
+     */
+    Flux<String> listKeys(String prefix);
+}
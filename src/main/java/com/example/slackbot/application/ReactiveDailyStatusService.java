@@ -0,0 +1,64 @@
+package com.example.slackbot.application;
+
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusSummary;
+import com.example.slackbot.domain.TeamDigest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking reads of daily statuses, for request handlers that compose
+ * several lookups. Writes go through {@link DailyStatusService}.
+ */
+public interface ReactiveDailyStatusService {
+    /**
+     * Get all daily statuses for a specific date across all teams
+     * @param date The date in format YYYY-MM-DD
+     * @return The daily statuses, in no particular order
+     */
+    Flux<DailyStatus> getDailyStatuses(String date);
+    
+    /**
+     * Get daily statuses for a specific date and team
+     * @param date The date in format YYYY-MM-DD
+     * @param teamId The ID of the team
+     * @return List of daily statuses for the team
+     */
+    Mono<List<DailyStatus>> getTeamDailyStatuses(String date, String teamId);
+    
+    /**
+     * Get the status summaries of a team on a specific date, without reading
+     * the full statuses where the store can avoid it
+     * @param date The date in format YYYY-MM-DD
+     * @param teamId The ID of the team
+     * @return List of status summaries for the team
+     */
+    Mono<List<StatusSummary>> getTeamStatusSummaries(String date, String teamId);
+    
+    /**
+     * Get the digest of a team's statuses on a specific date, merged over
+     * every team below it
+     * @param date The date in format YYYY-MM-DD
+     * @param teamId The ID of the team
+     * @return The digest; empty of summaries if nobody has submitted a status
+     */
+    Mono<TeamDigest> getTeamDigest(String date, String teamId);
+    
+    /**
+     * Get the daily status of a user on a specific date
+     * @param date The date in format YYYY-MM-DD
+     * @param userId The ID of the user
+     * @return The status, or empty if the user has not submitted one
+     */
+    Mono<DailyStatus> getUserDailyStatus(String date, String userId);
+    
+    /**
+     * Check if a user has permission to view another user's status
+     * @param viewerId The ID of the user trying to view the status
+     * @param targetUserId The ID of the user whose status is being viewed
+     * @return true if the viewer has permission, false otherwise
+     */
+    Mono<Boolean> hasViewPermission(String viewerId, String targetUserId);
+}
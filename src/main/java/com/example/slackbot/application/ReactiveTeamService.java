@@ -0,0 +1,73 @@
+package com.example.slackbot.application;
+
+import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamSnapshot;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Non-blocking reads of teams, for request handlers that compose several
+ * lookups. Writes go through {@link TeamService}.
+ */
+public interface ReactiveTeamService {
+    /**
+     * Get a team by its ID
+     * @param teamId The ID of the team
+     * @return The team, or empty if not found
+     */
+    Mono<Team> getTeamById(String teamId);
+    
+    /**
+     * Get all teams
+     * @return All teams
+     */
+    Flux<Team> getAllTeams();
+    
+    /**
+     * Get where a team sits among nested teams, from the membership index
+     * @param teamId The ID of the team
+     * @return The team's ancestors, descendants and flattened members, or empty if the team does not exist
+     */
+    Mono<TeamHierarchy> getTeamHierarchy(String teamId);
+    
+    /**
+     * Get all teams that a user is a member or manager of
+     * @param userId The ID of the user
+     * @return The user's teams
+     */
+    Flux<Team> getTeamsByUserId(String userId);
+    
+    /**
+     * Get shared, immutable snapshots of a user's teams from the membership
+     * index, without reading KV
+     * @param userId The ID of the user
+     * @return Snapshots of the user's teams
+     */
+    Flux<TeamSnapshot> getTeamSnapshotsByUserId(String userId);
+    
+    /**
+     * Get everyone a user can see: the members and managers of every team the
+     * user belongs to, including the user
+     * @param viewerId The ID of the viewing user
+     * @return The IDs of the visible users, as a set that cannot be modified
+     */
+    Mono<Set<String>> getVisibleUserIds(String viewerId);
+    
+    /**
+     * Check if a user is a member or manager of a team
+     * @param teamId The ID of the team
+     * @param userId The ID of the user
+     * @return true if the user is in the team, false otherwise
+     */
+    Mono<Boolean> isUserInTeam(String teamId, String userId);
+    
+    /**
+     * Get the members of a team
+     * @param teamId The ID of the team
+     * @return The member IDs; empty if the team does not exist
+     */
+    Mono<Set<String>> getTeamMembers(String teamId);
+}
@@ -0,0 +1,26 @@
+package com.example.slackbot.application;
+
+import com.example.slackbot.domain.StatusSummary;
+
+import java.util.List;
+
+/**
+ * Retention of daily statuses: statuses older than the retention window are
+ * rolled up per team into weekly or monthly records and then expire.
+ */
+public interface StatusRollupService {
+    /**
+     * Roll up the dates that have left the retention window since the last run
+     * and set an expiration on their daily statuses
+     * @return The number of dates rolled up
+     */
+    int rollUpStatuses();
+
+    /**
+     * Get the rolled up status summaries of a team on a date
+     * @param teamId The ID of the team
+     * @param date The date in format YYYY-MM-DD
+     * @return The summaries, or an empty list if the date has not been rolled up
+     */
+    List<StatusSummary> getTeamStatusHistory(String teamId, String date);
+}
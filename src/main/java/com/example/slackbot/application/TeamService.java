@@ -1,8 +1,15 @@
 package com.example.slackbot.application;
 
+import com.example.slackbot.domain.MembershipResult;
 import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamPage;
+import com.example.slackbot.domain.TeamSnapshot;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 
@@ -11,6 +18,8 @@ public interface TeamService {
      * Create a new team
      * @param team The team to create
      * @return The created team with ID assigned
+     * @throws IllegalArgumentException if the parent team would create a cycle
+     * @throws NoSuchElementException if the parent team does not exist
      */
     Team createTeam(Team team);
     
@@ -18,11 +27,13 @@ public interface TeamService {
      * Update an existing team
      * @param team The team to update
      * @return The updated team
+     * @throws IllegalArgumentException if the parent team would create a cycle
+     * @throws NoSuchElementException if the team or its parent team does not exist
      */
     Team updateTeam(Team team);
     
     /**
-     * Delete a team
+     * Delete a team. Its sub-teams move up to its parent.
      * @param teamId The ID of the team to delete
      */
     void deleteTeam(String teamId);
@@ -34,12 +45,38 @@ public interface TeamService {
      */
     Optional<Team> getTeamById(String teamId);
     
+    /**
+     * Get where a team sits among nested teams, from the membership index
+     * @param teamId The ID of the team
+     * @return The team's ancestors, descendants and flattened members, if the team exists
+     */
+    Optional<TeamHierarchy> getTeamHierarchy(String teamId);
+    
     /**
      * Get all teams
      * @return List of all teams
      */
     List<Team> getAllTeams();
     
+    /**
+     * Get one page of all teams, in team ID order, reading only the teams on
+     * the page
+     * @param cursor The cursor of the previous page, or null for the first page
+     * @param limit The maximum number of teams on the page
+     * @return The page and the cursor of the next one
+     */
+    TeamPage listTeams(String cursor, int limit);
+    
+    /**
+     * Get one page of the teams a user belongs to, in team ID order, from the
+     * membership index
+     * @param userId The ID of the user
+     * @param cursor The cursor of the previous page, or null for the first page
+     * @param limit The maximum number of teams on the page
+     * @return The page and the cursor of the next one
+     */
+    TeamPage listTeamsByUserId(String userId, String cursor, int limit);
+    
     /**
      * Get teams that a user belongs to
      * @param userId The ID of the user
@@ -47,6 +84,24 @@ public interface TeamService {
      */
     List<Team> getTeamsByUserId(String userId);
     
+    /**
+     * Get shared, immutable snapshots of the teams a user belongs to, without
+     * reading KV. Changes made on other nodes show up once the cache
+     * invalidation bus delivers them.
+     * @param userId The ID of the user
+     * @return Snapshots of the teams the user belongs to
+     */
+    List<TeamSnapshot> getTeamSnapshotsByUserId(String userId);
+    
+    /**
+     * Get everyone a user can see: the members and managers of every team the
+     * user belongs to, including the user, from a cache kept up to date with
+     * membership changes
+     * @param viewerId The ID of the viewing user
+     * @return The IDs of the visible users, as a set that cannot be modified
+     */
+    Set<String> getVisibleUserIds(String viewerId);
+    
     /**
      * Check if a user is in a team
      * @param teamId The ID of the team
@@ -69,6 +124,36 @@ public interface TeamService {
      */
     void removeUserFromTeam(String teamId, String userId);
     
+    /**
+     * Add several users to a team with one read and one write of the team
+     * @param teamId The ID of the team
+     * @param userIds The IDs of the users to add
+     * @return The result for each user, in the order given
+     * @throws NoSuchElementException if the team does not exist
+     */
+    Map<String, MembershipResult> addUsersToTeam(String teamId, Collection<String> userIds);
+    
+    /**
+     * Remove several users from a team with one read and one write of the
+     * team. Managers removed lose their manager role; the last manager is
+     * never removed.
+     * @param teamId The ID of the team
+     * @param userIds The IDs of the users to remove
+     * @return The result for each user, in the order given
+     * @throws NoSuchElementException if the team does not exist
+     */
+    Map<String, MembershipResult> removeUsersFromTeam(String teamId, Collection<String> userIds);
+    
+    /**
+     * Make the given users the team's members with one read and one write of
+     * the team. Managers not listed stay on the team.
+     * @param teamId The ID of the team
+     * @param userIds The IDs of the users who should be members
+     * @return The result for each user listed, then for each member removed or kept
+     * @throws NoSuchElementException if the team does not exist
+     */
+    Map<String, MembershipResult> replaceTeamMembers(String teamId, Collection<String> userIds);
+    
     /**
      * Get team members
      * @param teamId The ID of the team
@@ -0,0 +1,25 @@
+package com.example.slackbot.application;
+
+import java.io.IOException;
+
+/**
+ * Encoding of the values stored in the key-value store. Implementations must
+ * keep reading every format they have ever written, so values written before
+ * a format change stay readable.
+ */
+public interface ValueCodec {
+    /**
+     * Encode a value for storage
+     * @param value The value to encode
+     * @return The stored representation
+     */
+    String encode(Object value) throws IOException;
+
+    /**
+     * Decode a stored value
+     * @param stored The stored representation, in any supported format
+     * @param type The type to decode into
+     * @return The decoded value, or null if nothing is stored
+     */
+    <T> T decode(String stored, Class<T> type) throws IOException;
+}
@@ -1,61 +1,106 @@
 package com.example.slackbot.application.impl;
 
-import com.example.slackbot.adapters.secondary.CloudflareKVAdapter;
+import com.example.slackbot.adapters.secondary.LoopbackInvalidationBus;
+import com.example.slackbot.application.CacheInvalidationBus;
 import com.example.slackbot.application.DailyStatusService;
+import com.example.slackbot.application.KeyValueStore;
 import com.example.slackbot.application.TeamService;
+import com.example.slackbot.application.ValueCodec;
 import com.example.slackbot.domain.DailyStatus;
-import com.example.slackbot.domain.Team;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.slackbot.domain.StatusKeys;
+import com.example.slackbot.domain.StatusSummary;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.example.slackbot.application.impl.KVRecords.STATUS_TEAM_PREFIX;
+
 @Service
 public class DailyStatusServiceImpl implements DailyStatusService {
-    private static final String STATUS_TEAM_PREFIX = "status_team:";
+    private static final int INDEX_LOCK_STRIPES = 64;
     
-    private final CloudflareKVAdapter cloudflareKVAdapter;
+    private final KeyValueStore kvStore;
     private final TeamService teamService;
-    private final ObjectMapper objectMapper;
+    private final KVRecords records;
+    private final CacheInvalidationBus invalidationBus;
+    // Serializes read-modify-write of index keys on this node
+    private final Object[] indexLocks = new Object[INDEX_LOCK_STRIPES];
 
-    @Autowired
     public DailyStatusServiceImpl(
-            CloudflareKVAdapter cloudflareKVAdapter,
+            KeyValueStore kvStore,
             TeamService teamService,
             ObjectMapper objectMapper) {
-        this.cloudflareKVAdapter = cloudflareKVAdapter;
+        this(kvStore, teamService, new VersionedValueCodec(objectMapper), new LoopbackInvalidationBus());
+    }
+
+    @Autowired
+    public DailyStatusServiceImpl(
+            KeyValueStore kvStore,
+            TeamService teamService,
+            ValueCodec codec,
+            CacheInvalidationBus invalidationBus) {
+        this.kvStore = kvStore;
         this.teamService = teamService;
-        this.objectMapper = objectMapper;
+        this.records = new KVRecords(codec);
+        this.invalidationBus = invalidationBus;
+        for (int i = 0; i < INDEX_LOCK_STRIPES; i++) {
+            indexLocks[i] = new Object();
+        }
+        invalidationBus.subscribe(new StatusIndexInvalidations());
+    }
+
+    /**
+     * Record the first date whose statuses all have team digests, unless a
+     * node did so before. Statuses of today may have been submitted before
+     * this node started writing digests, so digests are complete from
+     * tomorrow on.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recordDigestStart() {
+        try {
+            if (kvStore.get(StatusKeys.DIGESTS_SINCE_KEY) == null) {
+                kvStore.put(StatusKeys.DIGESTS_SINCE_KEY, LocalDate.now().plusDays(1).toString());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to record the first date with team digests: " + e.getMessage());
+        }
     }
 
     @Override
     public void addDailyStatus(DailyStatus status) {
-        cloudflareKVAdapter.storeDailyStatus(status);
+        kvStore.storeDailyStatus(status);
     }
 
     @Override
     public List<DailyStatus> getDailyStatuses(String date) {
-        return cloudflareKVAdapter.retrieveDailyStatuses(date);
+        return kvStore.retrieveDailyStatuses(date);
     }
     
     @Override
     public List<DailyStatus> getTeamDailyStatuses(String date, String teamId) {
-        // Get all statuses for the date
-        List<DailyStatus> allStatuses = getDailyStatuses(date);
-        
-        // Get team members
-        Set<String> teamMembers = teamService.getTeamMembers(teamId);
+        // Read only the statuses listed in the team's index for the date
+        List<String> userIds = readIdList(StatusKeys.teamIndexKey(teamId, date));
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
         
-        // Filter statuses to only include team members
-        return allStatuses.stream()
-                .filter(status -> teamMembers.contains(status.getDeveloperId()))
-                .collect(Collectors.toList());
+        return kvStore.retrieveDailyStatuses(date, userIds);
+    }
+    
+    @Override
+    public Optional<DailyStatus> getUserDailyStatus(String date, String userId) {
+        return kvStore.retrieveDailyStatuses(date, Collections.singletonList(userId)).stream().findFirst();
     }
     
     @Override
@@ -65,40 +110,75 @@ public class DailyStatusServiceImpl implements DailyStatusService {
             return true;
         }
         
-        // Get all teams the viewer is in
-        List<Team> viewerTeams = teamService.getTeamsByUserId(viewerId);
-        
-        // Check if the target user is in any of the viewer's teams
-        for (Team team : viewerTeams) {
-            if (team.isMember(targetUserId) || team.isManager(viewerId)) {
-                return true;
-            }
-        }
-        
-        return false;
+        // Check if the target user shares any of the viewer's teams
+        return teamService.getVisibleUserIds(viewerId).contains(targetUserId);
     }
     
     @Override
     public void associateStatusWithTeam(String statusId, String teamId) {
-        try {
-            String key = STATUS_TEAM_PREFIX + statusId;
-            String existingTeamsJson = cloudflareKVAdapter.get(key);
-            
-            List<String> teamIds;
-            if (existingTeamsJson != null && !existingTeamsJson.isEmpty()) {
-                teamIds = objectMapper.readValue(existingTeamsJson, 
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-            } else {
-                teamIds = new ArrayList<>();
+        addToIdList(STATUS_TEAM_PREFIX + statusId, teamId);
+    }
+    
+    @Override
+    public void associateStatusWithTeam(DailyStatus status, String teamId) {
+        addToIdList(StatusKeys.teamIndexKey(teamId, status.getDate()), status.getDeveloperId());
+        updateDigest(teamId, status);
+    }
+    
+    // Helper methods
+    
+    private List<String> readIdList(String key) {
+        return records.readIdList(key, kvStore.get(key));
+    }
+    
+    private void addToIdList(String key, String id) {
+        synchronized (indexLock(key)) {
+            List<String> ids = readIdList(key);
+            if (ids.contains(id)) {
+                return;
             }
             
-            if (!teamIds.contains(teamId)) {
-                teamIds.add(teamId);
-                String updatedTeamsJson = objectMapper.writeValueAsString(teamIds);
-                cloudflareKVAdapter.put(key, updatedTeamsJson);
+            ids.add(id);
+            kvStore.put(key, records.writeIdList(key, ids));
+        }
+        // Team indexes by date are read from KV each time; only status-to-team lists are cached
+        if (key.startsWith(STATUS_TEAM_PREFIX)) {
+            invalidationBus.publish(Collections.singletonList(key));
+        }
+    }
+    
+    /**
+     * Put the status's summary into the team's digest for its date, replacing
+     * the user's earlier summary. Each user has an entry of their own, so
+     * nodes recording statuses of the same team never overwrite each other.
+     */
+    private void updateDigest(String teamId, DailyStatus status) {
+        String key = StatusKeys.digestEntryKey(teamId, status.getDate(), status.getDeveloperId());
+        kvStore.putStatusSummary(key, StatusSummary.of(status));
+    }
+    
+    private Object indexLock(String key) {
+        return indexLocks[Math.floorMod(key.hashCode(), INDEX_LOCK_STRIPES)];
+    }
+    
+    /**
+     * Drops status-to-team index keys changed on other nodes from the KV
+     * cache; the other status keys are never held there
+     */
+    private final class StatusIndexInvalidations implements CacheInvalidationBus.Subscriber {
+        @Override
+        public void invalidate(Collection<String> keys) {
+            List<String> indexKeys = keys.stream()
+                .filter(key -> key.startsWith(STATUS_TEAM_PREFIX))
+                .collect(Collectors.toList());
+            if (!indexKeys.isEmpty()) {
+                kvStore.evictCached(indexKeys);
             }
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to process team association", e);
+        }
+        
+        @Override
+        public void invalidateAll() {
+            kvStore.evictAllCached();
         }
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.StatusRollup;
+import com.example.slackbot.domain.Team;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Key layout and encoding of the records the services keep in the
+ * key-value store, shared by the blocking and reactive service implementations
+ */
+final class KVRecords {
+    static final String TEAM_KEY_PREFIX = "team:";
+    // Unsharded team index, read until the repair job has folded it into the shards
+    static final String ALL_TEAMS_KEY = "all_teams";
+    static final String TEAM_INDEX_SHARD_PREFIX = "all_teams:";
+    static final String STATUS_TEAM_PREFIX = "status_team:";
+
+    private final ValueCodec codec;
+
+    KVRecords(ValueCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Key of the team index shard that holds a team ID. {@link String#hashCode}
+     * is specified, so every node maps an ID to the same shard.
+     */
+    static String teamIndexShardKey(String teamId, int shards) {
+        return TEAM_INDEX_SHARD_PREFIX + Math.floorMod(teamId.hashCode(), shards);
+    }
+
+    /**
+     * Keys of every team index shard, followed by the legacy unsharded index
+     */
+    static List<String> teamIndexKeys(int shards) {
+        List<String> keys = new ArrayList<>(shards + 1);
+        for (int shard = 0; shard < shards; shard++) {
+            keys.add(TEAM_INDEX_SHARD_PREFIX + shard);
+        }
+        keys.add(ALL_TEAMS_KEY);
+        return keys;
+    }
+
+    /**
+     * Merge the team index shards read with {@link #teamIndexKeys(int)}
+     * @param keys The index keys, in shard order
+     * @param values The stored shards by key; missing shards are empty
+     * @return The team IDs without duplicates
+     */
+    List<String> mergeTeamIndex(Collection<String> keys, Map<String, String> values) {
+        Set<String> teamIds = new LinkedHashSet<>();
+        for (String key : keys) {
+            teamIds.addAll(readIdList(key, values.get(key)));
+        }
+        return new ArrayList<>(teamIds);
+    }
+
+    Optional<Team> readTeam(String teamJson) {
+        if (teamJson == null || teamJson.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(codec.decode(teamJson, Team.class));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize team", e);
+        }
+    }
+
+    String writeTeam(Team team) {
+        try {
+            return codec.encode(team);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize team", e);
+        }
+    }
+
+    Optional<StatusRollup> readRollup(String key, String json) {
+        if (json == null || json.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(codec.decode(json, StatusRollup.class));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize status rollup " + key, e);
+        }
+    }
+
+    String writeRollup(String key, StatusRollup rollup) {
+        try {
+            return codec.encode(rollup);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize status rollup " + key, e);
+        }
+    }
+
+    /**
+     * Decode a list of IDs, such as the team list or a status index
+     * @param key The key the list was read from, for error messages
+     * @param json The stored list; null or empty means no IDs
+     * @return A mutable list of IDs
+     */
+    List<String> readIdList(String key, String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return new ArrayList<>(Arrays.asList(codec.decode(json, String[].class)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialize ID list " + key, e);
+        }
+    }
+
+    String writeIdList(String key, List<String> ids) {
+        try {
+            return codec.encode(ids);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize ID list " + key, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.adapters.secondary.OutlookCalendarAdapter;
+import com.example.slackbot.application.ReactiveCalendarService;
+import com.example.slackbot.domain.CalendarEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ReactiveCalendarServiceImpl implements ReactiveCalendarService {
+    private final OutlookCalendarAdapter outlookCalendarAdapter;
+    private final ZoneId timezone;
+    
+    @Autowired
+    public ReactiveCalendarServiceImpl(
+            OutlookCalendarAdapter outlookCalendarAdapter,
+            @Value("${scheduling.timezone}") String timezoneName) {
+        this.outlookCalendarAdapter = outlookCalendarAdapter;
+        this.timezone = ZoneId.of(timezoneName);
+    }
+    
+    @Override
+    public Mono<List<CalendarEvent>> getUserDailyEvents(String userEmail) {
+        // Get current date in the configured timezone
+        LocalDate today = LocalDate.now(timezone);
+        LocalDateTime startOfDay = LocalDateTime.of(today, LocalTime.MIN);
+        LocalDateTime endOfDay = LocalDateTime.of(today, LocalTime.MAX);
+        return getUserEvents(userEmail, startOfDay, endOfDay);
+    }
+    
+    @Override
+    public Mono<List<CalendarEvent>> getUserEvents(String userEmail, LocalDateTime start, LocalDateTime end) {
+        return outlookCalendarAdapter.getUserEventsAsync(userEmail, start, end);
+    }
+    
+    @Override
+    public Mono<Boolean> isUserInMeeting(String userEmail, LocalDateTime time) {
+        LocalDateTime startWindow = time.minusMinutes(15);
+        LocalDateTime endWindow = time.plusMinutes(15);
+        
+        return getUserEvents(userEmail, startWindow, endWindow)
+            .map(events -> events.stream()
+                .anyMatch(event -> 
+                    !event.getStart().isAfter(time) && 
+                    !event.getEnd().isBefore(time) &&
+                    "Busy".equals(event.getStatus())));
+    }
+    
+    @Override
+    public Mono<String> getUserAvailabilityStatus(String userEmail) {
+        // A meeting takes precedence over the presence status from Outlook
+        LocalDateTime now = ZonedDateTime.now(timezone).toLocalDateTime();
+        return isUserInMeeting(userEmail, now)
+            .flatMap(inMeeting -> inMeeting
+                ? Mono.just("In a meeting")
+                : outlookCalendarAdapter.getUserAvailabilityStatusAsync(userEmail));
+    }
+    
+    @Override
+    public Mono<CalendarEvent> getNextMeeting(String userEmail) {
+        // Get current time and end of day in the configured timezone
+        LocalDateTime now = ZonedDateTime.now(timezone).toLocalDateTime();
+        LocalDateTime endOfDay = LocalDateTime.of(LocalDate.now(timezone), LocalTime.MAX);
+        
+        return getUserEvents(userEmail, now, endOfDay)
+            .flatMap(events -> Mono.justOrEmpty(events.stream()
+                .filter(event -> event.getStart().isAfter(now))
+                .min((e1, e2) -> e1.getStart().compareTo(e2.getStart()))));
+    }
+    
+    @Override
+    public Mono<Map<String, String>> getTeamAvailabilityStatus(List<String> userEmails) {
+        return Flux.fromIterable(userEmails)
+            .flatMap(email -> getUserAvailabilityStatus(email).map(status -> Map.entry(email, status)))
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+}
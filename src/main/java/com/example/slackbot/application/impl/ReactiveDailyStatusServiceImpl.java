@@ -0,0 +1,170 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ReactiveDailyStatusService;
+import com.example.slackbot.application.ReactiveTeamService;
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusKeys;
+import com.example.slackbot.domain.StatusSummary;
+import com.example.slackbot.domain.TeamDigest;
+import com.example.slackbot.domain.TeamHierarchy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class ReactiveDailyStatusServiceImpl implements ReactiveDailyStatusService {
+    private final KeyValueStore kvStore;
+    private final ReactiveTeamService teamService;
+    private final KVRecords records;
+    // The first date with complete team digests, null until read; it never changes once written
+    private volatile String digestsSince;
+
+    @Autowired
+    public ReactiveDailyStatusServiceImpl(
+            KeyValueStore kvStore,
+            ReactiveTeamService teamService,
+            ValueCodec codec) {
+        this.kvStore = kvStore;
+        this.teamService = teamService;
+        this.records = new KVRecords(codec);
+    }
+
+    @Override
+    public Flux<DailyStatus> getDailyStatuses(String date) {
+        return kvStore.streamDailyStatuses(date);
+    }
+    
+    @Override
+    public Mono<List<DailyStatus>> getTeamDailyStatuses(String date, String teamId) {
+        // Read only the statuses listed in the team's index for the date
+        return statusUserIds(date, teamId)
+            .filter(userIds -> !userIds.isEmpty())
+            .flatMap(userIds -> kvStore.retrieveDailyStatusesAsync(date, userIds))
+            .defaultIfEmpty(new ArrayList<>());
+    }
+    
+    @Override
+    public Mono<List<StatusSummary>> getTeamStatusSummaries(String date, String teamId) {
+        return getTeamDigest(date, teamId).map(TeamDigest::getSummaries);
+    }
+    
+    /**
+     * List the digest entries of the team and every team below it
+     * concurrently and merge them in hierarchy order. A team without entries
+     * had no statuses on the date and adds nothing. Dates before
+     * {@link StatusKeys#DIGESTS_SINCE_KEY} may have statuses without digest
+     * entries, so their digest is built from the team indexes and status
+     * summaries instead.
+     */
+    @Override
+    public Mono<TeamDigest> getTeamDigest(String date, String teamId) {
+        return hasDigests(date).flatMap(hasDigests -> {
+            if (!hasDigests) {
+                return buildDigest(date, teamId);
+            }
+            return teamService.getTeamHierarchy(teamId)
+                .map(TeamHierarchy::getDescendantIds)
+                .defaultIfEmpty(Collections.emptyList())
+                .flatMap(descendantIds -> {
+                    List<String> teamIds = new ArrayList<>();
+                    teamIds.add(teamId);
+                    teamIds.addAll(descendantIds);
+                    return Flux.fromIterable(teamIds)
+                        .flatMapSequential(id -> kvStore.listStatusSummariesAsync(StatusKeys.digestPrefix(id, date))
+                            .map(summaries -> {
+                                TeamDigest teamDigest = new TeamDigest(id, date);
+                                summaries.forEach(teamDigest::put);
+                                return teamDigest;
+                            }))
+                        .collectList()
+                        .map(teamDigests -> {
+                            TeamDigest digest = new TeamDigest(teamId, date);
+                            teamDigests.forEach(digest::merge);
+                            return digest;
+                        });
+                });
+        });
+    }
+    
+    /**
+     * @return Whether every status of the date has been added to its team
+     * digests; false until the first such date has been recorded
+     */
+    private Mono<Boolean> hasDigests(String date) {
+        String since = digestsSince;
+        if (since != null) {
+            return Mono.just(date.compareTo(since) >= 0);
+        }
+        return kvStore.getAsync(StatusKeys.DIGESTS_SINCE_KEY)
+            .doOnNext(value -> digestsSince = value)
+            .map(value -> date.compareTo(value) >= 0)
+            .defaultIfEmpty(false);
+    }
+    
+    private Mono<TeamDigest> buildDigest(String date, String teamId) {
+        return statusUserIds(date, teamId)
+            .filter(userIds -> !userIds.isEmpty())
+            .flatMap(userIds -> kvStore.retrieveStatusSummariesAsync(date, userIds))
+            .defaultIfEmpty(new ArrayList<>())
+            .map(summaries -> {
+                TeamDigest digest = new TeamDigest(teamId, date);
+                summaries.forEach(digest::put);
+                return digest;
+            });
+    }
+    
+    /**
+     * Read the users with a status on the date from the team's index. For a
+     * team with sub-teams, the indexes of the team and every team below it
+     * are read in one batch and merged.
+     */
+    private Mono<List<String>> statusUserIds(String date, String teamId) {
+        return teamService.getTeamHierarchy(teamId)
+            .filter(TeamHierarchy::hasDescendants)
+            .flatMap(hierarchy -> {
+                List<String> indexKeys = new ArrayList<>();
+                indexKeys.add(StatusKeys.teamIndexKey(teamId, date));
+                for (String descendantId : hierarchy.getDescendantIds()) {
+                    indexKeys.add(StatusKeys.teamIndexKey(descendantId, date));
+                }
+                return kvStore.getManyAsync(indexKeys).<List<String>>map(values -> {
+                    Set<String> userIds = new LinkedHashSet<>();
+                    for (String indexKey : indexKeys) {
+                        userIds.addAll(records.readIdList(indexKey, values.get(indexKey)));
+                    }
+                    return new ArrayList<>(userIds);
+                });
+            })
+            .switchIfEmpty(Mono.defer(() -> {
+                String indexKey = StatusKeys.teamIndexKey(teamId, date);
+                return kvStore.getAsync(indexKey).map(json -> records.readIdList(indexKey, json));
+            }));
+    }
+    
+    @Override
+    public Mono<DailyStatus> getUserDailyStatus(String date, String userId) {
+        return kvStore.retrieveDailyStatusesAsync(date, Collections.singletonList(userId))
+            .flatMap(statuses -> Mono.justOrEmpty(statuses.stream().findFirst()));
+    }
+    
+    @Override
+    public Mono<Boolean> hasViewPermission(String viewerId, String targetUserId) {
+        if (viewerId.equals(targetUserId)) {
+            // Users can always view their own status
+            return Mono.just(true);
+        }
+        
+        // Check if the target user shares any of the viewer's teams
+        return teamService.getVisibleUserIds(viewerId)
+            .map(visible -> visible.contains(targetUserId));
+    }
+}
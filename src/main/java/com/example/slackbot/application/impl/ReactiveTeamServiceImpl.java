@@ -0,0 +1,158 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ReactiveTeamService;
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.slackbot.application.impl.KVRecords.TEAM_KEY_PREFIX;
+
+@Service
+public class ReactiveTeamServiceImpl implements ReactiveTeamService {
+    private final KeyValueStore kvStore;
+    private final KVRecords records;
+    private final int indexShards;
+    private final TeamMembershipIndex membershipIndex;
+    
+    @Autowired
+    public ReactiveTeamServiceImpl(
+            KeyValueStore kvStore,
+            ValueCodec codec,
+            @Value("${teams.index.shards:16}") int indexShards,
+            TeamMembershipIndex membershipIndex) {
+        this.kvStore = kvStore;
+        this.records = new KVRecords(codec);
+        this.indexShards = indexShards;
+        this.membershipIndex = membershipIndex;
+    }
+    
+    @Override
+    public Mono<Team> getTeamById(String teamId) {
+        return kvStore.getAsync(TEAM_KEY_PREFIX + teamId)
+            .flatMap(teamJson -> Mono.justOrEmpty(records.readTeam(teamJson)));
+    }
+    
+    @Override
+    public Flux<Team> getAllTeams() {
+        return getTeamIds().flatMapMany(teamIds -> {
+            // Retrieve all teams in one concurrent batch
+            List<String> teamKeys = teamIds.stream()
+                .map(teamId -> TEAM_KEY_PREFIX + teamId)
+                .collect(Collectors.toList());
+            return kvStore.getManyAsync(teamKeys)
+                .flatMapIterable(teamsJson -> {
+                    List<Team> teams = new ArrayList<>();
+                    for (String teamKey : teamKeys) {
+                        records.readTeam(teamsJson.get(teamKey)).ifPresent(teams::add);
+                    }
+                    return teams;
+                });
+        });
+    }
+    
+    /**
+     * Read only the teams the membership index lists for the user, checking
+     * membership again on the teams read. Until the index is loaded, every
+     * team is read and the index is built from them.
+     */
+    @Override
+    public Flux<Team> getTeamsByUserId(String userId) {
+        if (!membershipIndex.isLoaded()) {
+            return rebuildMembershipIndex()
+                .flatMapIterable(teams -> teams)
+                .filter(team -> team.isMember(userId) || team.isManager(userId));
+        }
+        
+        List<String> teamKeys = membershipIndex.getTeamIds(userId).stream()
+            .map(teamId -> TEAM_KEY_PREFIX + teamId)
+            .collect(Collectors.toList());
+        if (teamKeys.isEmpty()) {
+            return Flux.empty();
+        }
+        return kvStore.getManyAsync(teamKeys)
+            .flatMapIterable(teamsJson -> {
+                List<Team> teams = new ArrayList<>();
+                for (String teamKey : teamKeys) {
+                    records.readTeam(teamsJson.get(teamKey)).ifPresent(teams::add);
+                }
+                return teams;
+            })
+            .filter(team -> team.isMember(userId) || team.isManager(userId));
+    }
+    
+    @Override
+    public Flux<TeamSnapshot> getTeamSnapshotsByUserId(String userId) {
+        return loadMembershipIndex()
+            .thenMany(Flux.defer(() -> Flux.fromIterable(membershipIndex.getTeams(userId))));
+    }
+    
+    @Override
+    public Mono<TeamHierarchy> getTeamHierarchy(String teamId) {
+        return loadMembershipIndex()
+            .then(Mono.fromSupplier(() -> membershipIndex.getHierarchy(teamId)));
+    }
+    
+    @Override
+    public Mono<Set<String>> getVisibleUserIds(String viewerId) {
+        return loadMembershipIndex()
+            .then(Mono.fromSupplier(() -> membershipIndex.getVisibleUserIds(viewerId)));
+    }
+    
+    /**
+     * Build the membership index from every team unless it is already loaded
+     */
+    private Mono<Void> loadMembershipIndex() {
+        if (membershipIndex.isLoaded()) {
+            return Mono.empty();
+        }
+        return rebuildMembershipIndex().then();
+    }
+    
+    /**
+     * Rebuild the membership index from every team, giving up the rebuild if
+     * reading the teams fails or is cancelled
+     * @return The teams read
+     */
+    private Mono<List<Team>> rebuildMembershipIndex() {
+        return Mono.fromSupplier(membershipIndex::beginRebuild)
+            .flatMap(generation -> getAllTeams()
+                .collectList()
+                .doOnNext(teams -> membershipIndex.finishRebuild(generation, teams))
+                .doOnError(e -> membershipIndex.cancelRebuild(generation))
+                .doOnCancel(() -> membershipIndex.cancelRebuild(generation)));
+    }
+    
+    @Override
+    public Mono<Boolean> isUserInTeam(String teamId, String userId) {
+        return getTeamById(teamId)
+            .map(team -> team.isMember(userId) || team.isManager(userId))
+            .defaultIfEmpty(false);
+    }
+    
+    @Override
+    public Mono<Set<String>> getTeamMembers(String teamId) {
+        return getTeamById(teamId)
+            .<Set<String>>map(Team::getMemberIds)
+            .defaultIfEmpty(Collections.emptySet());
+    }
+    
+    private Mono<List<String>> getTeamIds() {
+        // Read every index shard in one concurrent batch and merge them
+        List<String> indexKeys = KVRecords.teamIndexKeys(indexShards);
+        return kvStore.getManyAsync(indexKeys)
+            .map(values -> records.mergeTeamIndex(indexKeys, values));
+    }
+}
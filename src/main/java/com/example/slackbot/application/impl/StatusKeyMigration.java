@@ -0,0 +1,126 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.DailyStatusService;
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.slackbot.application.impl.KVRecords.ALL_TEAMS_KEY;
+import static com.example.slackbot.application.impl.KVRecords.STATUS_TEAM_PREFIX;
+
+/**
+ * One-time migration of daily statuses from the version 1 layout (value
+ * stored under the bare user ID) to the date-partitioned layout described in
+ * {@link StatusKeys}. Each migrated status is added to the date index of the
+ * teams recorded under {@code status_team:{userId}}. Runs at startup until
+ * the schema version key says the namespace is migrated.
+ */
+@Component
+@ConditionalOnProperty(name = "kv.migration.statusKeys", havingValue = "true", matchIfMissing = true)
+public class StatusKeyMigration implements ApplicationRunner {
+    private final KeyValueStore kvStore;
+    private final DailyStatusService dailyStatusService;
+    private final ValueCodec codec;
+    
+    @Autowired
+    public StatusKeyMigration(KeyValueStore kvStore, DailyStatusService dailyStatusService, ValueCodec codec) {
+        this.kvStore = kvStore;
+        this.dailyStatusService = dailyStatusService;
+        this.codec = codec;
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = migrate();
+        if (migrated > 0) {
+            System.out.println("Migrated " + migrated + " daily statuses to the date-partitioned key layout");
+        }
+    }
+    
+    /**
+     * Move every version 1 status to its version 2 key and record the schema version
+     * @return The number of statuses migrated
+     */
+    public int migrate() {
+        String version = kvStore.get(StatusKeys.SCHEMA_VERSION_KEY);
+        if (version != null && Integer.parseInt(version.trim()) >= StatusKeys.SCHEMA_VERSION) {
+            return 0;
+        }
+        
+        List<String> legacyKeys = kvStore.listKeys("")
+            .filter(StatusKeyMigration::isLegacyStatusKey)
+            .collectList()
+            .block();
+        
+        int migrated = 0;
+        for (String userId : legacyKeys) {
+            if (migrateStatus(userId)) {
+                migrated++;
+            }
+        }
+        
+        kvStore.put(StatusKeys.SCHEMA_VERSION_KEY, String.valueOf(StatusKeys.SCHEMA_VERSION));
+        return migrated;
+    }
+    
+    // Version 1 status keys are bare user IDs; every other key has a prefix
+    private static boolean isLegacyStatusKey(String key) {
+        return !key.contains(":") && !ALL_TEAMS_KEY.equals(key);
+    }
+    
+    private boolean migrateStatus(String userId) {
+        String json = kvStore.get(userId);
+        if (json == null || json.isEmpty()) {
+            return false;
+        }
+        
+        DailyStatus status;
+        try {
+            status = codec.decode(json, DailyStatus.class);
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable legacy status " + userId + ": " + e.getMessage());
+            return false;
+        }
+        if (status.getDate() == null || status.getDate().isEmpty()) {
+            System.err.println("Skipping legacy status without a date: " + userId);
+            return false;
+        }
+        
+        status.setDeveloperId(userId);
+        // Version 1 values were concatenated by hand and spelled missing notes as "null"
+        if ("null".equals(status.getNotes())) {
+            status.setNotes(null);
+        }
+        dailyStatusService.addDailyStatus(status);
+        for (String teamId : readTeamIds(userId)) {
+            dailyStatusService.associateStatusWithTeam(status, teamId);
+        }
+        kvStore.delete(userId);
+        return true;
+    }
+    
+    private List<String> readTeamIds(String userId) {
+        String json = kvStore.get(STATUS_TEAM_PREFIX + userId);
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        try {
+            return new ArrayList<>(Arrays.asList(codec.decode(json, String[].class)));
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable team list for " + userId + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+}
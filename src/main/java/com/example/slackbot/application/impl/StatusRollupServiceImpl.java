@@ -0,0 +1,218 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.StatusRollupService;
+import com.example.slackbot.application.TeamService;
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusKeys;
+import com.example.slackbot.domain.StatusRollup;
+import com.example.slackbot.domain.StatusSummary;
+import com.example.slackbot.domain.Team;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rolls up daily statuses once they are {@code status.retention.days} old.
+ *
+ * Dates are processed oldest first, starting after the date recorded under
+ * {@link StatusKeys#ROLLUP_CURSOR_KEY}. For each date, the statuses listed in
+ * each team's index are summarized into the team's rollup for the week or
+ * month, and the statuses, team indexes and digest entries are written again
+ * with an expiration of {@code status.rollup.expireAfterDays}. Statuses that no team
+ * index lists expire without being rolled up. Rolling up a date again
+ * replaces its summaries, so a run interrupted before the cursor moved is
+ * simply repeated.
+ *
+ * The job is scheduled on every node but runs only where
+ * {@code status.rollup.enabled} is set. KV offers no way for nodes to agree
+ * on which of them runs it, so exactly one node should be given the flag.
+ */
+@Service
+public class StatusRollupServiceImpl implements StatusRollupService {
+    public enum Period { WEEK, MONTH }
+
+    private final KeyValueStore kvStore;
+    private final TeamService teamService;
+    private final KVRecords records;
+    private final ZoneId timezone;
+    private final int retentionDays;
+    private final Period period;
+    private final Duration expireAfterRollup;
+    private final int maxDaysPerRun;
+    private final boolean enabled;
+
+    public StatusRollupServiceImpl(
+            KeyValueStore kvStore,
+            TeamService teamService,
+            ValueCodec codec,
+            String timezoneName,
+            int retentionDays,
+            String period,
+            int expireAfterDays,
+            int maxDaysPerRun) {
+        this(kvStore, teamService, codec, timezoneName, retentionDays, period, expireAfterDays, maxDaysPerRun, false);
+    }
+
+    @Autowired
+    public StatusRollupServiceImpl(
+            KeyValueStore kvStore,
+            TeamService teamService,
+            ValueCodec codec,
+            @Value("${scheduling.timezone}") String timezoneName,
+            @Value("${status.retention.days:30}") int retentionDays,
+            @Value("${status.rollup.period:week}") String period,
+            @Value("${status.rollup.expireAfterDays:7}") int expireAfterDays,
+            @Value("${status.rollup.maxDaysPerRun:31}") int maxDaysPerRun,
+            @Value("${status.rollup.enabled:false}") boolean enabled) {
+        this.kvStore = kvStore;
+        this.teamService = teamService;
+        this.records = new KVRecords(codec);
+        this.timezone = ZoneId.of(timezoneName);
+        this.retentionDays = retentionDays;
+        this.period = Period.valueOf(period.toUpperCase(Locale.ROOT));
+        this.expireAfterRollup = Duration.ofDays(expireAfterDays);
+        this.maxDaysPerRun = maxDaysPerRun;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return The number of dates rolled up; 0 on a node the rollup is not enabled on
+     */
+    @Override
+    public int rollUpStatuses() {
+        if (!enabled) {
+            return 0;
+        }
+        return rollUpStatuses(LocalDate.now(timezone));
+    }
+
+    /**
+     * Roll up the dates before the retention window that follow the cursor,
+     * at most {@code status.rollup.maxDaysPerRun} of them
+     * @param today The current date
+     * @return The number of dates rolled up
+     */
+    public synchronized int rollUpStatuses(LocalDate today) {
+        LocalDate cutoff = today.minusDays(retentionDays);
+        LocalDate next = nextDate(cutoff);
+
+        int rolled = 0;
+        while (next.isBefore(cutoff) && rolled < maxDaysPerRun) {
+            rollUpDate(next.toString());
+            kvStore.put(StatusKeys.ROLLUP_CURSOR_KEY, next.toString());
+            next = next.plusDays(1);
+            rolled++;
+        }
+
+        if (rolled > 0) {
+            System.out.println("Rolled up daily statuses of " + rolled + " dates");
+        }
+        return rolled;
+    }
+
+    @Override
+    public List<StatusSummary> getTeamStatusHistory(String teamId, String date) {
+        String key = StatusKeys.rollupKey(teamId, periodOf(date));
+        return records.readRollup(key, kvStore.get(key))
+            .map(rollup -> rollup.getDay(date))
+            .orElseGet(ArrayList::new);
+    }
+
+    /**
+     * The first date to roll up: the day after the cursor or, before the
+     * first rollup, the date of the oldest status
+     */
+    private LocalDate nextDate(LocalDate cutoff) {
+        String cursor = kvStore.get(StatusKeys.ROLLUP_CURSOR_KEY);
+        if (cursor != null && !cursor.isEmpty()) {
+            return LocalDate.parse(cursor.trim()).plusDays(1);
+        }
+
+        // Only the first run scans every status key
+        String oldest = kvStore.listKeys(StatusKeys.statusPrefix())
+            .map(StatusKeys::dateOf)
+            .filter(date -> date.matches("\\d{4}-\\d{2}-\\d{2}"))
+            .reduce((first, second) -> first.compareTo(second) <= 0 ? first : second)
+            .block();
+        if (oldest != null && LocalDate.parse(oldest).isBefore(cutoff)) {
+            return LocalDate.parse(oldest);
+        }
+
+        // Nothing is old enough yet; later runs start at the cutoff without scanning
+        kvStore.put(StatusKeys.ROLLUP_CURSOR_KEY, cutoff.minusDays(1).toString());
+        return cutoff;
+    }
+
+    private void rollUpDate(String date) {
+        Map<String, DailyStatus> statuses = new HashMap<>();
+        for (DailyStatus status : kvStore.retrieveDailyStatuses(date)) {
+            statuses.put(status.getDeveloperId(), status);
+        }
+
+        List<Team> teams = teamService.getAllTeams();
+        List<String> indexKeys = new ArrayList<>();
+        for (Team team : teams) {
+            indexKeys.add(StatusKeys.teamIndexKey(team.getId(), date));
+        }
+        Map<String, String> indexes = kvStore.getMany(indexKeys);
+
+        for (Team team : teams) {
+            List<StatusSummary> entries = kvStore.listStatusSummariesAsync(StatusKeys.digestPrefix(team.getId(), date)).block();
+            for (StatusSummary entry : entries) {
+                kvStore.putStatusSummary(
+                    StatusKeys.digestEntryKey(team.getId(), date, entry.getDeveloperId()), entry, expireAfterRollup);
+            }
+
+            String indexKey = StatusKeys.teamIndexKey(team.getId(), date);
+            String json = indexes.get(indexKey);
+            if (json == null) {
+                continue;
+            }
+
+            List<StatusSummary> summaries = new ArrayList<>();
+            for (String userId : records.readIdList(indexKey, json)) {
+                DailyStatus status = statuses.get(userId);
+                if (status != null) {
+                    summaries.add(StatusSummary.of(status));
+                }
+            }
+            if (!summaries.isEmpty()) {
+                String teamPeriod = periodOf(date);
+                String rollupKey = StatusKeys.rollupKey(team.getId(), teamPeriod);
+                StatusRollup rollup = records.readRollup(rollupKey, kvStore.get(rollupKey))
+                    .orElseGet(() -> new StatusRollup(team.getId(), teamPeriod));
+                rollup.putDay(date, summaries);
+                kvStore.put(rollupKey, records.writeRollup(rollupKey, rollup));
+            }
+            kvStore.put(indexKey, json, expireAfterRollup);
+        }
+
+        for (DailyStatus status : statuses.values()) {
+            kvStore.storeDailyStatus(status, expireAfterRollup);
+        }
+    }
+
+    /**
+     * The rollup period of a date: an ISO week such as {@code 2023-W41} or a month such as {@code 2023-10}
+     */
+    private String periodOf(String date) {
+        LocalDate day = LocalDate.parse(date);
+        if (period == Period.MONTH) {
+            return YearMonth.from(day).toString();
+        }
+        return String.format("%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+}
@@ -0,0 +1,445 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.domain.MemberSet;
+import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inverted index from a user ID to the IDs of the teams the user
+ * is a member or manager of, shared by the blocking and reactive team
+ * services. The index also holds a {@link TeamSnapshot} of every team, which
+ * is handed out to readers as is, and the set of users each viewer can see,
+ * computed on first use and then updated with every team change. For nested
+ * teams it keeps a closure of each team's ancestors and descendants with the
+ * flattened members below it, updated for the teams a change touches.
+ *
+ * The index is kept up to date with this node's team writes and with changes
+ * from other nodes delivered by the cache invalidation bus, and is rebuilt
+ * from KV at startup and by the team index repair job. Lookups read
+ * immutable sets and snapshots and never lock.
+ */
+@Component
+public class TeamMembershipIndex {
+    // Immutable sets, replaced on every change
+    private final Map<String, Set<String>> teamIdsByUser = new ConcurrentHashMap<>();
+    // Written under "this"; the indexed version of each team
+    private final Map<String, TeamSnapshot> teams = new ConcurrentHashMap<>();
+    // Written under "this"; the place of each team among nested teams
+    private final Map<String, TeamHierarchy> hierarchies = new ConcurrentHashMap<>();
+    // Guarded by "this"; the IDs of the indexed teams naming each team as parent
+    private final Map<String, Set<String>> childrenByTeam = new HashMap<>();
+    // Written under "this"; frozen sets of the users each viewer shares a team with
+    private final Map<String, MemberSet> visibleByViewer = new ConcurrentHashMap<>();
+    // Guarded by "this"; by rebuild generation, the changes made while that rebuild reads KV
+    private final Map<Long, Map<String, TeamSnapshot>> changesDuringRebuilds = new HashMap<>();
+    // Guarded by "this"; the generation of the last rebuild started and of the last one applied
+    private long lastRebuildStarted;
+    private long lastRebuildFinished;
+    private volatile boolean loaded;
+
+    /**
+     * @return Whether the index has been built since startup
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return The IDs of the teams the user is a member or manager of
+     */
+    public Set<String> getTeamIds(String userId) {
+        return teamIdsByUser.getOrDefault(userId, Collections.emptySet());
+    }
+
+    /**
+     * @return The indexed snapshot of the team, or null if it is not indexed
+     */
+    public TeamSnapshot getTeam(String teamId) {
+        return teams.get(teamId);
+    }
+
+    /**
+     * @return Snapshots of the teams the user is a member or manager of
+     */
+    public List<TeamSnapshot> getTeams(String userId) {
+        Set<String> teamIds = getTeamIds(userId);
+        List<TeamSnapshot> result = new ArrayList<>(teamIds.size());
+        for (String teamId : teamIds) {
+            TeamSnapshot team = teams.get(teamId);
+            if (team != null) {
+                result.add(team);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The ancestors, descendants and flattened members of the team,
+     * or null if it is not indexed
+     */
+    public TeamHierarchy getHierarchy(String teamId) {
+        return hierarchies.get(teamId);
+    }
+
+    /**
+     * @return The members and managers of every team the viewer is a member
+     * or manager of, and of every team below a team the viewer manages,
+     * including the viewer, as a set that cannot be modified
+     */
+    public MemberSet getVisibleUserIds(String viewerId) {
+        MemberSet visible = visibleByViewer.get(viewerId);
+        if (visible != null) {
+            return visible;
+        }
+        synchronized (this) {
+            return visibleByViewer.computeIfAbsent(viewerId, this::computeVisible);
+        }
+    }
+
+    /**
+     * Index a created or updated team
+     */
+    public synchronized void put(Team team) {
+        TeamSnapshot snapshot = TeamSnapshot.of(team);
+        for (Map<String, TeamSnapshot> changes : changesDuringRebuilds.values()) {
+            changes.put(snapshot.getId(), snapshot);
+        }
+        apply(snapshot.getId(), snapshot);
+    }
+
+    /**
+     * Drop a deleted team
+     */
+    public synchronized void remove(String teamId) {
+        for (Map<String, TeamSnapshot> changes : changesDuringRebuilds.values()) {
+            changes.put(teamId, null);
+        }
+        apply(teamId, null);
+    }
+
+    /**
+     * Start a rebuild. Changes made until {@link #finishRebuild} are applied
+     * again on top of the teams read in between. Rebuilds may overlap; each
+     * keeps the changes made since it started.
+     * @return The generation of the rebuild, to pass to {@link #finishRebuild}
+     */
+    public synchronized long beginRebuild() {
+        long generation = ++lastRebuildStarted;
+        changesDuringRebuilds.put(generation, new LinkedHashMap<>());
+        return generation;
+    }
+
+    /**
+     * Replace the index with the teams read since {@link #beginRebuild}. A
+     * rebuild that started before the last one applied read older teams and
+     * is dropped.
+     * @param generation The generation returned by {@link #beginRebuild}
+     * @return Whether the teams were applied
+     */
+    public synchronized boolean finishRebuild(long generation, Collection<Team> teams) {
+        Map<String, TeamSnapshot> changes = changesDuringRebuilds.remove(generation);
+        if (changes == null) {
+            throw new IllegalStateException("No rebuild of generation " + generation + " is running");
+        }
+        if (generation < lastRebuildFinished) {
+            return false;
+        }
+        lastRebuildFinished = generation;
+
+        Map<String, TeamSnapshot> rebuilt = new HashMap<>();
+        for (Team team : teams) {
+            rebuilt.put(team.getId(), TeamSnapshot.of(team));
+        }
+        for (Map.Entry<String, TeamSnapshot> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                rebuilt.remove(change.getKey());
+            } else {
+                rebuilt.put(change.getKey(), change.getValue());
+            }
+        }
+
+        // Visible sets are computed again on first use rather than updated team by team
+        visibleByViewer.clear();
+        for (String teamId : new HashSet<>(this.teams.keySet())) {
+            if (!rebuilt.containsKey(teamId)) {
+                apply(teamId, null);
+            }
+        }
+        for (Map.Entry<String, TeamSnapshot> entry : rebuilt.entrySet()) {
+            apply(entry.getKey(), entry.getValue());
+        }
+        loaded = true;
+        return true;
+    }
+
+    /**
+     * Give up a rebuild that failed to read its teams
+     * @param generation The generation returned by {@link #beginRebuild}
+     */
+    public synchronized void cancelRebuild(long generation) {
+        changesDuringRebuilds.remove(generation);
+    }
+
+    private static Set<String> usersOf(TeamSnapshot team) {
+        if (team == null) {
+            return Collections.emptySet();
+        }
+        Set<String> users = new HashSet<>(team.getMemberIds());
+        users.addAll(team.getManagerIds());
+        return users;
+    }
+
+    /**
+     * Replace the snapshot of a team, or drop it when {@code team} is null,
+     * updating only the users that joined or left
+     */
+    private void apply(String teamId, TeamSnapshot team) {
+        TeamSnapshot old = teams.get(teamId);
+        Set<String> users = usersOf(team);
+        Set<String> previous = usersOf(old);
+        List<String> oldAncestors = ancestorsOf(teamId);
+        List<String> oldDescendants = descendantsOf(teamId);
+        for (String userId : previous) {
+            if (!users.contains(userId)) {
+                teamIdsByUser.computeIfPresent(userId, (id, teamIds) -> {
+                    Set<String> remaining = new HashSet<>(teamIds);
+                    remaining.remove(teamId);
+                    return remaining.isEmpty() ? null : Collections.unmodifiableSet(remaining);
+                });
+            }
+        }
+        for (String userId : users) {
+            if (!previous.contains(userId)) {
+                teamIdsByUser.compute(userId, (id, teamIds) -> {
+                    Set<String> joined = teamIds == null ? new HashSet<>() : new HashSet<>(teamIds);
+                    joined.add(teamId);
+                    return Collections.unmodifiableSet(joined);
+                });
+            }
+        }
+
+        String oldParent = old != null ? old.getParentId() : null;
+        String newParent = team != null ? team.getParentId() : null;
+        if (!Objects.equals(oldParent, newParent)) {
+            if (oldParent != null) {
+                Set<String> siblings = childrenByTeam.get(oldParent);
+                if (siblings != null) {
+                    siblings.remove(teamId);
+                    if (siblings.isEmpty()) {
+                        childrenByTeam.remove(oldParent);
+                    }
+                }
+            }
+            if (newParent != null) {
+                childrenByTeam.computeIfAbsent(newParent, id -> new HashSet<>()).add(teamId);
+            }
+        }
+
+        if (team == null) {
+            teams.remove(teamId);
+        } else {
+            teams.put(teamId, team);
+        }
+
+        // The team, everything above it before and after, and everything below it
+        Set<String> ancestors = new LinkedHashSet<>(oldAncestors);
+        ancestors.addAll(ancestorsOf(teamId));
+        Set<String> touched = new LinkedHashSet<>(ancestors);
+        touched.add(teamId);
+        touched.addAll(oldDescendants);
+        touched.addAll(descendantsOf(teamId));
+        for (String touchedId : touched) {
+            if (teams.containsKey(touchedId)) {
+                hierarchies.put(touchedId, computeHierarchy(touchedId));
+            } else {
+                hierarchies.remove(touchedId);
+            }
+        }
+
+        updateVisibility(previous, users);
+        if (visibleByViewer.isEmpty()) {
+            return;
+        }
+
+        // Managers see everyone below the teams they manage, so every manager
+        // whose view of the teams below changed is computed again: managers of
+        // the teams above before and after, managers of the team who were
+        // promoted or demoted, and when the team moved, the managers of the
+        // team and of every team below it
+        Set<String> managers = new HashSet<>();
+        for (String ancestorId : ancestors) {
+            TeamSnapshot ancestor = teams.get(ancestorId);
+            if (ancestor != null) {
+                managers.addAll(ancestor.getManagerIds());
+            }
+        }
+        Set<String> oldManagers = old != null ? old.getManagerIds() : Collections.emptySet();
+        Set<String> newManagers = team != null ? team.getManagerIds() : Collections.emptySet();
+        boolean moved = !Objects.equals(oldParent, newParent);
+        if (moved || !oldManagers.equals(newManagers)) {
+            managers.addAll(oldManagers);
+            managers.addAll(newManagers);
+        }
+        if (moved) {
+            Set<String> below = new LinkedHashSet<>(oldDescendants);
+            below.addAll(descendantsOf(teamId));
+            for (String descendantId : below) {
+                TeamSnapshot descendant = teams.get(descendantId);
+                if (descendant != null) {
+                    managers.addAll(descendant.getManagerIds());
+                }
+            }
+        }
+        for (String managerId : managers) {
+            if (visibleByViewer.containsKey(managerId)) {
+                visibleByViewer.put(managerId, computeVisible(managerId));
+            }
+        }
+    }
+
+    /**
+     * @return The IDs of the indexed teams above the team, nearest first,
+     * stopping at a missing parent or a cycle
+     */
+    private List<String> ancestorsOf(String teamId) {
+        List<String> ancestors = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        seen.add(teamId);
+        TeamSnapshot team = teams.get(teamId);
+        String parentId = team != null ? team.getParentId() : null;
+        while (parentId != null && teams.containsKey(parentId) && seen.add(parentId)) {
+            ancestors.add(parentId);
+            parentId = teams.get(parentId).getParentId();
+        }
+        return ancestors;
+    }
+
+    /**
+     * @return The IDs of the indexed teams below the team, breadth first
+     */
+    private List<String> descendantsOf(String teamId) {
+        List<String> descendants = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        seen.add(teamId);
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(teamId);
+        while (!pending.isEmpty()) {
+            for (String childId : childrenByTeam.getOrDefault(pending.poll(), Collections.emptySet())) {
+                if (teams.containsKey(childId) && seen.add(childId)) {
+                    descendants.add(childId);
+                    pending.add(childId);
+                }
+            }
+        }
+        return descendants;
+    }
+
+    private TeamHierarchy computeHierarchy(String teamId) {
+        List<String> ancestorIds = ancestorsOf(teamId);
+        MemberSet ancestorManagerIds = new MemberSet();
+        for (String ancestorId : ancestorIds) {
+            ancestorManagerIds.addAll(teams.get(ancestorId).getManagerIds());
+        }
+
+        List<String> childIds = new ArrayList<>();
+        for (String childId : childrenByTeam.getOrDefault(teamId, Collections.emptySet())) {
+            if (teams.containsKey(childId)) {
+                childIds.add(childId);
+            }
+        }
+        Collections.sort(childIds);
+
+        List<String> descendantIds = descendantsOf(teamId);
+        MemberSet memberIds = new MemberSet();
+        TeamSnapshot team = teams.get(teamId);
+        memberIds.addAll(team.getMemberIds());
+        memberIds.addAll(team.getManagerIds());
+        for (String descendantId : descendantIds) {
+            TeamSnapshot descendant = teams.get(descendantId);
+            memberIds.addAll(descendant.getMemberIds());
+            memberIds.addAll(descendant.getManagerIds());
+        }
+        return new TeamHierarchy(teamId, ancestorIds, childIds, descendantIds, memberIds, ancestorManagerIds);
+    }
+
+    /**
+     * Update the cached visible sets of the viewers a team change affects.
+     * Users who joined are added to the sets; when users left, the affected
+     * viewers are computed again from their teams, since they may still share
+     * another team with the users who left.
+     */
+    private void updateVisibility(Set<String> previous, Set<String> users) {
+        if (visibleByViewer.isEmpty()) {
+            return;
+        }
+        boolean anyLeft = false;
+        for (String userId : previous) {
+            if (!users.contains(userId)) {
+                anyLeft = true;
+                break;
+            }
+        }
+        if (anyLeft) {
+            Set<String> affected = new HashSet<>(previous);
+            affected.addAll(users);
+            for (String viewerId : affected) {
+                if (visibleByViewer.containsKey(viewerId)) {
+                    visibleByViewer.put(viewerId, computeVisible(viewerId));
+                }
+            }
+            return;
+        }
+
+        MemberSet joined = new MemberSet();
+        for (String userId : users) {
+            if (!previous.contains(userId)) {
+                joined.add(userId);
+            }
+        }
+        if (joined.isEmpty()) {
+            return;
+        }
+        MemberSet everyone = new MemberSet(users);
+        for (String viewerId : users) {
+            MemberSet visible = visibleByViewer.get(viewerId);
+            if (visible != null) {
+                MemberSet updated = visible.mutableCopy();
+                updated.addAll(previous.contains(viewerId) ? joined : everyone);
+                visibleByViewer.put(viewerId, updated.frozen());
+            }
+        }
+    }
+
+    private MemberSet computeVisible(String viewerId) {
+        MemberSet visible = new MemberSet();
+        for (String teamId : getTeamIds(viewerId)) {
+            TeamSnapshot team = teams.get(teamId);
+            if (team != null) {
+                visible.addAll(team.getMemberIds());
+                visible.addAll(team.getManagerIds());
+            }
+            TeamHierarchy hierarchy = hierarchies.get(teamId);
+            if (team != null && hierarchy != null && team.isManager(viewerId)) {
+                visible.addAll(hierarchy.getMemberIds());
+            }
+        }
+        return visible.frozen();
+    }
+}
@@ -1,28 +1,63 @@
 package com.example.slackbot.application.impl;
 
-import com.example.slackbot.adapters.secondary.CloudflareKVAdapter;
+import com.example.slackbot.adapters.secondary.LoopbackInvalidationBus;
+import com.example.slackbot.application.CacheInvalidationBus;
+import com.example.slackbot.application.KeyValueStore;
 import com.example.slackbot.application.TeamService;
+import com.example.slackbot.application.ValueCodec;
+import com.example.slackbot.domain.MembershipResult;
 import com.example.slackbot.domain.Team;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamPage;
+import com.example.slackbot.domain.TeamSnapshot;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static com.example.slackbot.application.impl.KVRecords.ALL_TEAMS_KEY;
+import static com.example.slackbot.application.impl.KVRecords.TEAM_KEY_PREFIX;
+
 @Service
 public class TeamServiceImpl implements TeamService {
-    private static final String TEAM_KEY_PREFIX = "team:";
-    private static final String ALL_TEAMS_KEY = "all_teams";
+    private static final int DEFAULT_INDEX_SHARDS = 16;
+    
+    private final KeyValueStore kvStore;
+    private final KVRecords records;
+    private final int indexShards;
+    private final TeamMembershipIndex membershipIndex;
+    private final CacheInvalidationBus invalidationBus;
+    // Serializes read-modify-write of each index shard on this node
+    private final Object[] shardLocks;
     
-    private final CloudflareKVAdapter kvAdapter;
-    private final ObjectMapper objectMapper;
+    public TeamServiceImpl(KeyValueStore kvStore, ObjectMapper objectMapper) {
+        this(kvStore, new VersionedValueCodec(objectMapper), DEFAULT_INDEX_SHARDS, new TeamMembershipIndex(),
+            new LoopbackInvalidationBus());
+    }
     
     @Autowired
-    public TeamServiceImpl(CloudflareKVAdapter kvAdapter, ObjectMapper objectMapper) {
-        this.kvAdapter = kvAdapter;
-        this.objectMapper = objectMapper;
+    public TeamServiceImpl(
+            KeyValueStore kvStore,
+            ValueCodec codec,
+            @Value("${teams.index.shards:16}") int indexShards,
+            TeamMembershipIndex membershipIndex,
+            CacheInvalidationBus invalidationBus) {
+        this.kvStore = kvStore;
+        this.records = new KVRecords(codec);
+        this.indexShards = indexShards;
+        this.membershipIndex = membershipIndex;
+        this.invalidationBus = invalidationBus;
+        this.shardLocks = new Object[indexShards];
+        for (int i = 0; i < indexShards; i++) {
+            shardLocks[i] = new Object();
+        }
+        invalidationBus.subscribe(new TeamInvalidations());
     }
     
     @Override
@@ -31,19 +66,18 @@ public class TeamServiceImpl implements TeamService {
         if (team.getId() == null || team.getId().isEmpty()) {
             team.setId(UUID.randomUUID().toString());
         }
+        checkParent(team);
         
-        try {
-            // Store the team
-            String teamJson = objectMapper.writeValueAsString(team);
-            kvAdapter.put(TEAM_KEY_PREFIX + team.getId(), teamJson);
-            
-            // Update the list of all teams
-            updateAllTeamsIndex(team.getId(), true);
-            
-            return team;
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize team", e);
-        }
+        // Store the team
+        kvStore.put(TEAM_KEY_PREFIX + team.getId(), records.writeTeam(team));
+        membershipIndex.put(team);
+        
+        // Update the list of all teams
+        updateAllTeamsIndex(team.getId(), true);
+        invalidationBus.publish(Arrays.asList(
+            TEAM_KEY_PREFIX + team.getId(), KVRecords.teamIndexShardKey(team.getId(), indexShards)));
+        
+        return team;
     }
     
     @Override
@@ -56,38 +90,52 @@ public class TeamServiceImpl implements TeamService {
         if (!getTeamById(team.getId()).isPresent()) {
             throw new NoSuchElementException("Team not found: " + team.getId());
         }
+        checkParent(team);
         
-        try {
-            String teamJson = objectMapper.writeValueAsString(team);
-            kvAdapter.put(TEAM_KEY_PREFIX + team.getId(), teamJson);
-            return team;
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize team", e);
-        }
+        saveTeam(team);
+        return team;
     }
     
     @Override
     public void deleteTeam(String teamId) {
+        // Sub-teams are found through the index, so it must be loaded before the team is gone
+        if (!membershipIndex.isLoaded()) {
+            rebuildMembershipIndex();
+        }
+        TeamSnapshot deleted = membershipIndex.getTeam(teamId);
+        TeamHierarchy hierarchy = membershipIndex.getHierarchy(teamId);
+        
         // Remove from the all teams index
         updateAllTeamsIndex(teamId, false);
         
         // Delete the team
-        kvAdapter.delete(TEAM_KEY_PREFIX + teamId);
+        kvStore.delete(TEAM_KEY_PREFIX + teamId);
+        membershipIndex.remove(teamId);
+        invalidationBus.publish(Arrays.asList(
+            TEAM_KEY_PREFIX + teamId, KVRecords.teamIndexShardKey(teamId, indexShards)));
+        
+        // Sub-teams move up to the deleted team's parent
+        if (hierarchy != null) {
+            for (String childId : hierarchy.getChildIds()) {
+                getTeamById(childId).ifPresent(child -> {
+                    child.setParentId(deleted != null ? deleted.getParentId() : null);
+                    saveTeam(child);
+                });
+            }
+        }
     }
     
     @Override
-    public Optional<Team> getTeamById(String teamId) {
-        String teamJson = kvAdapter.get(TEAM_KEY_PREFIX + teamId);
-        if (teamJson == null || teamJson.isEmpty()) {
-            return Optional.empty();
-        }
-        
-        try {
-            Team team = objectMapper.readValue(teamJson, Team.class);
-            return Optional.of(team);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to deserialize team", e);
+    public Optional<TeamHierarchy> getTeamHierarchy(String teamId) {
+        if (!membershipIndex.isLoaded()) {
+            rebuildMembershipIndex();
         }
+        return Optional.ofNullable(membershipIndex.getHierarchy(teamId));
+    }
+    
+    @Override
+    public Optional<Team> getTeamById(String teamId) {
+        return records.readTeam(kvStore.get(TEAM_KEY_PREFIX + teamId));
     }
     
     @Override
@@ -95,21 +143,139 @@ public class TeamServiceImpl implements TeamService {
         // Retrieve the list of all team IDs
         List<String> teamIds = getTeamIds();
         
-        // Retrieve each team
-        return teamIds.stream()
-            .map(this::getTeamById)
+        // Retrieve all teams in one concurrent batch
+        List<String> teamKeys = teamIds.stream()
+            .map(teamId -> TEAM_KEY_PREFIX + teamId)
+            .collect(Collectors.toList());
+        Map<String, String> teamsJson = kvStore.getMany(teamKeys);
+        
+        return teamKeys.stream()
+            .map(teamKey -> records.readTeam(teamsJson.get(teamKey)))
             .filter(Optional::isPresent)
             .map(Optional::get)
             .collect(Collectors.toList());
     }
     
+    @Override
+    public TeamPage listTeams(String cursor, int limit) {
+        List<String> pageIds = pageOf(getTeamIds(), cursor, limit);
+        List<String> teamKeys = pageIds.stream()
+            .limit(limit)
+            .map(teamId -> TEAM_KEY_PREFIX + teamId)
+            .collect(Collectors.toList());
+        Map<String, String> teamsJson = teamKeys.isEmpty() ? Collections.emptyMap() : kvStore.getMany(teamKeys);
+        
+        List<TeamSnapshot> teams = new ArrayList<>();
+        for (String teamKey : teamKeys) {
+            records.readTeam(teamsJson.get(teamKey)).map(TeamSnapshot::of).ifPresent(teams::add);
+        }
+        return new TeamPage(teams, nextCursor(pageIds, limit));
+    }
+    
+    @Override
+    public TeamPage listTeamsByUserId(String userId, String cursor, int limit) {
+        Map<String, TeamSnapshot> teamsById = new HashMap<>();
+        for (TeamSnapshot team : getTeamSnapshotsByUserId(userId)) {
+            teamsById.put(team.getId(), team);
+        }
+        List<String> pageIds = pageOf(teamsById.keySet(), cursor, limit);
+        List<TeamSnapshot> teams = pageIds.stream()
+            .limit(limit)
+            .map(teamsById::get)
+            .collect(Collectors.toList());
+        return new TeamPage(teams, nextCursor(pageIds, limit));
+    }
+    
+    /**
+     * @return Up to {@code limit + 1} team IDs after the cursor, in order; the
+     * extra ID only tells whether there is a next page
+     */
+    private static List<String> pageOf(Collection<String> teamIds, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        return teamIds.stream()
+            .filter(teamId -> cursor == null || teamId.compareTo(cursor) > 0)
+            .sorted()
+            .limit(limit + 1L)
+            .collect(Collectors.toList());
+    }
+    
+    private static String nextCursor(List<String> pageIds, int limit) {
+        return pageIds.size() > limit ? pageIds.get(limit - 1) : null;
+    }
+    
+    /**
+     * Read only the teams the membership index lists for the user. Membership
+     * is checked again on the teams read, since the index may not have seen
+     * changes made on other nodes yet.
+     */
     @Override
     public List<Team> getTeamsByUserId(String userId) {
-        return getAllTeams().stream()
+        if (!membershipIndex.isLoaded()) {
+            rebuildMembershipIndex();
+        }
+        
+        List<String> teamKeys = membershipIndex.getTeamIds(userId).stream()
+            .map(teamId -> TEAM_KEY_PREFIX + teamId)
+            .collect(Collectors.toList());
+        if (teamKeys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, String> teamsJson = kvStore.getMany(teamKeys);
+        
+        return teamKeys.stream()
+            .map(teamKey -> records.readTeam(teamsJson.get(teamKey)))
+            .filter(Optional::isPresent)
+            .map(Optional::get)
             .filter(team -> team.isMember(userId) || team.isManager(userId))
             .collect(Collectors.toList());
     }
     
+    @Override
+    public List<TeamSnapshot> getTeamSnapshotsByUserId(String userId) {
+        if (!membershipIndex.isLoaded()) {
+            rebuildMembershipIndex();
+        }
+        return membershipIndex.getTeams(userId);
+    }
+    
+    @Override
+    public Set<String> getVisibleUserIds(String viewerId) {
+        if (!membershipIndex.isLoaded()) {
+            rebuildMembershipIndex();
+        }
+        return membershipIndex.getVisibleUserIds(viewerId);
+    }
+    
+    /**
+     * Load the membership index at startup. If KV cannot be read yet, the
+     * index is loaded on first use instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadMembershipIndex() {
+        try {
+            rebuildMembershipIndex();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to load the team membership index: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Rebuild the user-to-team membership index from every team in KV
+     */
+    public void rebuildMembershipIndex() {
+        long generation = membershipIndex.beginRebuild();
+        List<Team> teams;
+        try {
+            teams = getAllTeams();
+        } catch (RuntimeException e) {
+            membershipIndex.cancelRebuild(generation);
+            throw e;
+        }
+        membershipIndex.finishRebuild(generation, teams);
+    }
+    
     @Override
     public boolean isUserInTeam(String teamId, String userId) {
         Optional<Team> teamOpt = getTeamById(teamId);
@@ -133,46 +299,250 @@ public class TeamServiceImpl implements TeamService {
         });
     }
     
+    @Override
+    public Map<String, MembershipResult> addUsersToTeam(String teamId, Collection<String> userIds) {
+        Team team = requireTeam(teamId);
+        Map<String, MembershipResult> results = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            if (results.containsKey(userId)) {
+                continue;
+            }
+            results.put(userId, team.getMemberIds().add(userId)
+                ? MembershipResult.ADDED : MembershipResult.ALREADY_MEMBER);
+        }
+        saveIfChanged(team, results);
+        return results;
+    }
+    
+    @Override
+    public Map<String, MembershipResult> removeUsersFromTeam(String teamId, Collection<String> userIds) {
+        Team team = requireTeam(teamId);
+        Map<String, MembershipResult> results = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            if (results.containsKey(userId)) {
+                continue;
+            }
+            if (!team.isMember(userId) && !team.isManager(userId)) {
+                results.put(userId, MembershipResult.NOT_MEMBER);
+            } else if (team.isManager(userId) && team.getManagerIds().size() <= 1) {
+                results.put(userId, MembershipResult.LAST_MANAGER);
+            } else {
+                team.removeManager(userId);
+                team.removeMember(userId);
+                results.put(userId, MembershipResult.REMOVED);
+            }
+        }
+        saveIfChanged(team, results);
+        return results;
+    }
+    
+    @Override
+    public Map<String, MembershipResult> replaceTeamMembers(String teamId, Collection<String> userIds) {
+        Team team = requireTeam(teamId);
+        Set<String> wanted = new LinkedHashSet<>(userIds);
+        Map<String, MembershipResult> results = new LinkedHashMap<>();
+        for (String member : new ArrayList<>(team.getMemberIds())) {
+            if (wanted.contains(member)) {
+                continue;
+            }
+            if (team.isManager(member)) {
+                results.put(member, MembershipResult.KEPT_MANAGER);
+            } else {
+                team.removeMember(member);
+                results.put(member, MembershipResult.REMOVED);
+            }
+        }
+        
+        Map<String, MembershipResult> listed = new LinkedHashMap<>();
+        for (String userId : wanted) {
+            listed.put(userId, team.getMemberIds().add(userId)
+                ? MembershipResult.ADDED : MembershipResult.ALREADY_MEMBER);
+        }
+        listed.putAll(results);
+        saveIfChanged(team, listed);
+        return listed;
+    }
+    
     @Override
     public Set<String> getTeamMembers(String teamId) {
         return getTeamById(teamId)
-            .map(Team::getMemberIds)
+            .<Set<String>>map(Team::getMemberIds)
             .orElse(Collections.emptySet());
     }
     
     // Helper methods
     
-    private List<String> getTeamIds() {
-        String teamsJson = kvAdapter.get(ALL_TEAMS_KEY);
-        if (teamsJson == null || teamsJson.isEmpty()) {
-            return new ArrayList<>();
+    /**
+     * Reject a parent that does not exist or that would put the team below
+     * itself. The chain of parents is read from KV rather than the index, so
+     * changes other nodes have not announced yet are seen.
+     */
+    private void checkParent(Team team) {
+        String parentId = team.getParentId();
+        if (parentId == null) {
+            return;
+        }
+        if (parentId.isEmpty()) {
+            team.setParentId(null);
+            return;
         }
         
-        try {
-            return objectMapper.readValue(teamsJson, 
-                objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to deserialize team IDs", e);
+        Set<String> seen = new HashSet<>();
+        String ancestorId = parentId;
+        while (ancestorId != null && seen.add(ancestorId)) {
+            if (ancestorId.equals(team.getId())) {
+                throw new IllegalArgumentException(
+                    "Team " + parentId + " cannot be the parent of team " + team.getId() + ": it would create a cycle");
+            }
+            Optional<Team> ancestor = getTeamById(ancestorId);
+            if (!ancestor.isPresent()) {
+                if (ancestorId.equals(parentId)) {
+                    throw new NoSuchElementException("Parent team not found: " + parentId);
+                }
+                break;
+            }
+            ancestorId = ancestor.get().getParentId();
         }
     }
     
-    private void updateAllTeamsIndex(String teamId, boolean add) {
-        List<String> teamIds = getTeamIds();
+    private Team requireTeam(String teamId) {
+        return getTeamById(teamId)
+            .orElseThrow(() -> new NoSuchElementException("Team not found: " + teamId));
+    }
+    
+    /**
+     * Write a team read in this call, skipping the existence check of {@link #updateTeam}
+     */
+    private void saveTeam(Team team) {
+        kvStore.put(TEAM_KEY_PREFIX + team.getId(), records.writeTeam(team));
+        membershipIndex.put(team);
+        invalidationBus.publish(Collections.singletonList(TEAM_KEY_PREFIX + team.getId()));
+    }
+    
+    private void saveIfChanged(Team team, Map<String, MembershipResult> results) {
+        if (results.containsValue(MembershipResult.ADDED) || results.containsValue(MembershipResult.REMOVED)) {
+            saveTeam(team);
+        }
+    }
+    
+    /**
+     * Drops team keys changed on other nodes from the KV cache and refreshes
+     * their entries in the membership index
+     */
+    private final class TeamInvalidations implements CacheInvalidationBus.Subscriber {
+        @Override
+        public void invalidate(Collection<String> keys) {
+            List<String> teamKeys = keys.stream()
+                .filter(key -> key.startsWith(TEAM_KEY_PREFIX) || key.startsWith(ALL_TEAMS_KEY))
+                .collect(Collectors.toList());
+            if (teamKeys.isEmpty()) {
+                return;
+            }
+            kvStore.evictCached(teamKeys);
+            
+            for (String key : teamKeys) {
+                if (!key.startsWith(TEAM_KEY_PREFIX) || !membershipIndex.isLoaded()) {
+                    continue;
+                }
+                String teamId = key.substring(TEAM_KEY_PREFIX.length());
+                Optional<Team> team = getTeamById(teamId);
+                if (team.isPresent()) {
+                    membershipIndex.put(team.get());
+                } else {
+                    membershipIndex.remove(teamId);
+                }
+            }
+        }
         
-        if (add && !teamIds.contains(teamId)) {
-            teamIds.add(teamId);
-        } else if (!add) {
-            teamIds.remove(teamId);
-        } else {
-            // Team ID already exists in the list, no change needed
-            return;
+        @Override
+        public void invalidateAll() {
+            kvStore.evictAllCached();
+            rebuildMembershipIndex();
         }
+    }
+    
+    /**
+     * Rebuild the team index from the {@code team:} keys. Listed teams missing
+     * from their shard are added, indexed IDs whose team no longer exists are
+     * dropped, and the legacy unsharded index is folded in and deleted. Writes
+     * lost to concurrent updates of a shard are recovered here.
+     */
+    @Scheduled(
+        initialDelayString = "${teams.index.repairInitialDelayMs:60000}",
+        fixedDelayString = "${teams.index.repairIntervalMs:3600000}")
+    public void repairTeamIndex() {
+        List<String> listed = kvStore.listKeys(TEAM_KEY_PREFIX)
+            .map(key -> key.substring(TEAM_KEY_PREFIX.length()))
+            .collectList()
+            .block();
+        List<String> legacy = records.readIdList(ALL_TEAMS_KEY, kvStore.get(ALL_TEAMS_KEY));
         
-        try {
-            String teamsJson = objectMapper.writeValueAsString(teamIds);
-            kvAdapter.put(ALL_TEAMS_KEY, teamsJson);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize team IDs", e);
+        Map<String, List<String>> listedByShard = new HashMap<>();
+        for (String teamId : listed) {
+            listedByShard.computeIfAbsent(KVRecords.teamIndexShardKey(teamId, indexShards), key -> new ArrayList<>()).add(teamId);
+        }
+        for (String teamId : legacy) {
+            listedByShard.computeIfAbsent(KVRecords.teamIndexShardKey(teamId, indexShards), key -> new ArrayList<>()).add(teamId);
+        }
+        
+        int repaired = 0;
+        for (int shard = 0; shard < indexShards; shard++) {
+            String shardKey = KVRecords.TEAM_INDEX_SHARD_PREFIX + shard;
+            synchronized (shardLocks[shard]) {
+                List<String> indexed = records.readIdList(shardKey, kvStore.get(shardKey));
+                Set<String> candidates = new LinkedHashSet<>(indexed);
+                candidates.addAll(listedByShard.getOrDefault(shardKey, Collections.emptyList()));
+                
+                // Listings lag behind writes, so existence is checked with reads,
+                // which also see this node's unflushed writes
+                List<String> teamKeys = candidates.stream()
+                    .map(teamId -> TEAM_KEY_PREFIX + teamId)
+                    .collect(Collectors.toList());
+                Map<String, String> existing = kvStore.getMany(teamKeys);
+                List<String> teamIds = candidates.stream()
+                    .filter(teamId -> existing.containsKey(TEAM_KEY_PREFIX + teamId))
+                    .collect(Collectors.toList());
+                
+                if (!teamIds.equals(indexed)) {
+                    kvStore.put(shardKey, records.writeIdList(shardKey, teamIds));
+                    repaired++;
+                }
+            }
+        }
+        
+        if (!legacy.isEmpty()) {
+            kvStore.delete(ALL_TEAMS_KEY);
+        }
+        if (repaired > 0) {
+            System.out.println("Repaired " + repaired + " team index shards");
+        }
+        
+        // Pick up membership changes made on other nodes
+        rebuildMembershipIndex();
+    }
+    
+    private List<String> getTeamIds() {
+        // Read every shard in one concurrent batch and merge them
+        List<String> indexKeys = KVRecords.teamIndexKeys(indexShards);
+        return records.mergeTeamIndex(indexKeys, kvStore.getMany(indexKeys));
+    }
+    
+    private void updateAllTeamsIndex(String teamId, boolean add) {
+        // Only the shard holding the ID is rewritten, so updates of other shards proceed independently
+        String shardKey = KVRecords.teamIndexShardKey(teamId, indexShards);
+        synchronized (shardLocks[Math.floorMod(teamId.hashCode(), indexShards)]) {
+            List<String> teamIds = records.readIdList(shardKey, kvStore.get(shardKey));
+            
+            if (add && !teamIds.contains(teamId)) {
+                teamIds.add(teamId);
+            } else if (!add && teamIds.contains(teamId)) {
+                teamIds.remove(teamId);
+            } else {
+                // No change needed
+                return;
+            }
+            
+            kvStore.put(shardKey, records.writeIdList(shardKey, teamIds));
         }
     }
-} 
\ No newline at end of file
+}
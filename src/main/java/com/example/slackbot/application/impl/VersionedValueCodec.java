@@ -0,0 +1,176 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.ValueCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Value codec that writes either plain JSON or a compact binary envelope and
+ * reads both.
+ *
+ * The envelope is {@code [format version][flags][payload]}, base64-encoded
+ * because stored values are strings. Format version 1 is Smile, Jackson's
+ * binary JSON, with repeated names and short string values written as
+ * back-references; that covers Slack IDs listed as both member and manager.
+ * Payloads of at least {@code kv.codec.compressionThresholdBytes} are
+ * deflated when that makes them smaller. Base64 adds a third to the
+ * envelope, which can outweigh what Smile saves on a small value, so a value
+ * whose JSON is no longer than its encoded envelope is written as JSON.
+ * Base64 never starts with '{' or '[', so JSON, whether written before the
+ * codec existed or in place of an envelope, is told apart by its first
+ * character.
+ *
+ * KV could store the envelope as raw bytes through the bulk write's base64
+ * flag, but the bulk read endpoint returns values only as text, so stored
+ * values stay strings.
+ */
+@Component
+public class VersionedValueCodec implements ValueCodec {
+    static final byte FORMAT_SMILE = 1;
+    private static final byte FLAG_DEFLATED = 1;
+
+    public enum Format { JSON, SMILE }
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final Format writeFormat;
+    private final int compressionThreshold;
+
+    /**
+     * A codec that writes plain JSON
+     */
+    public VersionedValueCodec(ObjectMapper objectMapper) {
+        this(objectMapper, Format.JSON.name(), Integer.MAX_VALUE);
+    }
+
+    @Autowired
+    public VersionedValueCodec(
+            ObjectMapper objectMapper,
+            @Value("${kv.codec.format:smile}") String writeFormat,
+            @Value("${kv.codec.compressionThresholdBytes:512}") int compressionThreshold) {
+        this.jsonMapper = objectMapper;
+        this.smileMapper = objectMapper.copyWith(SmileFactory.builder()
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build());
+        this.writeFormat = Format.valueOf(writeFormat.toUpperCase(Locale.ROOT));
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public String encode(Object value) throws IOException {
+        if (writeFormat == Format.JSON) {
+            return jsonMapper.writeValueAsString(value);
+        }
+
+        byte[] payload = smileMapper.writeValueAsBytes(value);
+        byte flags = 0;
+        if (payload.length >= compressionThreshold) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                payload = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        byte[] envelope = new byte[payload.length + 2];
+        envelope[0] = FORMAT_SMILE;
+        envelope[1] = flags;
+        System.arraycopy(payload, 0, envelope, 2, payload.length);
+        String encoded = Base64.getEncoder().withoutPadding().encodeToString(envelope);
+
+        byte[] json = jsonMapper.writeValueAsBytes(value);
+        // Base64 is ASCII, so its length is its size in bytes
+        return encoded.length() < json.length ? encoded : new String(json, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(String stored, Class<T> type) throws IOException {
+        if (stored == null || stored.isEmpty()) {
+            return null;
+        }
+        if (isJson(stored)) {
+            return jsonMapper.readValue(stored, type);
+        }
+
+        byte[] envelope;
+        try {
+            envelope = Base64.getDecoder().decode(stored);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Stored value is neither JSON nor a codec envelope", e);
+        }
+        if (envelope.length < 2) {
+            throw new IOException("Truncated codec envelope");
+        }
+        if (envelope[0] != FORMAT_SMILE) {
+            throw new IOException("Unsupported value format version " + envelope[0]);
+        }
+
+        byte[] payload = new byte[envelope.length - 2];
+        System.arraycopy(envelope, 2, payload, 0, payload.length);
+        if ((envelope[1] & FLAG_DEFLATED) != 0) {
+            payload = inflate(payload);
+        }
+        return smileMapper.readValue(payload, type);
+    }
+
+    private static boolean isJson(String stored) {
+        for (int i = 0; i < stored.length(); i++) {
+            char c = stored.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{' || c == '[' || c == '"';
+            }
+        }
+        return false;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflated value");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt deflated value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.slackbot.configuration;
 
 import com.example.slackbot.application.ReminderService;
+import com.example.slackbot.application.StatusRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
@@ -14,13 +15,16 @@ import java.time.ZoneId;
 public class SchedulingConfig {
 
     private final ReminderService reminderService;
+    private final StatusRollupService statusRollupService;
     private final String timezone;
     
     @Autowired
     public SchedulingConfig(
             ReminderService reminderService,
+            StatusRollupService statusRollupService,
             @Value("${scheduling.timezone}") String timezone) {
         this.reminderService = reminderService;
+        this.statusRollupService = statusRollupService;
         this.timezone = timezone;
     }
 
@@ -28,4 +32,9 @@ public class SchedulingConfig {
     public void sendDailyReminder() {
         reminderService.sendDailyReminders();
     }
+
+    @Scheduled(cron = "${status.rollup.cron:0 30 2 * * ?}", zone = "${scheduling.timezone}")
+    public void rollUpStatuses() {
+        statusRollupService.rollUpStatuses();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,406 @@
+package com.example.slackbot.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Set of Slack user IDs stored over {@link UserIdDictionary} IDs, either as
+ * a sorted array of IDs or as a bitmap, whichever is smaller. The dictionary
+ * is shared by the whole process, so a bitmap costs a bit per user ever seen
+ * up to the highest ID in the set; a small team of recently seen users is
+ * kept as an array and looked up by binary search instead. Intersections and
+ * unions of two bitmaps are word-wise bitmap operations. Iteration follows
+ * dictionary order. Like {@link java.util.HashSet}, the set is not safe for
+ * concurrent modification; {@link #frozen} sets cannot be modified and may
+ * be shared between threads.
+ */
+public class MemberSet extends AbstractSet<String> {
+    private static final int[] NO_IDS = new int[0];
+
+    private final UserIdDictionary dictionary;
+    private final boolean frozen;
+    // Exactly one is set: the sorted IDs in ids[0..size), or a bitmap of them
+    private int[] ids;
+    private BitSet bits;
+    private int size;
+
+    public MemberSet() {
+        this(UserIdDictionary.shared());
+    }
+
+    public MemberSet(Collection<String> userIds) {
+        this();
+        addAll(userIds);
+    }
+
+    MemberSet(UserIdDictionary dictionary) {
+        this(dictionary, NO_IDS, null, 0, false);
+    }
+
+    private MemberSet(UserIdDictionary dictionary, int[] ids, BitSet bits, int size, boolean frozen) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+        this.bits = bits;
+        this.size = size;
+        this.frozen = frozen;
+    }
+
+    /**
+     * @return An unmodifiable set of the same users, in the smaller of the
+     *     two forms; this set if it is already frozen
+     */
+    public MemberSet frozen() {
+        if (frozen) {
+            return this;
+        }
+        MemberSet copy = mutableCopy();
+        copy.compact();
+        return new MemberSet(dictionary, copy.ids, copy.bits, copy.size, true);
+    }
+
+    /**
+     * @return A modifiable copy of this set
+     */
+    public MemberSet mutableCopy() {
+        if (bits != null) {
+            return new MemberSet(dictionary, null, (BitSet) bits.clone(), size, false);
+        }
+        return new MemberSet(dictionary, Arrays.copyOf(ids, size), null, size, false);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @Override
+    public boolean contains(Object userId) {
+        if (!(userId instanceof String)) {
+            return false;
+        }
+        int id = dictionary.lookup((String) userId);
+        return id >= 0 && containsId(id);
+    }
+
+    @Override
+    public boolean add(String userId) {
+        checkMutable();
+        int id = dictionary.intern(Objects.requireNonNull(userId, "userId"));
+        if (bits != null) {
+            if (bits.get(id)) {
+                return false;
+            }
+            bits.set(id);
+            size++;
+            return true;
+        }
+
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return false;
+        }
+        if (size == ids.length) {
+            int highestId = size > 0 ? Math.max(ids[size - 1], id) : id;
+            if (!arrayIsSmaller(size + 1, highestId)) {
+                toBitmap();
+                bits.set(id);
+                size++;
+                return true;
+            }
+            ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+        }
+        int insertAt = -index - 1;
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object userId) {
+        checkMutable();
+        if (!(userId instanceof String)) {
+            return false;
+        }
+        int id = dictionary.lookup((String) userId);
+        if (id < 0 || !containsId(id)) {
+            return false;
+        }
+        removeId(id);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> userIds) {
+        checkMutable();
+        if (!(userIds instanceof MemberSet) || ((MemberSet) userIds).dictionary != dictionary) {
+            return super.addAll(userIds);
+        }
+        MemberSet other = (MemberSet) userIds;
+        int before = size;
+        if (bits == null && other.bits == null) {
+            ids = union(ids, size, other.ids, other.size);
+            size = ids.length;
+        } else {
+            toBitmap();
+            bits.or(other.bitmap());
+            size = bits.cardinality();
+        }
+        compact();
+        return size != before;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> userIds) {
+        checkMutable();
+        if (!(userIds instanceof MemberSet) || ((MemberSet) userIds).dictionary != dictionary) {
+            return super.retainAll(userIds);
+        }
+        MemberSet other = (MemberSet) userIds;
+        int before = size;
+        if (bits != null && other.bits != null) {
+            bits.and(other.bits);
+            size = bits.cardinality();
+        } else {
+            // At least one side is sparse, so the result is at most that side's IDs
+            MemberSet sparse = bits == null ? this : other;
+            MemberSet dense = sparse == this ? other : this;
+            int[] common = new int[Math.min(sparse.size, dense.size)];
+            int count = 0;
+            for (int i = 0; i < sparse.size; i++) {
+                if (dense.containsId(sparse.ids[i])) {
+                    common[count++] = sparse.ids[i];
+                }
+            }
+            ids = common;
+            bits = null;
+            size = count;
+        }
+        compact();
+        return size != before;
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        ids = NO_IDS;
+        bits = null;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A new set of the users in both this set and {@code other}
+     */
+    public MemberSet intersection(MemberSet other) {
+        MemberSet result = mutableCopy();
+        result.retainAll(other);
+        return result;
+    }
+
+    /**
+     * @return The number of users in both this set and {@code other}, without building the intersection
+     */
+    public int intersectionSize(MemberSet other) {
+        if (other.dictionary != dictionary) {
+            return intersection(other).size();
+        }
+        if (bits != null && other.bits != null) {
+            BitSet common = (BitSet) bits.clone();
+            common.and(other.bits);
+            return common.cardinality();
+        }
+        MemberSet sparse = bits == null ? this : other;
+        MemberSet dense = sparse == this ? other : this;
+        int count = 0;
+        for (int i = 0; i < sparse.size; i++) {
+            if (dense.containsId(sparse.ids[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The bytes held by the IDs or bitmap, not counting the dictionary
+     */
+    long storageBytes() {
+        if (bits != null) {
+            return (long) bits.size() / Byte.SIZE;
+        }
+        return (long) ids.length * Integer.BYTES;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return bits != null ? bitmapIterator() : arrayIterator();
+    }
+
+    private Iterator<String> bitmapIterator() {
+        return new Iterator<String>() {
+            private int next = bits.nextSetBit(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = bits.nextSetBit(next + 1);
+                return dictionary.userId(last);
+            }
+
+            @Override
+            public void remove() {
+                checkMutable();
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                bits.clear(last);
+                size--;
+                last = -1;
+            }
+        };
+    }
+
+    private Iterator<String> arrayIterator() {
+        return new Iterator<String>() {
+            private int next;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                removable = true;
+                return dictionary.userId(ids[next++]);
+            }
+
+            @Override
+            public void remove() {
+                checkMutable();
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                removeId(ids[--next]);
+                removable = false;
+            }
+        };
+    }
+
+    private boolean containsId(int id) {
+        if (bits != null) {
+            return bits.get(id);
+        }
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    private void removeId(int id) {
+        if (bits != null) {
+            bits.clear(id);
+            size--;
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * @return The set as a bitmap, without converting this set
+     */
+    private BitSet bitmap() {
+        if (bits != null) {
+            return bits;
+        }
+        BitSet bitmap = new BitSet(size > 0 ? ids[size - 1] + 1 : 0);
+        for (int i = 0; i < size; i++) {
+            bitmap.set(ids[i]);
+        }
+        return bitmap;
+    }
+
+    private void toBitmap() {
+        if (bits == null) {
+            bits = bitmap();
+            ids = null;
+        }
+    }
+
+    /**
+     * Switch to whichever form holds the current IDs in fewer bytes
+     */
+    private void compact() {
+        if (bits != null) {
+            if (size == 0 || arrayIsSmaller(size, bits.length() - 1)) {
+                int[] sorted = new int[size];
+                int count = 0;
+                for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                    sorted[count++] = id;
+                }
+                ids = sorted;
+                bits = null;
+            }
+        } else if (size > 0 && !arrayIsSmaller(size, ids[size - 1])) {
+            toBitmap();
+        } else if (ids.length > size) {
+            ids = size == 0 ? NO_IDS : Arrays.copyOf(ids, size);
+        }
+    }
+
+    private static boolean arrayIsSmaller(int count, int highestId) {
+        long arrayBytes = (long) count * Integer.BYTES;
+        long bitmapBytes = ((long) highestId / Long.SIZE + 1) * Long.BYTES;
+        return arrayBytes < bitmapBytes;
+    }
+
+    private static int[] union(int[] a, int aSize, int[] b, int bSize) {
+        int[] merged = new int[aSize + bSize];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) {
+                merged[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[count++] = b[j++];
+            } else {
+                merged[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < aSize) {
+            merged[count++] = a[i++];
+        }
+        while (j < bSize) {
+            merged[count++] = b[j++];
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Member set is frozen");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.slackbot.domain;
+
+/**
+ * Outcome of a bulk team membership change for one user
+ */
+public enum MembershipResult {
+    ADDED,
+    ALREADY_MEMBER,
+    REMOVED,
+    NOT_MEMBER,
+    /**
+     * Not removed, because the user is the team's last manager
+     */
+    LAST_MANAGER,
+    /**
+     * Not removed by a membership replacement, because the user is a manager
+     */
+    KEPT_MANAGER
+}
@@ -0,0 +1,96 @@
+package com.example.slackbot.domain;
+
+/**
+ * Key layout for daily statuses.
+ *
+ * Version 2 stores each status under {@code status:{date}:{userId}} and keeps
+ * a per-team index of the users who submitted on a date under
+ * {@code status_index:{teamId}:{date}}, next to a digest entry holding each
+ * user's summary under {@code status_digest:{teamId}:{date}:{userId}}, so a
+ * team's digest is read by listing one prefix. Version 1 stored statuses
+ * under the bare user ID, overwriting the previous day. Digest entries were
+ * added to version 2 later; the first date all of whose statuses have them
+ * is kept under {@link #DIGESTS_SINCE_KEY}.
+ *
+ * Statuses past the retention window are rolled up per team and period under
+ * {@code status_rollup:{teamId}:{period}}; the last date rolled up is kept
+ * under {@link #ROLLUP_CURSOR_KEY}.
+ */
+public final class StatusKeys {
+    public static final int SCHEMA_VERSION = 2;
+    public static final String SCHEMA_VERSION_KEY = "schema_version:status";
+    public static final String ROLLUP_CURSOR_KEY = "rollup_cursor:status";
+    // Digests were first stored as one key per team and date, which nodes overwrote concurrently
+    public static final String DIGESTS_SINCE_KEY = "digest_entries_since:status";
+
+    private static final String STATUS_PREFIX = "status:";
+    private static final String TEAM_INDEX_PREFIX = "status_index:";
+    private static final String DIGEST_PREFIX = "status_digest:";
+    private static final String ROLLUP_PREFIX = "status_rollup:";
+
+    private StatusKeys() {
+    }
+
+    /**
+     * Key of one user's status on a date
+     */
+    public static String statusKey(String date, String userId) {
+        return STATUS_PREFIX + date + ":" + userId;
+    }
+
+    /**
+     * Prefix shared by all status keys
+     */
+    public static String statusPrefix() {
+        return STATUS_PREFIX;
+    }
+
+    /**
+     * Prefix shared by all status keys of a date
+     */
+    public static String datePrefix(String date) {
+        return STATUS_PREFIX + date + ":";
+    }
+
+    /**
+     * Key of the list of users who submitted a status for a team on a date
+     */
+    public static String teamIndexKey(String teamId, String date) {
+        return TEAM_INDEX_PREFIX + teamId + ":" + date;
+    }
+
+    /**
+     * Key of one user's entry in the digest of a team's status summaries on a date
+     */
+    public static String digestEntryKey(String teamId, String date, String userId) {
+        return digestPrefix(teamId, date) + userId;
+    }
+
+    /**
+     * Prefix shared by the entries of a team's digest on a date
+     */
+    public static String digestPrefix(String teamId, String date) {
+        return DIGEST_PREFIX + teamId + ":" + date + ":";
+    }
+
+    /**
+     * Key of a team's rollup of one period, such as {@code 2023-W41} or {@code 2023-10}
+     */
+    public static String rollupKey(String teamId, String period) {
+        return ROLLUP_PREFIX + teamId + ":" + period;
+    }
+
+    /**
+     * The date in a status key
+     */
+    public static String dateOf(String statusKey) {
+        return statusKey.substring(STATUS_PREFIX.length(), statusKey.lastIndexOf(':'));
+    }
+
+    /**
+     * The user ID in a status key or digest entry key; a version 1 key is the user ID itself
+     */
+    public static String userIdOf(String statusKey) {
+        return statusKey.substring(statusKey.lastIndexOf(':') + 1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.slackbot.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The status summaries of one team over a week or a month, kept after the
+ * daily statuses they were built from have expired.
+ */
+public class StatusRollup {
+    private String teamId;
+    private String period;
+    private Map<String, List<StatusSummary>> days = new TreeMap<>();
+
+    public StatusRollup() {
+    }
+
+    public StatusRollup(String teamId, String period) {
+        this.teamId = teamId;
+        this.period = period;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    /**
+     * @return The period, as an ISO week such as {@code 2023-W41} or a month such as {@code 2023-10}
+     */
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    /**
+     * @return The summaries by date in format YYYY-MM-DD, oldest date first
+     */
+    public Map<String, List<StatusSummary>> getDays() {
+        return days;
+    }
+
+    public void setDays(Map<String, List<StatusSummary>> days) {
+        this.days = new TreeMap<>(days);
+    }
+
+    /**
+     * Replace the summaries of one date
+     */
+    public void putDay(String date, List<StatusSummary> summaries) {
+        days.put(date, summaries);
+    }
+
+    /**
+     * @return The summaries of a date, or an empty list if none were rolled up
+     */
+    public List<StatusSummary> getDay(String date) {
+        return days.getOrDefault(date, new ArrayList<>());
+    }
+}
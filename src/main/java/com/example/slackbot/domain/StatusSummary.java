@@ -0,0 +1,91 @@
+package com.example.slackbot.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Short form of a daily status, small enough to be stored as KV key metadata
+ * and read from key listings without fetching the status itself.
+ */
+public class StatusSummary {
+    /**
+     * Maximum length of the task line, in characters
+     */
+    public static final int MAX_TASKS_LENGTH = 120;
+
+    private String developerId;
+    private String availability;
+    private String tasks;
+    private boolean hasNotes;
+
+    public StatusSummary() {
+    }
+
+    public StatusSummary(String developerId, String availability, String tasks, boolean hasNotes) {
+        this.developerId = developerId;
+        this.availability = availability;
+        this.tasks = tasks;
+        this.hasNotes = hasNotes;
+    }
+
+    /**
+     * Summarize a status: the first line of its tasks, truncated to
+     * {@link #MAX_TASKS_LENGTH} characters, and whether it has notes
+     */
+    public static StatusSummary of(DailyStatus status) {
+        return new StatusSummary(
+            status.getDeveloperId(),
+            status.getAvailability(),
+            taskLine(status.getTasks()),
+            status.getNotes() != null && !status.getNotes().isEmpty());
+    }
+
+    private static String taskLine(String tasks) {
+        if (tasks == null) {
+            return null;
+        }
+        String line = tasks.strip();
+        int newline = line.indexOf('\n');
+        boolean truncated = newline >= 0;
+        if (truncated) {
+            line = line.substring(0, newline).strip();
+        }
+        if (line.codePointCount(0, line.length()) > MAX_TASKS_LENGTH) {
+            line = line.substring(0, line.offsetByCodePoints(0, MAX_TASKS_LENGTH - 1));
+            truncated = true;
+        }
+        return truncated ? line + "…" : line;
+    }
+
+    public String getDeveloperId() {
+        return developerId;
+    }
+
+    public void setDeveloperId(String developerId) {
+        this.developerId = developerId;
+    }
+
+    public String getAvailability() {
+        return availability;
+    }
+
+    public void setAvailability(String availability) {
+        this.availability = availability;
+    }
+
+    public String getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(String tasks) {
+        this.tasks = tasks;
+    }
+
+    @JsonProperty("hasNotes")
+    public boolean hasNotes() {
+        return hasNotes;
+    }
+
+    public void setHasNotes(boolean hasNotes) {
+        this.hasNotes = hasNotes;
+    }
+}
@@ -1,14 +1,19 @@
 package com.example.slackbot.domain;
 
-import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * A team. Members and managers are held as {@link MemberSet} bitmaps over
+ * interned user IDs and are stored as lists of Slack user IDs. A team may
+ * belong to a parent team, such as a squad within a department.
+ */
 public class Team {
     private String id;
     private String name;
     private String description;
-    private Set<String> memberIds = new HashSet<>();
-    private Set<String> managerIds = new HashSet<>();
+    private String parentId;
+    private MemberSet memberIds = new MemberSet();
+    private MemberSet managerIds = new MemberSet();
 
     public String getId() {
         return id;
@@ -34,12 +39,23 @@ public class Team {
         this.description = description;
     }
 
-    public Set<String> getMemberIds() {
+    /**
+     * @return The ID of the parent team, or null for a top-level team
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(String parentId) {
+        this.parentId = parentId;
+    }
+
+    public MemberSet getMemberIds() {
         return memberIds;
     }
 
     public void setMemberIds(Set<String> memberIds) {
-        this.memberIds = memberIds;
+        this.memberIds = new MemberSet(memberIds);
     }
 
     public void addMember(String memberId) {
@@ -54,12 +70,12 @@ public class Team {
         return memberIds.contains(userId);
     }
 
-    public Set<String> getManagerIds() {
+    public MemberSet getManagerIds() {
         return managerIds;
     }
 
     public void setManagerIds(Set<String> managerIds) {
-        this.managerIds = managerIds;
+        this.managerIds = new MemberSet(managerIds);
     }
     
     public void addManager(String managerId) {
@@ -79,4 +95,11 @@ public class Team {
     public boolean hasManagers() {
         return !managerIds.isEmpty();
     }
+
+    /**
+     * @return The members of this team who are also members of {@code other}
+     */
+    public MemberSet getCommonMemberIds(Team other) {
+        return memberIds.intersection(other.memberIds);
+    }
 } 
\ No newline at end of file
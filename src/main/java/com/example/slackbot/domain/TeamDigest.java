@@ -0,0 +1,175 @@
+package com.example.slackbot.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * The status summaries of one team on one date, with the number of members
+ * at each availability. Each submitted status is stored as an entry of its
+ * team's digest, so a team's status is read without reading its members'
+ * statuses. A digest merged from the digests of a team and the teams below
+ * it holds the summaries of all of them. Its {@link #getVersionKey} is
+ * derived from the summaries alone, so nodes reading the same entries agree
+ * on it and anything derived from a digest can be keyed by it.
+ */
+public class TeamDigest {
+    private String teamId;
+    private String date;
+    private Map<String, StatusSummary> entries = new LinkedHashMap<>();
+    private Map<String, Integer> availabilityCounts = new TreeMap<>();
+
+    public TeamDigest() {
+    }
+
+    public TeamDigest(String teamId, String date) {
+        this.teamId = teamId;
+        this.date = date;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    /**
+     * @return The date in format YYYY-MM-DD
+     */
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    /**
+     * @return The summaries by user ID, in the order they were put
+     */
+    public Map<String, StatusSummary> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(Map<String, StatusSummary> entries) {
+        this.entries = new LinkedHashMap<>(entries);
+    }
+
+    /**
+     * @return The number of summaries by availability
+     */
+    public Map<String, Integer> getAvailabilityCounts() {
+        return availabilityCounts;
+    }
+
+    public void setAvailabilityCounts(Map<String, Integer> availabilityCounts) {
+        this.availabilityCounts = new TreeMap<>(availabilityCounts);
+    }
+
+    /**
+     * Add a user's summary, replacing the one they submitted earlier that day
+     * @return Whether the digest changed
+     */
+    public boolean put(StatusSummary summary) {
+        return apply(summary);
+    }
+
+    /**
+     * Add the summaries of another digest, such as one of a sub-team. A user
+     * in both keeps the summary already in this digest.
+     */
+    public void merge(TeamDigest other) {
+        for (StatusSummary summary : other.entries.values()) {
+            if (!entries.containsKey(summary.getDeveloperId())) {
+                apply(summary);
+            }
+        }
+    }
+
+    /**
+     * @return A hash of the summaries in order, which changes whenever one
+     *     of them does
+     */
+    @JsonIgnore
+    public String getVersionKey() {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (StatusSummary summary : entries.values()) {
+            update(sha256, summary.getDeveloperId());
+            update(sha256, summary.getAvailability());
+            update(sha256, summary.getTasks());
+            sha256.update((byte) (summary.hasNotes() ? 1 : 0));
+        }
+        // 128 bits are plenty to tell the digests of one team and date apart
+        return HexFormat.of().formatHex(sha256.digest(), 0, 16);
+    }
+
+    @JsonIgnore
+    public List<StatusSummary> getSummaries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    private boolean apply(StatusSummary summary) {
+        StatusSummary previous = entries.put(summary.getDeveloperId(), summary);
+        if (previous != null) {
+            if (sameSummary(previous, summary)) {
+                return false;
+            }
+            count(previous.getAvailability(), -1);
+        }
+        count(summary.getAvailability(), 1);
+        return true;
+    }
+
+    private void count(String availability, int delta) {
+        String key = availability != null ? availability : "";
+        int count = availabilityCounts.getOrDefault(key, 0) + delta;
+        if (count > 0) {
+            availabilityCounts.put(key, count);
+        } else {
+            availabilityCounts.remove(key);
+        }
+    }
+
+    /**
+     * Hash a field with its length, so that no two different sequences of
+     * fields hash the same bytes
+     */
+    private static void update(MessageDigest sha256, String value) {
+        if (value == null) {
+            sha256.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        sha256.update((byte) 1);
+        sha256.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        sha256.update(bytes);
+    }
+
+    private static boolean sameSummary(StatusSummary a, StatusSummary b) {
+        return Objects.equals(a.getAvailability(), b.getAvailability())
+            && Objects.equals(a.getTasks(), b.getTasks())
+            && a.hasNotes() == b.hasNotes();
+    }
+}
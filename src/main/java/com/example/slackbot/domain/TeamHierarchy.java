@@ -0,0 +1,72 @@
+package com.example.slackbot.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where a team sits among nested teams: its ancestors and descendants, and
+ * everyone in the team or any team below it. Hierarchies are immutable and
+ * kept up to date by the membership index, so org-level lookups need no walk
+ * over the teams.
+ */
+public final class TeamHierarchy {
+    private final String teamId;
+    private final List<String> ancestorIds;
+    private final List<String> childIds;
+    private final List<String> descendantIds;
+    private final MemberSet memberIds;
+    private final MemberSet ancestorManagerIds;
+
+    public TeamHierarchy(String teamId, List<String> ancestorIds, List<String> childIds,
+            List<String> descendantIds, MemberSet memberIds, MemberSet ancestorManagerIds) {
+        this.teamId = teamId;
+        this.ancestorIds = Collections.unmodifiableList(ancestorIds);
+        this.childIds = Collections.unmodifiableList(childIds);
+        this.descendantIds = Collections.unmodifiableList(descendantIds);
+        this.memberIds = memberIds.frozen();
+        this.ancestorManagerIds = ancestorManagerIds.frozen();
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    /**
+     * @return The IDs of the teams above this one, nearest first
+     */
+    public List<String> getAncestorIds() {
+        return ancestorIds;
+    }
+
+    /**
+     * @return The IDs of the teams directly below this one
+     */
+    public List<String> getChildIds() {
+        return childIds;
+    }
+
+    /**
+     * @return The IDs of every team below this one, not including this team
+     */
+    public List<String> getDescendantIds() {
+        return descendantIds;
+    }
+
+    /**
+     * @return The members and managers of this team and every team below it
+     */
+    public MemberSet getMemberIds() {
+        return memberIds;
+    }
+
+    /**
+     * @return Whether the user manages any team above this one
+     */
+    public boolean isManagedFromAbove(String userId) {
+        return userId != null && ancestorManagerIds.contains(userId);
+    }
+
+    public boolean hasDescendants() {
+        return !descendantIds.isEmpty();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.slackbot.domain;
+
+import java.util.List;
+
+/**
+ * One page of teams, in team ID order. The next page starts after
+ * {@link #getNextCursor()}, which is null on the last page.
+ */
+public class TeamPage {
+    private final List<TeamSnapshot> teams;
+    private final String nextCursor;
+
+    public TeamPage(List<TeamSnapshot> teams, String nextCursor) {
+        this.teams = teams;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TeamSnapshot> getTeams() {
+        return teams;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.slackbot.domain;
+
+import java.util.Objects;
+
+/**
+ * Immutable version of a {@link Team}. Snapshots are safe to share between
+ * threads without locking or copying; changes produce a new snapshot through
+ * the {@code with} methods, and {@link #toTeam()} gives a mutable copy to
+ * save.
+ */
+public final class TeamSnapshot {
+    private final String id;
+    private final String name;
+    private final String description;
+    private final String parentId;
+    private final MemberSet memberIds;
+    private final MemberSet managerIds;
+
+    private TeamSnapshot(String id, String name, String description, String parentId,
+            MemberSet memberIds, MemberSet managerIds) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.parentId = parentId;
+        this.memberIds = memberIds.frozen();
+        this.managerIds = managerIds.frozen();
+    }
+
+    public static TeamSnapshot of(Team team) {
+        return new TeamSnapshot(team.getId(), team.getName(), team.getDescription(), team.getParentId(),
+            team.getMemberIds(), team.getManagerIds());
+    }
+
+    /**
+     * @return A mutable team with the same fields
+     */
+    public Team toTeam() {
+        Team team = new Team();
+        team.setId(id);
+        team.setName(name);
+        team.setDescription(description);
+        team.setParentId(parentId);
+        team.setMemberIds(memberIds);
+        team.setManagerIds(managerIds);
+        return team;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return The ID of the parent team, or null for a top-level team
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * @return The members, as a set that cannot be modified
+     */
+    public MemberSet getMemberIds() {
+        return memberIds;
+    }
+
+    /**
+     * @return The managers, as a set that cannot be modified
+     */
+    public MemberSet getManagerIds() {
+        return managerIds;
+    }
+
+    public boolean isMember(String userId) {
+        return memberIds.contains(userId);
+    }
+
+    public boolean isManager(String userId) {
+        return userId != null && managerIds.contains(userId);
+    }
+
+    public boolean hasManagers() {
+        return !managerIds.isEmpty();
+    }
+
+    /**
+     * @return The members of this team who are also members of {@code other}
+     */
+    public MemberSet getCommonMemberIds(TeamSnapshot other) {
+        return memberIds.intersection(other.memberIds);
+    }
+
+    public TeamSnapshot withName(String name) {
+        return Objects.equals(this.name, name) ? this
+            : new TeamSnapshot(id, name, description, parentId, memberIds, managerIds);
+    }
+
+    public TeamSnapshot withDescription(String description) {
+        return Objects.equals(this.description, description) ? this
+            : new TeamSnapshot(id, name, description, parentId, memberIds, managerIds);
+    }
+
+    public TeamSnapshot withParentId(String parentId) {
+        return Objects.equals(this.parentId, parentId) ? this
+            : new TeamSnapshot(id, name, description, parentId, memberIds, managerIds);
+    }
+
+    public TeamSnapshot withMember(String memberId) {
+        if (isMember(memberId)) {
+            return this;
+        }
+        MemberSet members = memberIds.mutableCopy();
+        members.add(memberId);
+        return new TeamSnapshot(id, name, description, parentId, members, managerIds);
+    }
+
+    public TeamSnapshot withoutMember(String memberId) {
+        if (!isMember(memberId)) {
+            return this;
+        }
+        MemberSet members = memberIds.mutableCopy();
+        members.remove(memberId);
+        return new TeamSnapshot(id, name, description, parentId, members, managerIds);
+    }
+
+    /**
+     * Add a manager, who is also made a member
+     */
+    public TeamSnapshot withManager(String managerId) {
+        if (isManager(managerId) && isMember(managerId)) {
+            return this;
+        }
+        MemberSet members = memberIds.mutableCopy();
+        members.add(managerId);
+        MemberSet managers = managerIds.mutableCopy();
+        managers.add(managerId);
+        return new TeamSnapshot(id, name, description, parentId, members, managers);
+    }
+
+    public TeamSnapshot withoutManager(String managerId) {
+        if (!isManager(managerId)) {
+            return this;
+        }
+        MemberSet managers = managerIds.mutableCopy();
+        managers.remove(managerId);
+        return new TeamSnapshot(id, name, description, parentId, memberIds, managers);
+    }
+}
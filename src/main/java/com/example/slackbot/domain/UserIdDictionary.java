@@ -0,0 +1,73 @@
+package com.example.slackbot.domain;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary from Slack user IDs to dense ints, so membership
+ * sets can be stored as bitmaps and every user ID string is held once.
+ *
+ * IDs are assigned in first-seen order and never reused or released; they
+ * are only meaningful within this process and are never stored.
+ */
+public final class UserIdDictionary {
+    private static final UserIdDictionary SHARED = new UserIdDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Replaced when full; written before the ID is published in "ids"
+    private volatile String[] userIds = new String[256];
+    // Guarded by "this"
+    private int size;
+
+    /**
+     * @return The dictionary shared by every team in this process
+     */
+    public static UserIdDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The int ID of a user, assigning the next free one on first sight
+     */
+    public int intern(String userId) {
+        Integer id = ids.get(userId);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(userId);
+            if (id != null) {
+                return id;
+            }
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+            }
+            userIds[size] = userId;
+            ids.put(userId, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @return The int ID of a user, or -1 if the user has never been interned
+     */
+    public int lookup(String userId) {
+        Integer id = ids.get(userId);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return The user ID with an int ID returned by {@link #intern}
+     */
+    public String userId(int id) {
+        return userIds[id];
+    }
+
+    /**
+     * @return The number of user IDs interned so far
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import com.example.slackbot.application.DailyStatusService;
+import com.example.slackbot.application.ReactiveDailyStatusService;
+import com.example.slackbot.application.ReactiveTeamService;
 import com.example.slackbot.application.TeamService;
 import com.example.slackbot.adapters.primary.SlackEventAdapter;
 
@@ -22,7 +24,8 @@ class SlackEventAdapterTest {
         app = Mockito.mock(App.class);
         dailyStatusService = Mockito.mock(DailyStatusService.class);
         teamService = Mockito.mock(TeamService.class);
-        adapter = new SlackEventAdapter(app, dailyStatusService, teamService);
+        adapter = new SlackEventAdapter(app, dailyStatusService, teamService,
+            Mockito.mock(ReactiveDailyStatusService.class), Mockito.mock(ReactiveTeamService.class));
     }
 
     @Test
@@ -2,10 +2,14 @@ package com.example.slackbot.adapters.primary;
 
 import com.example.slackbot.IntegrationTestConfig;
 import com.example.slackbot.application.DailyStatusService;
+import com.example.slackbot.application.ReactiveDailyStatusService;
+import com.example.slackbot.application.ReactiveTeamService;
 import com.example.slackbot.application.TeamService;
 import com.example.slackbot.adapters.secondary.OutlookCalendarAdapter;
 import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusSummary;
 import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamDigest;
 import com.slack.api.app_backend.slash_commands.payload.SlashCommandPayload;
 import com.slack.api.bolt.App;
 import com.slack.api.bolt.context.builtin.SlashCommandContext;
@@ -22,13 +26,14 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -48,6 +53,9 @@ class SlackEventTeamAccessIntegrationTest {
     
     @MockBean
     private TeamService teamService;
+    
+    private ReactiveDailyStatusService reactiveDailyStatusService;
+    private ReactiveTeamService reactiveTeamService;
 
     private SlackEventAdapter slackEventAdapter;
     private ArgumentCaptor<SlashCommandHandler> handlerCaptor;
@@ -57,12 +65,14 @@ class SlackEventTeamAccessIntegrationTest {
         // Mock the dependencies
         dailyStatusService = Mockito.mock(DailyStatusService.class);
         teamService = Mockito.mock(TeamService.class);
+        reactiveDailyStatusService = Mockito.mock(ReactiveDailyStatusService.class);
+        reactiveTeamService = Mockito.mock(ReactiveTeamService.class);
         
         // Capture the command handler
         handlerCaptor = ArgumentCaptor.forClass(SlashCommandHandler.class);
         
         // Create the adapter
-        slackEventAdapter = new SlackEventAdapter(app, dailyStatusService, teamService);
+        slackEventAdapter = new SlackEventAdapter(app, dailyStatusService, teamService, reactiveDailyStatusService, reactiveTeamService);
         
         // Initialize the adapter, which registers the command handlers
         slackEventAdapter.init();
@@ -90,16 +100,16 @@ class SlackEventTeamAccessIntegrationTest {
         design.addMember("designer1");
         
         // Mock team service responses
-        when(teamService.getTeamById("team1")).thenReturn(Optional.of(engineering));
-        when(teamService.getTeamById("team2")).thenReturn(Optional.of(design));
+        when(reactiveTeamService.getTeamById(anyString())).thenReturn(Mono.empty());
+        when(reactiveTeamService.getTeamById("team1")).thenReturn(Mono.just(engineering));
+        when(reactiveTeamService.getTeamById("team2")).thenReturn(Mono.just(design));
         
-        List<Team> manager1Teams = Arrays.asList(engineering);
-        List<Team> dev1Teams = Arrays.asList(engineering);
-        List<Team> manager2Teams = Arrays.asList(design);
+        when(reactiveTeamService.getTeamHierarchy(anyString())).thenReturn(Mono.empty());
         
-        when(teamService.getTeamsByUserId("manager1")).thenReturn(manager1Teams);
-        when(teamService.getTeamsByUserId("dev1")).thenReturn(dev1Teams);
-        when(teamService.getTeamsByUserId("manager2")).thenReturn(manager2Teams);
+        when(reactiveTeamService.getTeamsByUserId(anyString())).thenReturn(Flux.empty());
+        when(reactiveTeamService.getTeamsByUserId("manager1")).thenReturn(Flux.just(engineering));
+        when(reactiveTeamService.getTeamsByUserId("dev1")).thenReturn(Flux.just(engineering));
+        when(reactiveTeamService.getTeamsByUserId("manager2")).thenReturn(Flux.just(design));
         
         // Mock daily status responses
         String today = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
@@ -110,21 +120,29 @@ class SlackEventTeamAccessIntegrationTest {
         DailyStatus designerStatus = createStatus("designer1", "Available", "Creating mockups", null);
         allStatuses.addAll(Arrays.asList(dev1Status, dev2Status, designerStatus));
         
-        when(dailyStatusService.getDailyStatuses(today)).thenReturn(allStatuses);
+        when(reactiveDailyStatusService.getDailyStatuses(today)).thenReturn(Flux.fromIterable(allStatuses));
+        when(reactiveDailyStatusService.getUserDailyStatus(eq(today), anyString())).thenReturn(Mono.empty());
+        when(reactiveDailyStatusService.getUserDailyStatus(today, "dev1")).thenReturn(Mono.just(dev1Status));
+        when(reactiveDailyStatusService.getUserDailyStatus(today, "dev2")).thenReturn(Mono.just(dev2Status));
+        when(reactiveDailyStatusService.getUserDailyStatus(today, "designer1")).thenReturn(Mono.just(designerStatus));
         
-        List<DailyStatus> team1Statuses = Arrays.asList(dev1Status, dev2Status);
-        List<DailyStatus> team2Statuses = Arrays.asList(designerStatus);
+        TeamDigest team1Digest = new TeamDigest("team1", today);
+        team1Digest.put(StatusSummary.of(dev1Status));
+        team1Digest.put(StatusSummary.of(dev2Status));
+        TeamDigest team2Digest = new TeamDigest("team2", today);
+        team2Digest.put(StatusSummary.of(designerStatus));
         
-        when(dailyStatusService.getTeamDailyStatuses(eq(today), eq("team1"))).thenReturn(team1Statuses);
-        when(dailyStatusService.getTeamDailyStatuses(eq(today), eq("team2"))).thenReturn(team2Statuses);
+        when(reactiveDailyStatusService.getTeamDigest(eq(today), eq("team1"))).thenReturn(Mono.just(team1Digest));
+        when(reactiveDailyStatusService.getTeamDigest(eq(today), eq("team2"))).thenReturn(Mono.just(team2Digest));
         
         // Mock permission checks
-        when(dailyStatusService.hasViewPermission("manager1", "dev1")).thenReturn(true);
-        when(dailyStatusService.hasViewPermission("manager1", "dev2")).thenReturn(true);
-        when(dailyStatusService.hasViewPermission("manager1", "designer1")).thenReturn(false);
-        when(dailyStatusService.hasViewPermission("dev1", "dev2")).thenReturn(true);
-        when(dailyStatusService.hasViewPermission("manager2", "designer1")).thenReturn(true);
-        when(dailyStatusService.hasViewPermission("manager2", "dev1")).thenReturn(false);
+        when(reactiveDailyStatusService.hasViewPermission(anyString(), anyString())).thenReturn(Mono.just(false));
+        when(reactiveDailyStatusService.hasViewPermission("manager1", "dev1")).thenReturn(Mono.just(true));
+        when(reactiveDailyStatusService.hasViewPermission("manager1", "dev2")).thenReturn(Mono.just(true));
+        when(reactiveDailyStatusService.hasViewPermission("manager1", "designer1")).thenReturn(Mono.just(false));
+        when(reactiveDailyStatusService.hasViewPermission("dev1", "dev2")).thenReturn(Mono.just(true));
+        when(reactiveDailyStatusService.hasViewPermission("manager2", "designer1")).thenReturn(Mono.just(true));
+        when(reactiveDailyStatusService.hasViewPermission("manager2", "dev1")).thenReturn(Mono.just(false));
     }
     
     private DailyStatus createStatus(String userId, String availability, String tasks, String notes) {
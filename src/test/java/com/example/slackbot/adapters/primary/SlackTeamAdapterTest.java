@@ -1,6 +1,7 @@
 package com.example.slackbot.adapters.primary;
 
 import com.example.slackbot.application.TeamService;
+import com.example.slackbot.domain.MembershipResult;
 import com.example.slackbot.domain.Team;
 import com.slack.api.app_backend.slash_commands.payload.SlashCommandPayload;
 import com.slack.api.bolt.App;
@@ -8,13 +9,21 @@ import com.slack.api.bolt.context.builtin.SlashCommandContext;
 import com.slack.api.bolt.handler.builtin.SlashCommandHandler;
 import com.slack.api.bolt.request.builtin.SlashCommandRequest;
 import com.slack.api.bolt.response.Response;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.RequestConfigurator;
+import com.slack.api.methods.response.conversations.ConversationsMembersResponse;
+import com.slack.api.methods.response.users.UsersInfoResponse;
+import com.slack.api.model.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -139,6 +148,75 @@ class SlackTeamAdapterTest {
         verify(commandContext).ack(contains("Cannot demote the last manager of the team"));
     }
     
+    @Test
+    void testAddSeveralMentionedUsersAtOnce() throws Exception {
+        Team team = new Team();
+        team.setId("team1");
+        team.setName("Engineering");
+        team.addManager("manager1");
+        team.addMember("U2");
+        
+        Map<String, MembershipResult> results = new LinkedHashMap<>();
+        results.put("U1", MembershipResult.ADDED);
+        results.put("U2", MembershipResult.ALREADY_MEMBER);
+        
+        when(commandPayload.getText()).thenReturn("add team1 <@U1|alice> <@U2|bob>");
+        when(commandPayload.getUserId()).thenReturn("manager1");
+        when(teamService.getTeamById("team1")).thenReturn(Optional.of(team));
+        when(teamService.addUsersToTeam("team1", Arrays.asList("U1", "U2"))).thenReturn(results);
+        
+        handlerCaptor.getValue().apply(commandRequest, commandContext);
+        
+        verify(teamService).addUsersToTeam("team1", Arrays.asList("U1", "U2"));
+        verify(teamService, never()).addUserToTeam(anyString(), anyString());
+        verify(commandContext).ack(contains("*Added (1):* <@U1>"));
+        verify(commandContext).ack(contains("*Already members (1):* <@U2>"));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSyncLeavesOutBotsAndRespondsOnceDone() throws Exception {
+        Team team = new Team();
+        team.setId("team1");
+        team.setName("Engineering");
+        team.addManager("manager1");
+        
+        MethodsClient client = mock(MethodsClient.class);
+        when(commandContext.client()).thenReturn(client);
+        ConversationsMembersResponse members = new ConversationsMembersResponse();
+        members.setOk(true);
+        members.setMembers(Arrays.asList("U1", "B1", "USLACKBOT"));
+        when(client.conversationsMembers(any(RequestConfigurator.class))).thenReturn(members);
+        UsersInfoResponse person = new UsersInfoResponse();
+        person.setOk(true);
+        person.setUser(new User());
+        UsersInfoResponse bot = new UsersInfoResponse();
+        bot.setOk(true);
+        bot.setUser(new User());
+        bot.getUser().setBot(true);
+        when(client.usersInfo(any(RequestConfigurator.class))).thenReturn(person, bot);
+        
+        Map<String, MembershipResult> results = new LinkedHashMap<>();
+        results.put("U1", MembershipResult.ADDED);
+        when(commandPayload.getText()).thenReturn("sync team1 <#C1|general>");
+        when(commandPayload.getUserId()).thenReturn("manager1");
+        when(teamService.getTeamById("team1")).thenReturn(Optional.of(team));
+        when(teamService.replaceTeamMembers("team1", Arrays.asList("U1"))).thenReturn(results);
+        
+        handlerCaptor.getValue().apply(commandRequest, commandContext);
+        
+        verify(commandContext).ack(contains("Syncing team *Engineering*"));
+        verify(commandContext, timeout(1000)).respond(contains("*Added (1):* <@U1>"));
+        verify(commandContext).respond(contains("Left out 2 bots"));
+        verify(teamService).replaceTeamMembers("team1", Arrays.asList("U1"));
+    }
+    
+    @Test
+    void testParseUserIds() {
+        assertEquals(Arrays.asList("U1", "U2"), SlackTeamAdapter.parseUserIds("<@U1|alice>, <@U2> <@U1>"));
+        assertEquals(Arrays.asList("dev1", "dev2"), SlackTeamAdapter.parseUserIds("dev1, dev2"));
+    }
+    
     @Test
     void testNonManagerCannotPromote() throws Exception {
         // Setup: A team where the requester is not a manager
@@ -0,0 +1,143 @@
+package com.example.slackbot.adapters.primary;
+
+import com.example.slackbot.domain.StatusSummary;
+import com.example.slackbot.domain.TeamDigest;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusMessageCacheTest {
+
+    private final AtomicInteger renders = new AtomicInteger();
+    private final Function<TeamDigest, String> render = digest -> {
+        renders.incrementAndGet();
+        return digest.getSummaries().size() + " statuses";
+    };
+
+    private static TeamDigest digest(String teamId) {
+        TeamDigest digest = new TeamDigest(teamId, "2023-10-10");
+        digest.put(new StatusSummary("dev1", "Available", "Review", false));
+        return digest;
+    }
+
+    @Test
+    void testSameSummariesAreRenderedOnce() {
+        StatusMessageCache cache = new StatusMessageCache(10);
+        TeamDigest digest = digest("team1");
+
+        assertEquals("1 statuses", cache.get(digest, render));
+        assertEquals("1 statuses", cache.get(digest(digest.getTeamId()), render));
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void testSubmissionChangesTheVersionKeyAndRendersAgain() {
+        StatusMessageCache cache = new StatusMessageCache(10);
+        TeamDigest digest = digest("team1");
+        cache.get(digest, render);
+
+        digest.put(new StatusSummary("dev2", "Busy", "Deploy", false));
+
+        assertEquals("2 statuses", cache.get(digest, render));
+        assertEquals(2, renders.get());
+    }
+
+    private static TeamDigest merged(TeamDigest... digests) {
+        TeamDigest merged = new TeamDigest("dept", "2023-10-10");
+        for (TeamDigest digest : digests) {
+            merged.merge(digest);
+        }
+        return merged;
+    }
+
+    @Test
+    void testChangeToOneSubTeamRendersAgainEvenIfTheCountsStayTheSame() {
+        StatusMessageCache cache = new StatusMessageCache(10);
+        TeamDigest squad1 = digest("squad1");
+        squad1.put(new StatusSummary("dev2", "Busy", "Deploy", false));
+        TeamDigest squad2 = digest("squad2");
+        assertEquals("2 statuses", cache.get(merged(squad1, squad2), render));
+
+        // Two statuses either way, but from different members
+        TeamDigest squad1Before = digest("squad1");
+        squad2.put(new StatusSummary("dev3", "Away", "Docs", false));
+
+        assertEquals("2 statuses", cache.get(merged(squad1Before, squad2), render));
+        assertEquals(2, renders.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testDigestBuiltFromTheIndexesSharesTheMessageOfTheListedOne() {
+        StatusMessageCache cache = new StatusMessageCache(10);
+        cache.get(merged(digest("team1")), render);
+
+        TeamDigest built = new TeamDigest("dept", "2023-10-10");
+        built.put(new StatusSummary("dev1", "Available", "Review", false));
+        cache.get(built, render);
+
+        assertEquals(1, renders.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedMessageIsEvicted() {
+        StatusMessageCache cache = new StatusMessageCache(2);
+        cache.get(digest("team1"), render);
+        cache.get(digest("team2"), render);
+        cache.get(digest("team1"), render);
+        cache.get(digest("team3"), render);
+
+        assertEquals(2, cache.size());
+        cache.get(digest("team1"), render);
+        assertEquals(3, renders.get());
+        cache.get(digest("team2"), render);
+        assertEquals(4, renders.get());
+    }
+
+    @Test
+    void testSlowRenderHoldsUpOnlyRequestsForTheSameDigest() throws Exception {
+        StatusMessageCache cache = new StatusMessageCache(10);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<TeamDigest, String> slowRender = digest -> {
+            rendering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return render.apply(digest);
+        };
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get(digest("team1"), slowRender));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get(digest("team1"), slowRender));
+
+        // Another team's message is rendered while team1's render is still running
+        assertEquals("1 statuses", cache.get(digest("team2"), render));
+        assertFalse(first.isDone());
+
+        release.countDown();
+        assertEquals("1 statuses", first.get(5, TimeUnit.SECONDS));
+        assertEquals("1 statuses", second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void testFailedRenderIsNotCached() {
+        StatusMessageCache cache = new StatusMessageCache(10);
+        assertThrows(IllegalStateException.class, () -> cache.get(digest("team1"), digest -> {
+            throw new IllegalStateException("Render failed");
+        }));
+
+        assertEquals(0, cache.size());
+        assertEquals("1 statuses", cache.get(digest("team1"), render));
+    }
+}
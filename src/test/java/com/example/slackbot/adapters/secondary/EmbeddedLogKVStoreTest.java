@@ -0,0 +1,168 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.application.impl.VersionedValueCodec;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedLogKVStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedLogKVStore open() {
+        // Small segments so a handful of writes spans several files
+        return new EmbeddedLogKVStore(directory.toString(), 256, 0.5, false, new VersionedValueCodec(new ObjectMapper()));
+    }
+
+    @Test
+    void testPutGetAndDelete() {
+        EmbeddedLogKVStore store = open();
+
+        store.put("team:team1", "{\"name\":\"Engineering\"}");
+        store.put("team:team2", "{\"name\":\"Design\"}");
+        store.put("team:team1", "{\"name\":\"Platform\"}");
+        store.delete("team:team2");
+
+        assertEquals("{\"name\":\"Platform\"}", store.get("team:team1"));
+        assertNull(store.get("team:team2"));
+        assertNull(store.get("team:unknown"));
+
+        Map<String, String> values = store.getMany(Arrays.asList("team:team1", "team:team2"));
+        assertEquals(1, values.size());
+        assertEquals("{\"name\":\"Platform\"}", values.get("team:team1"));
+    }
+
+    @Test
+    void testStatusSummariesFollowTheRequestedOrder() {
+        EmbeddedLogKVStore store = open();
+        for (String userId : Arrays.asList("dev1", "dev2")) {
+            DailyStatus status = new DailyStatus();
+            status.setDeveloperId(userId);
+            status.setDate("2023-10-10");
+            status.setAvailability("Available");
+            status.setTasks("Review\nDeploy");
+            status.setNotes(userId.equals("dev2") ? "Out at 3" : null);
+            store.storeDailyStatus(status);
+        }
+
+        List<StatusSummary> summaries = store.retrieveStatusSummariesAsync("2023-10-10",
+            Arrays.asList("dev2", "missing", "dev1")).block();
+        assertEquals(2, summaries.size());
+        assertEquals("dev2", summaries.get(0).getDeveloperId());
+        assertTrue(summaries.get(0).hasNotes());
+        assertEquals("Review…", summaries.get(1).getTasks());
+        assertFalse(summaries.get(1).hasNotes());
+    }
+
+    @Test
+    void testStatusSummariesAreListedByPrefixInKeyOrder() {
+        EmbeddedLogKVStore store = open();
+        store.putStatusSummary("status_digest:team1:2023-10-10:dev2", new StatusSummary("dev2", "Away", "Deploy", false));
+        store.putStatusSummary("status_digest:team1:2023-10-10:dev1", new StatusSummary("dev1", "Available", "Review", true));
+        store.putStatusSummary("status_digest:team2:2023-10-10:dev3", new StatusSummary("dev3", "Out", null, false));
+
+        List<StatusSummary> summaries = store.listStatusSummariesAsync("status_digest:team1:2023-10-10:").block();
+        assertEquals(2, summaries.size());
+        assertEquals("dev1", summaries.get(0).getDeveloperId());
+        assertTrue(summaries.get(0).hasNotes());
+        assertEquals("Deploy", summaries.get(1).getTasks());
+    }
+
+    @Test
+    void testExpiredKeysAreDeleted() {
+        EmbeddedLogKVStore store = open();
+        store.put("expired", "value", Duration.ZERO);
+        store.put("renewed", "value", Duration.ZERO);
+        store.put("renewed", "value");
+        store.put("living", "value", Duration.ofDays(1));
+
+        assertEquals(Arrays.asList("expired"), store.listKeys("exp").collectList().block());
+        store.expireKeys();
+
+        assertNull(store.get("expired"));
+        assertEquals("value", store.get("renewed"));
+        assertEquals("value", store.get("living"));
+    }
+
+    @Test
+    void testIndexIsRebuiltOnReopen() {
+        EmbeddedLogKVStore store = open();
+        for (int i = 0; i < 20; i++) {
+            store.put("key" + (i % 4), "value" + i);
+        }
+        store.delete("key0");
+        store.close();
+
+        EmbeddedLogKVStore reopened = open();
+        assertNull(reopened.get("key0"));
+        assertEquals("value17", reopened.get("key1"));
+        assertEquals("value19", reopened.get("key3"));
+    }
+
+    @Test
+    void testTornRecordIsDiscardedOnRecovery() throws IOException {
+        EmbeddedLogKVStore store = open();
+        store.put("kept", "value");
+        store.put("torn", "payload");
+        store.close();
+
+        // Corrupt the last record as if the process died halfway through writing it
+        Path segment = lastSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int offset = new String(bytes, StandardCharsets.ISO_8859_1).lastIndexOf("payload");
+        bytes[offset] = 'X';
+        Files.write(segment, bytes);
+
+        EmbeddedLogKVStore recovered = open();
+        assertEquals("value", recovered.get("kept"));
+        assertNull(recovered.get("torn"));
+
+        // New writes go where the torn record was and survive the next restart
+        recovered.put("next", "value");
+        recovered.close();
+        assertEquals("value", open().get("next"));
+    }
+
+    @Test
+    void testCompactionKeepsOnlyLiveRecords() {
+        EmbeddedLogKVStore store = open();
+        for (int i = 0; i < 50; i++) {
+            store.put("key" + (i % 5), "value" + i);
+        }
+        store.delete("key0");
+        int segmentsBefore = store.getSegmentCount();
+        assertTrue(segmentsBefore > 2);
+
+        store.compactIfNeeded();
+
+        assertTrue(store.getSegmentCount() <= 2);
+        assertNull(store.get("key0"));
+        assertEquals("value49", store.get("key4"));
+
+        store.close();
+        EmbeddedLogKVStore reopened = open();
+        assertNull(reopened.get("key0"));
+        assertEquals("value46", reopened.get("key1"));
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().reduce((first, second) -> second).get();
+        }
+    }
+}
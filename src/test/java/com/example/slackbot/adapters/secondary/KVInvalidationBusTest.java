@@ -0,0 +1,117 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.application.CacheInvalidationBus;
+import com.example.slackbot.application.impl.VersionedValueCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVInvalidationBusTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedLogKVStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new EmbeddedLogKVStore(directory.toString(), 1 << 20, 0.5, false, new VersionedValueCodec(new ObjectMapper()));
+    }
+
+    private KVInvalidationBus node(String nodeId, int maxEvents) {
+        return new KVInvalidationBus(store, new VersionedValueCodec(new ObjectMapper()), nodeId, maxEvents, Duration.ofDays(1));
+    }
+
+    @Test
+    void testChangesReachOtherNodesOnly() {
+        KVInvalidationBus nodeA = node("a", 100);
+        KVInvalidationBus nodeB = node("b", 100);
+        RecordingSubscriber subscriberA = new RecordingSubscriber();
+        RecordingSubscriber subscriberB = new RecordingSubscriber();
+        nodeA.subscribe(subscriberA);
+        nodeB.subscribe(subscriberB);
+        nodeB.poll();
+
+        nodeA.publish(Arrays.asList("team:team1", "all_teams:3"));
+        nodeA.publish(Collections.singletonList("team:team1"));
+        nodeA.flush();
+        nodeA.poll();
+        nodeB.poll();
+
+        assertEquals(Collections.singletonList(Arrays.asList("team:team1", "all_teams:3")), subscriberB.invalidated);
+        assertTrue(subscriberA.invalidated.isEmpty());
+
+        // Events already delivered are not delivered again
+        nodeB.poll();
+        assertEquals(1, subscriberB.invalidated.size());
+        assertEquals(0, subscriberB.invalidatedAll);
+    }
+
+    @Test
+    void testNodeThatFellBehindDropsEverything() {
+        KVInvalidationBus nodeA = node("a", 2);
+        KVInvalidationBus nodeB = node("b", 2);
+        RecordingSubscriber subscriberB = new RecordingSubscriber();
+        nodeB.subscribe(subscriberB);
+
+        nodeA.publish(Collections.singletonList("team:team1"));
+        nodeA.flush();
+        nodeB.poll();
+
+        for (int i = 2; i <= 4; i++) {
+            nodeA.publish(Collections.singletonList("team:team" + i));
+            nodeA.flush();
+        }
+        nodeB.poll();
+
+        assertEquals(1, subscriberB.invalidatedAll);
+        assertTrue(subscriberB.invalidated.isEmpty());
+    }
+
+    @Test
+    void testFlushWithoutChangesWritesNothing() {
+        KVInvalidationBus nodeA = node("a", 100);
+
+        nodeA.flush();
+
+        assertNull(store.get(KVInvalidationBus.KEY_PREFIX + "a"));
+    }
+
+    @Test
+    void testLoopbackDoesNotDeliverTheNodesOwnChanges() {
+        LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        bus.subscribe(subscriber);
+
+        bus.publish(Collections.singletonList("team:team1"));
+
+        assertTrue(subscriber.invalidated.isEmpty());
+        assertEquals(0, subscriber.invalidatedAll);
+    }
+
+    private static class RecordingSubscriber implements CacheInvalidationBus.Subscriber {
+        final List<List<String>> invalidated = new ArrayList<>();
+        int invalidatedAll;
+
+        @Override
+        public void invalidate(Collection<String> keys) {
+            invalidated.add(new ArrayList<>(keys));
+        }
+
+        @Override
+        public void invalidateAll() {
+            invalidatedAll++;
+        }
+    }
+}
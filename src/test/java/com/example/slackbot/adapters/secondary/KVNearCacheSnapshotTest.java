@@ -0,0 +1,144 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KVNearCacheSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private CloudflareKVAdapter kvAdapter;
+    private KVNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        kvAdapter = Mockito.mock(CloudflareKVAdapter.class);
+        when(kvAdapter.get("schema_version:status")).thenReturn("2");
+        nearCache = new KVNearCache(100, Collections.singletonMap("team:", Duration.ofMinutes(1)), new SimpleMeterRegistry());
+    }
+
+    private KVNearCacheSnapshot snapshot(String namespaceId) {
+        return new KVNearCacheSnapshot(true, directory.resolve("snapshot.bin").toString(), Duration.ofHours(1).toMillis(),
+            namespaceId, "team:", kvAdapter, nearCache);
+    }
+
+    private Map<String, String> teams() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("team:team1", "{\"name\":\"Engineering\"}");
+        entries.put("team:team2", "{\"name\":\"Design ✓\"}");
+        return entries;
+    }
+
+    @Test
+    void testWarmUpSeedsStaleEntriesWithoutReadingKV() throws IOException {
+        snapshot("ns1").write(teams(), "2", System.currentTimeMillis());
+
+        snapshot("ns1").warmUp();
+
+        assertEquals("{\"name\":\"Engineering\"}", nearCache.get("team:team1").get());
+        assertEquals("{\"name\":\"Design ✓\"}", nearCache.get("team:team2").get());
+        assertTrue(nearCache.isStale("team:team1"));
+        // Stale values are not written to the next snapshot
+        assertTrue(nearCache.entries(Collections.singletonList("team:")).isEmpty());
+        verify(kvAdapter, never()).getUncached(anyString());
+        verify(kvAdapter, never()).getManyAsync(anyCollection());
+        verify(kvAdapter, never()).listKeys(anyString());
+    }
+
+    @Test
+    void testSnapshotOlderThanTheTtlIsServedThenRefreshed() throws IOException {
+        // Older than the near cache TTL of a minute, younger than the hour a snapshot is kept
+        snapshot("ns1").write(teams(), "2", System.currentTimeMillis() - Duration.ofMinutes(5).toMillis());
+        when(kvAdapter.getUncached("team:team1")).thenReturn(Mono.just("{\"name\":\"Platform\"}"));
+        when(kvAdapter.getUncached("team:team2")).thenReturn(Mono.empty());
+
+        KVNearCacheSnapshot snapshot = snapshot("ns1");
+        snapshot.warmUp();
+        assertEquals("{\"name\":\"Engineering\"}", nearCache.get("team:team1").get());
+        assertEquals("{\"name\":\"Design ✓\"}", nearCache.get("team:team2").get());
+
+        snapshot.refreshRestored();
+
+        assertEquals("{\"name\":\"Platform\"}", nearCache.get("team:team1").get());
+        assertFalse(nearCache.isStale("team:team1"));
+        assertFalse(nearCache.get("team:team2").isPresent());
+    }
+
+    @Test
+    void testKeyWrittenSinceStartupIsNotRefreshed() throws IOException {
+        snapshot("ns1").write(teams(), "2", System.currentTimeMillis());
+        when(kvAdapter.getUncached(anyString())).thenReturn(Mono.just("{}"));
+
+        KVNearCacheSnapshot snapshot = snapshot("ns1");
+        snapshot.warmUp();
+        nearCache.invalidate("team:team1");
+        snapshot.refreshRestored();
+
+        verify(kvAdapter, never()).getUncached("team:team1");
+        verify(kvAdapter).getUncached("team:team2");
+    }
+
+    @Test
+    void testSnapshotIsWrittenFromTheNearCache() {
+        nearCache.put("team:team1", "{\"name\":\"Engineering\"}", nearCache.loadStamp("team:team1"));
+
+        snapshot("ns1").writeSnapshot();
+
+        Map<String, Map.Entry<String, Duration>> restored = snapshot("ns1").read();
+        assertEquals(Collections.singleton("team:team1"), restored.keySet());
+        assertEquals("{\"name\":\"Engineering\"}", restored.get("team:team1").getKey());
+        verify(kvAdapter, never()).listKeys(anyString());
+    }
+
+    @Test
+    void testCorruptSnapshotIsIgnored() throws IOException {
+        snapshot("ns1").write(teams(), "2", System.currentTimeMillis());
+        Path file = directory.resolve("snapshot.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        snapshot("ns1").warmUp();
+
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    void testStaleForeignOrOtherSchemaSnapshotIsIgnored() throws IOException {
+        snapshot("ns1").write(teams(), "2", System.currentTimeMillis() - Duration.ofHours(2).toMillis());
+        assertTrue(snapshot("ns1").read().isEmpty());
+
+        snapshot("ns1").write(teams(), "2", System.currentTimeMillis());
+        assertTrue(snapshot("ns2").read().isEmpty());
+        assertEquals(teams().keySet(), snapshot("ns1").read().keySet());
+
+        snapshot("ns1").write(teams(), "1", System.currentTimeMillis());
+        assertTrue(snapshot("ns1").read().isEmpty());
+    }
+
+    @Test
+    void testMissingSnapshotIsIgnored() {
+        snapshot("ns1").warmUp();
+        assertEquals(0, nearCache.size());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVNearCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KVNearCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Map<String, Duration> ttlByPrefix = new HashMap<>();
+        ttlByPrefix.put("team:", Duration.ofMinutes(1));
+        ttlByPrefix.put("all_teams", Duration.ofMinutes(1));
+        ttlByPrefix.put("status_team:", Duration.ofNanos(1));
+        cache = new KVNearCache(2, ttlByPrefix, meterRegistry);
+    }
+
+    @Test
+    void testHitAndMissAreCounted() {
+        assertFalse(cache.get("team:team1").isPresent());
+        cache.put("team:team1", "{}", cache.loadStamp("team:team1"));
+        assertEquals("{}", cache.get("team:team1").get());
+
+        assertEquals(1.0, meterRegistry.get("kv.near_cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("kv.near_cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testOnlyConfiguredPrefixesAreCached() {
+        assertTrue(cache.isCacheable("team:team1"));
+        assertTrue(cache.isCacheable("all_teams"));
+        assertFalse(cache.isCacheable("U012345"));
+
+        cache.put("U012345", "{}", cache.loadStamp("U012345"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testExpiredEntriesAreNotServed() {
+        cache.put("status_team:U1", "[\"team1\"]", cache.loadStamp("status_team:U1"));
+        assertFalse(cache.get("status_team:U1").isPresent());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        cache.put("team:a", "a", cache.loadStamp("team:a"));
+        cache.put("team:b", "b", cache.loadStamp("team:b"));
+        cache.get("team:a");
+        cache.put("team:c", "c", cache.loadStamp("team:c"));
+
+        assertTrue(cache.get("team:a").isPresent());
+        assertFalse(cache.get("team:b").isPresent());
+        assertEquals(1.0, meterRegistry.get("kv.near_cache.evictions").counter().count());
+    }
+
+    @Test
+    void testLoadStartedBeforeInvalidationIsDropped() {
+        long stamp = cache.loadStamp("team:team1");
+        cache.invalidate("team:team1");
+        cache.put("team:team1", "stale", stamp);
+
+        assertFalse(cache.get("team:team1").isPresent());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.adapters.secondary.KVRateLimiter.Operation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private KVRateLimiter limiter(int concurrency, double readsPerSecond, int readBurst) {
+        return new KVRateLimiter(concurrency, 1, 8, 1000, 3,
+            readsPerSecond, readBurst, 100, 100, 100, 100, meterRegistry);
+    }
+
+    @Test
+    void testReadsAreGrantedBeforeQueuedWrites() {
+        KVRateLimiter limiter = limiter(1, 100, 100);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // Hold the only permit until both waiters are queued
+        Sinks.One<String> first = Sinks.one();
+        Mono<String> running = limiter.execute(Operation.READ, first::asMono).cache();
+        running.subscribe();
+        Mono<String> write = limiter.execute(Operation.WRITE, () -> Mono.fromSupplier(() -> {
+            order.add("write");
+            return "write";
+        })).cache();
+        Mono<String> read = limiter.execute(Operation.READ, () -> Mono.fromSupplier(() -> {
+            order.add("read");
+            return "read";
+        })).cache();
+        write.subscribe();
+        read.subscribe();
+        assertEquals(2, limiter.getQueued());
+
+        first.tryEmitValue("first");
+        assertEquals("write", write.block(Duration.ofSeconds(5)));
+        assertEquals("read", read.block(Duration.ofSeconds(5)));
+        assertEquals(List.of("read", "write"), order);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testThrottledRequestIsRetriedAndHalvesTheLimit() {
+        KVRateLimiter limiter = limiter(8, 100, 100);
+        AtomicInteger attempts = new AtomicInteger();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "0");
+
+        String value = limiter.execute(Operation.READ, () -> attempts.incrementAndGet() == 1
+            ? Mono.error(WebClientResponseException.create(429, "Too Many Requests", headers, new byte[0], StandardCharsets.UTF_8))
+            : Mono.just("value")).block(Duration.ofSeconds(5));
+
+        assertEquals("value", value);
+        assertEquals(2, attempts.get());
+        assertTrue(limiter.getLimit() < 8);
+        assertEquals(1.0, meterRegistry.get("kv.rate_limiter.throttled").tag("operation", "read").counter().count());
+    }
+
+    @Test
+    void testEmptyBucketDelaysPermits() {
+        KVRateLimiter limiter = limiter(8, 20, 1);
+
+        limiter.execute(Operation.READ, () -> Mono.just("first")).block(Duration.ofSeconds(5));
+        limiter.execute(Operation.READ, () -> Mono.just("second")).block(Duration.ofSeconds(5));
+
+        // The second read waited about 1/20s for a token
+        double waitedMs = meterRegistry.get("kv.rate_limiter.permit.wait").tag("operation", "read").timer()
+            .max(TimeUnit.MILLISECONDS);
+        assertTrue(waitedMs >= 30, "waited " + waitedMs + "ms");
+    }
+
+    @Test
+    void testOtherErrorsAreNotRetried() {
+        KVRateLimiter limiter = limiter(8, 100, 100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> limiter.execute(Operation.READ, () -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IllegalStateException("boom"));
+        }).block(Duration.ofSeconds(5)));
+        assertEquals(1, attempts.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testWaiterCancelledAfterItsGrantReturnsItsToken() {
+        // Three tokens that practically never refill
+        KVRateLimiter limiter = limiter(1, 0.001, 3);
+
+        Sinks.One<String> holder = Sinks.one();
+        limiter.execute(Operation.READ, holder::asMono).subscribe();
+        AtomicReference<Disposable> second = new AtomicReference<>();
+        Mono<String> first = limiter.execute(Operation.READ, () -> {
+            // Cancel the other waiter between its grant and its delivery
+            second.get().dispose();
+            return Mono.just("first");
+        }).cache();
+        first.subscribe();
+        second.set(limiter.execute(Operation.READ, () -> Mono.just("second")).subscribe());
+        assertEquals(2, limiter.getQueued());
+
+        // A fast success raises the limit to 2, so both waiters are granted at once
+        holder.tryEmitValue("held");
+        assertEquals("first", first.block(Duration.ofSeconds(5)));
+        assertEquals(0, limiter.getInFlight());
+
+        // The cancelled waiter's token is back, so another read needs no refill
+        assertEquals("third", limiter.execute(Operation.READ, () -> Mono.just("third")).block(Duration.ofSeconds(1)));
+    }
+}
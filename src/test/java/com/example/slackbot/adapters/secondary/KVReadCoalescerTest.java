@@ -0,0 +1,94 @@
+package com.example.slackbot.adapters.secondary;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVReadCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KVReadCoalescer coalescer;
+    private AtomicInteger requests;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new KVReadCoalescer(meterRegistry);
+        requests = new AtomicInteger();
+    }
+
+    @Test
+    void testConcurrentReadsShareOneRequest() {
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> first = coalescer.read("team:team1", key -> {
+            requests.incrementAndGet();
+            return response.asMono();
+        }).cache();
+        Mono<String> second = coalescer.read("team:team1", key -> {
+            requests.incrementAndGet();
+            return Mono.just("unused");
+        }).cache();
+        first.subscribe();
+        second.subscribe();
+
+        response.tryEmitValue("{\"name\":\"Engineering\"}");
+
+        assertEquals("{\"name\":\"Engineering\"}", first.block(Duration.ofSeconds(5)));
+        assertEquals("{\"name\":\"Engineering\"}", second.block(Duration.ofSeconds(5)));
+        assertEquals(1, requests.get());
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertEquals(1.0, meterRegistry.get("kv.read.coalesced").counter().count());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void testReadAfterCompletionSendsNewRequest() {
+        coalescer.read("team:team1", key -> Mono.fromSupplier(() -> "v" + requests.incrementAndGet())).block();
+        String value = coalescer.read("team:team1", key -> Mono.fromSupplier(() -> "v" + requests.incrementAndGet())).block();
+
+        assertEquals("v2", value);
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    void testErrorsAreSharedButNotRemembered() {
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> first = coalescer.read("team:team1", key -> response.asMono()).cache();
+        Mono<String> second = coalescer.read("team:team1", key -> Mono.just("unused")).cache();
+        first.subscribe(value -> { }, e -> { });
+        second.subscribe(value -> { }, e -> { });
+
+        response.tryEmitError(new IllegalStateException("boom"));
+
+        assertThrows(IllegalStateException.class, () -> second.block(Duration.ofSeconds(5)));
+        assertEquals("fresh", coalescer.read("team:team1", key -> Mono.just("fresh")).block());
+    }
+
+    @Test
+    void testForgetDetachesTheFlight() {
+        Sinks.One<String> response = Sinks.one();
+        coalescer.read("team:team1", key -> response.asMono()).subscribe();
+
+        coalescer.forget("team:team1");
+
+        assertEquals("after write", coalescer.read("team:team1", key -> Mono.just("after write")).block());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    void testDifferentKeysAreNotCoalesced() {
+        Sinks.One<String> response = Sinks.one();
+        coalescer.read("team:team1", key -> response.asMono()).subscribe();
+
+        assertEquals("other", coalescer.read("team:team2", key -> Mono.just("other")).block());
+        assertEquals(0, coalescer.getCoalescedCount());
+        assertEquals(1, coalescer.getInFlightCount());
+    }
+}
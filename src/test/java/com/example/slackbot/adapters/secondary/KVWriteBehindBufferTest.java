@@ -0,0 +1,264 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.adapters.secondary.KVWriteBehindBuffer.PendingWrite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVWriteBehindBufferTest {
+
+    private List<List<PendingWrite>> sentBatches;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        sentBatches = new ArrayList<>();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testWritesToSameKeyAreMerged() {
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(this::recordBatch, 10, 2, meterRegistry);
+
+        buffer.put("team:team1", "v1");
+        buffer.put("team:team1", "v2");
+        buffer.delete("team:team2");
+        buffer.flush();
+
+        assertEquals(1, sentBatches.size());
+        List<PendingWrite> batch = sentBatches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals("team:team1", batch.get(0).getKey());
+        assertEquals("v2", batch.get(0).getValue());
+        assertTrue(batch.get(1).isDelete());
+    }
+
+    @Test
+    void testFullBatchIsSentWithoutWaitingForFlush() {
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(this::recordBatch, 2, 2, meterRegistry);
+
+        buffer.put("a", "1");
+        assertTrue(sentBatches.isEmpty());
+        buffer.put("b", "2");
+
+        assertEquals(1, sentBatches.size());
+        assertEquals(0, buffer.getPendingCount());
+    }
+
+    @Test
+    void testPendingWritesAreVisibleUntilAcknowledged() {
+        Sinks.Empty<Void> ack = Sinks.empty();
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> ack.asMono(), 10, 2, meterRegistry);
+
+        buffer.put("team:team1", "v1");
+        assertEquals("v1", buffer.lookup("team:team1").get().getValue());
+
+        buffer.flush();
+        assertEquals("v1", buffer.lookup("team:team1").get().getValue());
+
+        ack.tryEmitEmpty();
+        assertFalse(buffer.lookup("team:team1").isPresent());
+        assertEquals(1, meterRegistry.get("kv.write_behind.flush.latency").timer().count());
+    }
+
+    @Test
+    void testPendingWritesAreFoundByPrefix() {
+        Sinks.Empty<Void> ack = Sinks.empty();
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> ack.asMono(), 10, 2, meterRegistry);
+
+        buffer.put("status_digest:team1:2023-10-10:dev1", "v1");
+        buffer.flush();
+        buffer.put("status_digest:team1:2023-10-10:dev1", "v2");
+        buffer.put("status_digest:team1:2023-10-10:dev2", "v1");
+        buffer.put("status_digest:team2:2023-10-10:dev3", "v1");
+
+        List<PendingWrite> writes = buffer.lookupPrefix("status_digest:team1:2023-10-10:");
+        assertEquals(2, writes.size());
+        // The write still pending wins over the one in flight
+        assertEquals("v2", writes.get(0).getValue());
+        assertEquals("status_digest:team1:2023-10-10:dev2", writes.get(1).getKey());
+    }
+
+    @Test
+    void testFailedBatchIsRequeuedWithoutOverwritingNewerWrites() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> {
+            if (fail.get()) {
+                return Mono.error(new RuntimeException("429 Too Many Requests"));
+            }
+            return recordBatch(batch);
+        }, 10, 2, meterRegistry);
+
+        buffer.put("a", "1");
+        buffer.put("b", "1");
+        buffer.flush();
+        assertEquals(2, buffer.getPendingCount());
+
+        buffer.put("a", "2");
+        fail.set(false);
+        buffer.flush();
+
+        assertEquals(1, sentBatches.size());
+        assertEquals("2", sentBatches.get(0).stream()
+            .filter(write -> write.getKey().equals("a"))
+            .findFirst().get().getValue());
+        assertEquals(1.0, meterRegistry.get("kv.write_behind.flush.failures").counter().count());
+    }
+
+    @Test
+    void testNewerWriteWaitsForTheOlderWriteOfItsKeyToFail() {
+        List<Sinks.Empty<Void>> acks = new ArrayList<>();
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> {
+            sentBatches.add(new ArrayList<>(batch));
+            Sinks.Empty<Void> ack = Sinks.empty();
+            acks.add(ack);
+            return ack.asMono();
+        }, 10, 4, meterRegistry);
+
+        buffer.put("a", "1");
+        buffer.flush();
+        buffer.put("a", "2");
+        buffer.put("b", "1");
+        buffer.flush();
+
+        // The second batch holds only "b"; "a" waits behind its first write
+        assertEquals(2, sentBatches.size());
+        assertEquals("b", sentBatches.get(1).get(0).getKey());
+        assertEquals(1, buffer.getPendingCount());
+
+        acks.get(0).tryEmitError(new RuntimeException("503 Service Unavailable"));
+        acks.get(1).tryEmitEmpty();
+        assertEquals("2", buffer.lookup("a").get().getValue());
+
+        buffer.flush();
+        assertEquals(3, sentBatches.size());
+        assertEquals("2", sentBatches.get(2).get(0).getValue());
+        acks.get(2).tryEmitEmpty();
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(0, buffer.getInFlightCount());
+    }
+
+    @Test
+    void testWriteThatCannotSucceedIsDeadLettered() {
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> {
+            sentBatches.add(new ArrayList<>(batch));
+            if (batch.stream().anyMatch(write -> write.getKey().equals("bad"))) {
+                return Mono.error(WebClientResponseException.create(400, "Bad Request", HttpHeaders.EMPTY, new byte[0], null));
+            }
+            return Mono.empty();
+        }, 10, 2, meterRegistry);
+
+        buffer.put("good", "1");
+        buffer.put("bad", "1");
+        buffer.flush();
+        // The failed batch is split, so the good write still reaches KV
+        buffer.flush();
+
+        assertEquals(3, sentBatches.size());
+        assertEquals(List.of("good"), sentBatches.get(1).stream().map(PendingWrite::getKey).toList());
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(0, buffer.getInFlightCount());
+        assertEquals("bad", buffer.getDeadLetters().get(0).getKey());
+        assertEquals(1.0, meterRegistry.get("kv.write_behind.dead_lettered").counter().count());
+    }
+
+    @Test
+    void testRateLimitedBatchIsRetried() {
+        assertTrue(KVWriteBehindBuffer.isRetryable(
+            WebClientResponseException.create(429, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null)));
+        assertTrue(KVWriteBehindBuffer.isRetryable(
+            WebClientResponseException.create(502, "Bad Gateway", HttpHeaders.EMPTY, new byte[0], null)));
+        assertFalse(KVWriteBehindBuffer.isRetryable(
+            WebClientResponseException.create(413, "Payload Too Large", HttpHeaders.EMPTY, new byte[0], null)));
+    }
+
+    @Test
+    void testFlushAndWaitReportsUnacknowledgedWrites() {
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> Mono.never(), 10, 1, meterRegistry);
+
+        buffer.put("a", "1");
+
+        assertFalse(buffer.flushAndWait(50));
+        assertEquals(1, buffer.getInFlightCount());
+    }
+
+    @Test
+    void testFullBufferHoldsBackNewKeysThenFails() {
+        Sinks.Empty<Void> ack = Sinks.empty();
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> ack.asMono(), 10, 1, 2, 50, null, meterRegistry);
+
+        buffer.put("a", "1");
+        buffer.put("b", "1");
+        // Merging into a key that is already waiting needs no room
+        buffer.put("a", "2");
+        buffer.flush();
+
+        assertThrows(IllegalStateException.class, () -> buffer.put("c", "1"));
+        assertEquals(1.0, meterRegistry.get("kv.write_behind.rejected").counter().count());
+
+        ack.tryEmitEmpty();
+        buffer.put("c", "1");
+        assertEquals(1, buffer.getPendingCount());
+    }
+
+    @Test
+    void testJournaledWritesAreReplayedAfterRestart(@TempDir Path directory) {
+        Path path = directory.resolve("journal.log");
+        KVWriteJournal journal = new KVWriteJournal(path, 1 << 20, meterRegistry);
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(batch -> Mono.never(), 10, 1, 100, 50, journal, meterRegistry);
+        buffer.put("a", "1");
+        buffer.delete("b");
+        buffer.flush();
+        journal.close();
+
+        KVWriteJournal reopened = new KVWriteJournal(path, 1 << 20, meterRegistry);
+        KVWriteBehindBuffer restarted = new KVWriteBehindBuffer(this::recordBatch, 10, 1, 100, 50, reopened, meterRegistry);
+        assertEquals(2, restarted.getPendingCount());
+        assertTrue(restarted.flushAndWait(5000));
+
+        assertEquals(1, sentBatches.size());
+        assertEquals("1", sentBatches.get(0).get(0).getValue());
+        assertTrue(sentBatches.get(0).get(1).isDelete());
+        assertEquals(0, reopened.getUnacknowledgedCount());
+        reopened.close();
+    }
+
+    @Test
+    void testJournalIsAcknowledgedOffTheThreadThatCompletedTheBatch(@TempDir Path directory) {
+        List<String> acknowledgedOn = new ArrayList<>();
+        KVWriteJournal journal = new KVWriteJournal(directory.resolve("journal.log"), 1 << 20, meterRegistry) {
+            @Override
+            public void acknowledge(Collection<PendingWrite> writes) {
+                acknowledgedOn.add(Thread.currentThread().getName());
+                super.acknowledge(writes);
+            }
+        };
+        KVWriteBehindBuffer buffer = new KVWriteBehindBuffer(this::recordBatch, 10, 1, 100, 50, journal, meterRegistry);
+        buffer.put("a", "1");
+
+        // The batch completes at once on this thread
+        assertTrue(buffer.flushAndWait(5000));
+        assertEquals(1, acknowledgedOn.size());
+        assertNotEquals(Thread.currentThread().getName(), acknowledgedOn.get(0));
+        assertEquals(0, journal.getUnacknowledgedCount());
+        journal.close();
+    }
+
+    private Mono<Void> recordBatch(List<PendingWrite> batch) {
+        sentBatches.add(new ArrayList<>(batch));
+        return Mono.empty();
+    }
+}
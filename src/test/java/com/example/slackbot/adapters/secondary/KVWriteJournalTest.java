@@ -0,0 +1,149 @@
+package com.example.slackbot.adapters.secondary;
+
+import com.example.slackbot.adapters.secondary.KVWriteBehindBuffer.PendingWrite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KVWriteJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private Path path;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        path = directory.resolve("journal.log");
+    }
+
+    private KVWriteJournal open() {
+        return new KVWriteJournal(path, 1 << 20, meterRegistry);
+    }
+
+    @Test
+    void testOnlyLatestUnacknowledgedWritesAreRecovered() {
+        KVWriteJournal journal = open();
+        long first = journal.append("team:team1", "v1");
+        long second = journal.append("team:team1", "v2");
+        long deleted = journal.append("team:team2", null);
+        long acknowledged = journal.append("team:team3", "v1");
+        assertTrue(first < second && second < deleted && deleted < acknowledged);
+        journal.acknowledge(List.of(new PendingWrite("team:team3", "v1", null, 0, acknowledged)));
+        journal.close();
+
+        List<PendingWrite> recovered = open().getRecovered();
+
+        assertEquals(2, recovered.size());
+        assertEquals("team:team1", recovered.get(0).getKey());
+        assertEquals("v2", recovered.get(0).getValue());
+        assertEquals(second, recovered.get(0).getSequence());
+        assertEquals("team:team2", recovered.get(1).getKey());
+        assertTrue(recovered.get(1).isDelete());
+    }
+
+    @Test
+    void testAcknowledgingSupersededWriteKeepsTheNewerOne() {
+        KVWriteJournal journal = open();
+        long first = journal.append("team:team1", "v1");
+        journal.append("team:team1", "v2");
+        journal.acknowledge(List.of(new PendingWrite("team:team1", "v1", null, 0, first)));
+        journal.close();
+
+        List<PendingWrite> recovered = open().getRecovered();
+        assertEquals(1, recovered.size());
+        assertEquals("v2", recovered.get(0).getValue());
+    }
+
+    @Test
+    void testMetadataIsRecovered() {
+        KVWriteJournal journal = open();
+        journal.append("status:2023-10-10:dev1", "value", "{\"a\":\"Available\"}");
+        journal.close();
+
+        PendingWrite recovered = open().getRecovered().get(0);
+        assertEquals("value", recovered.getValue());
+        assertEquals("{\"a\":\"Available\"}", recovered.getMetadata());
+    }
+
+    @Test
+    void testExpirationIsRecovered() {
+        KVWriteJournal journal = open();
+        journal.append("status_index:team1:2023-10-10", "[\"dev1\"]", null, 604800);
+        journal.close();
+
+        PendingWrite recovered = open().getRecovered().get(0);
+        assertNull(recovered.getMetadata());
+        assertEquals(604800, recovered.getExpirationTtl());
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        KVWriteJournal journal = open();
+        journal.append("team:team1", "v1");
+        journal.close();
+        Files.write(path, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        KVWriteJournal reopened = open();
+        assertEquals(1, reopened.getRecovered().size());
+
+        // Sequence numbers continue after the recovered ones
+        assertTrue(reopened.append("team:team2", "v1") > reopened.getRecovered().get(0).getSequence());
+    }
+
+    @Test
+    void testCompactionDropsAcknowledgedWrites() {
+        KVWriteJournal journal = new KVWriteJournal(path, 4096, meterRegistry);
+        String value = "x".repeat(100);
+        for (int i = 0; i < 100; i++) {
+            long sequence = journal.append("status:2023-10-10:U" + i, value);
+            if (i < 99) {
+                journal.acknowledge(List.of(new PendingWrite("status:2023-10-10:U" + i, value, null, 0, sequence)));
+            }
+        }
+
+        assertTrue(journal.size() < 8192, "journal is " + journal.size() + " bytes");
+        assertEquals(1, journal.getUnacknowledgedCount());
+        journal.close();
+        assertEquals("status:2023-10-10:U99", open().getRecovered().get(0).getKey());
+    }
+
+    @Test
+    void testConcurrentAppendsShareSyncs() throws Exception {
+        KVWriteJournal journal = open();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> sequences = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String key = "team:team" + i;
+                sequences.add(executor.submit(() -> journal.append(key, "v")));
+            }
+            for (Future<Long> sequence : sequences) {
+                assertTrue(sequence.get(10, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(200, journal.getUnacknowledgedCount());
+        assertTrue(meterRegistry.get("kv.journal.sync").timer().count() <= 200);
+        journal.close();
+        assertEquals(200, open().getRecovered().size());
+    }
+}
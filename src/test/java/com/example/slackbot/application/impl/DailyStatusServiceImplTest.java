@@ -1,31 +1,39 @@
 package com.example.slackbot.application.impl;
 
 import com.example.slackbot.domain.DailyStatus;
-import com.example.slackbot.adapters.secondary.CloudflareKVAdapter;
+import com.example.slackbot.application.KeyValueStore;
 import com.example.slackbot.application.TeamService;
+import com.example.slackbot.domain.StatusSummary;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import java.util.Arrays;
 import java.util.Collections;
 import com.example.slackbot.application.impl.DailyStatusServiceImpl;
 
 class DailyStatusServiceImplTest {
     private DailyStatusServiceImpl service;
-    private CloudflareKVAdapter cloudflareKVAdapter;
+    private KeyValueStore kvStore;
     private TeamService teamService;
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
-        cloudflareKVAdapter = Mockito.mock(CloudflareKVAdapter.class);
+        kvStore = Mockito.mock(KeyValueStore.class);
         teamService = Mockito.mock(TeamService.class);
         objectMapper = Mockito.mock(ObjectMapper.class);
-        service = new DailyStatusServiceImpl(cloudflareKVAdapter, teamService, objectMapper);
+        service = new DailyStatusServiceImpl(kvStore, teamService, objectMapper);
     }
 
     @Test
@@ -35,7 +43,7 @@ class DailyStatusServiceImplTest {
         status.setDate("2023-10-10");
 
         service.addDailyStatus(status);
-        verify(cloudflareKVAdapter).storeDailyStatus(status);
+        verify(kvStore).storeDailyStatus(status);
     }
 
     @Test
@@ -46,11 +54,77 @@ class DailyStatusServiceImplTest {
         mockStatus.setDate(date);
         List<DailyStatus> mockStatuses = Collections.singletonList(mockStatus);
 
-        when(cloudflareKVAdapter.retrieveDailyStatuses(date)).thenReturn(mockStatuses);
+        when(kvStore.retrieveDailyStatuses(date)).thenReturn(mockStatuses);
 
         List<DailyStatus> statuses = service.getDailyStatuses(date);
         assertEquals(1, statuses.size());
         assertEquals("dev1", statuses.get(0).getDeveloperId());
-        verify(cloudflareKVAdapter).retrieveDailyStatuses(date);
+        verify(kvStore).retrieveDailyStatuses(date);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testGetTeamDailyStatusesReadsOnlyTheTeamIndex() {
+        String date = "2023-10-10";
+        DailyStatus member = new DailyStatus();
+        member.setDeveloperId("dev1");
+        member.setDate(date);
+        service = new DailyStatusServiceImpl(kvStore, teamService, new ObjectMapper());
+
+        when(kvStore.get("status_index:team1:2023-10-10")).thenReturn("[\"dev1\"]");
+        when(kvStore.retrieveDailyStatuses(date, Arrays.asList("dev1"))).thenReturn(Collections.singletonList(member));
+
+        List<DailyStatus> statuses = service.getTeamDailyStatuses(date, "team1");
+        assertEquals(1, statuses.size());
+        assertEquals("dev1", statuses.get(0).getDeveloperId());
+        verify(kvStore, never()).streamDailyStatuses(anyString());
+    }
+
+    @Test
+    void testAssociateStatusWithTeamAddsUserToDateIndex() {
+        DailyStatus status = new DailyStatus();
+        status.setDeveloperId("dev2");
+        status.setDate("2023-10-10");
+        service = new DailyStatusServiceImpl(kvStore, teamService, new ObjectMapper());
+
+        when(kvStore.get("status_index:team1:2023-10-10")).thenReturn("[\"dev1\"]");
+        service.associateStatusWithTeam(status, "team1");
+        verify(kvStore).put("status_index:team1:2023-10-10", "[\"dev1\",\"dev2\"]");
+
+        // Submitting again on the same day does not rewrite the index
+        when(kvStore.get("status_index:team1:2023-10-10")).thenReturn("[\"dev1\",\"dev2\"]");
+        service.associateStatusWithTeam(status, "team1");
+        verify(kvStore, times(1)).put(eq("status_index:team1:2023-10-10"), anyString());
+    }
+
+    @Test
+    void testAssociateStatusWithTeamWritesTheUsersDigestEntry() {
+        DailyStatus status = new DailyStatus();
+        status.setDeveloperId("dev1");
+        status.setDate("2023-10-10");
+        status.setAvailability("Available");
+        status.setTasks("Review");
+
+        service.associateStatusWithTeam(status, "team1");
+        ArgumentCaptor<StatusSummary> written = ArgumentCaptor.forClass(StatusSummary.class);
+        verify(kvStore).putStatusSummary(eq("status_digest:team1:2023-10-10:dev1"), written.capture());
+        assertEquals("Review", written.getValue().getTasks());
+        assertEquals("Available", written.getValue().getAvailability());
+
+        // A second submission that day replaces the user's entry without reading the digest
+        status.setAvailability("Away");
+        service.associateStatusWithTeam(status, "team1");
+        verify(kvStore, times(2)).putStatusSummary(eq("status_digest:team1:2023-10-10:dev1"), written.capture());
+        assertEquals("Away", written.getValue().getAvailability());
+        verify(kvStore, never()).get(startsWith("status_digest:"));
+    }
+
+    @Test
+    void testFirstDateWithDigestsIsRecordedOnce() {
+        service.recordDigestStart();
+        verify(kvStore).put(eq("digest_entries_since:status"), anyString());
+
+        when(kvStore.get("digest_entries_since:status")).thenReturn("2023-10-11");
+        service.recordDigestStart();
+        verify(kvStore, times(1)).put(eq("digest_entries_since:status"), anyString());
+    }
+}
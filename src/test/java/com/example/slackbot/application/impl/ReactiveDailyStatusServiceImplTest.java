@@ -0,0 +1,134 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.application.ReactiveTeamService;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.MemberSet;
+import com.example.slackbot.domain.StatusSummary;
+import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamDigest;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveDailyStatusServiceImplTest {
+    private ReactiveDailyStatusServiceImpl service;
+    private KeyValueStore kvStore;
+    private ReactiveTeamService teamService;
+
+    @BeforeEach
+    void setUp() {
+        kvStore = Mockito.mock(KeyValueStore.class);
+        teamService = Mockito.mock(ReactiveTeamService.class);
+        service = new ReactiveDailyStatusServiceImpl(kvStore, teamService, new VersionedValueCodec(new ObjectMapper()));
+        when(teamService.getTeamHierarchy(anyString())).thenReturn(Mono.empty());
+        when(kvStore.getAsync(anyString())).thenReturn(Mono.empty());
+        when(kvStore.getManyAsync(anyCollection())).thenReturn(Mono.just(Collections.emptyMap()));
+        when(kvStore.listStatusSummariesAsync(anyString())).thenReturn(Mono.just(Collections.emptyList()));
+    }
+
+    @Test
+    void testGetTeamDailyStatusesReadsOnlyTheTeamIndex() {
+        String date = "2023-10-10";
+        DailyStatus member = new DailyStatus();
+        member.setDeveloperId("dev1");
+        member.setDate(date);
+
+        when(kvStore.getAsync("status_index:team1:2023-10-10")).thenReturn(Mono.just("[\"dev1\"]"));
+        when(kvStore.retrieveDailyStatusesAsync(date, Arrays.asList("dev1")))
+            .thenReturn(Mono.just(Collections.singletonList(member)));
+
+        List<DailyStatus> statuses = service.getTeamDailyStatuses(date, "team1").block();
+        assertEquals(1, statuses.size());
+        assertEquals("dev1", statuses.get(0).getDeveloperId());
+        verify(kvStore, never()).streamDailyStatuses(anyString());
+    }
+
+    @Test
+    void testGetTeamDailyStatusesWithoutIndexSkipsStatusReads() {
+        when(kvStore.getAsync("status_index:team1:2023-10-10")).thenReturn(Mono.empty());
+
+        assertTrue(service.getTeamDailyStatuses("2023-10-10", "team1").block().isEmpty());
+        verify(kvStore, never()).retrieveDailyStatusesAsync(anyString(), anyCollection());
+    }
+
+    @Test
+    void testGetTeamStatusSummariesBeforeDigestsReadsSummariesOnly() {
+        String date = "2023-10-10";
+        when(kvStore.getAsync("digest_entries_since:status")).thenReturn(Mono.just("2023-10-11"));
+        when(kvStore.getAsync("status_index:team1:2023-10-10")).thenReturn(Mono.just("[\"dev1\"]"));
+        when(kvStore.retrieveStatusSummariesAsync(date, Arrays.asList("dev1")))
+            .thenReturn(Mono.just(Collections.singletonList(new StatusSummary("dev1", "Available", "Review", false))));
+
+        List<StatusSummary> summaries = service.getTeamStatusSummaries(date, "team1").block();
+        assertEquals(1, summaries.size());
+        assertEquals("Review", summaries.get(0).getTasks());
+        verify(kvStore, never()).retrieveDailyStatusesAsync(anyString(), anyCollection());
+        verify(kvStore, never()).getManyAsync(anyCollection());
+    }
+
+    @Test
+    void testGetTeamStatusSummariesListsOnlyTheDigestEntries() {
+        String date = "2023-10-10";
+        when(kvStore.getAsync("digest_entries_since:status")).thenReturn(Mono.just("2023-10-01"));
+        when(kvStore.listStatusSummariesAsync("status_digest:team1:2023-10-10:"))
+            .thenReturn(Mono.just(Collections.singletonList(new StatusSummary("dev1", "Available", "Review", false))));
+
+        List<StatusSummary> summaries = service.getTeamStatusSummaries(date, "team1").block();
+        assertEquals(1, summaries.size());
+        assertEquals("Review", summaries.get(0).getTasks());
+        verify(kvStore, never()).getAsync("status_index:team1:2023-10-10");
+        verify(kvStore, never()).retrieveStatusSummariesAsync(anyString(), anyCollection());
+    }
+
+    @Test
+    void testSubTeamWithoutDigestEntriesAddsNothing() {
+        String date = "2023-10-10";
+        when(kvStore.getAsync("digest_entries_since:status")).thenReturn(Mono.just("2023-10-01"));
+        when(teamService.getTeamHierarchy("dept")).thenReturn(Mono.just(new TeamHierarchy(
+            "dept", Collections.emptyList(), Arrays.asList("squad1", "squad2"), Arrays.asList("squad1", "squad2"),
+            new MemberSet(), new MemberSet())));
+        when(kvStore.listStatusSummariesAsync("status_digest:squad1:2023-10-10:"))
+            .thenReturn(Mono.just(Collections.singletonList(new StatusSummary("dev1", "Available", "Review", false))));
+
+        TeamDigest digest = service.getTeamDigest(date, "dept").block();
+        assertEquals("dept", digest.getTeamId());
+        assertEquals(1, digest.getSummaries().size());
+        verify(kvStore).listStatusSummariesAsync("status_digest:dept:2023-10-10:");
+        verify(kvStore).listStatusSummariesAsync("status_digest:squad2:2023-10-10:");
+        verify(kvStore, never()).retrieveStatusSummariesAsync(anyString(), anyCollection());
+    }
+
+    @Test
+    void testHasViewPermission() {
+        Team team = new Team();
+        team.setId("team1");
+        team.addMember("dev1");
+        team.addMember("dev2");
+
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team);
+        when(teamService.getVisibleUserIds(anyString()))
+            .thenAnswer(invocation -> Mono.just(index.getVisibleUserIds(invocation.getArgument(0))));
+
+        assertTrue(service.hasViewPermission("dev1", "dev1").block());
+        assertTrue(service.hasViewPermission("dev1", "dev2").block());
+        assertFalse(service.hasViewPermission("dev1", "designer1").block());
+        assertFalse(service.hasViewPermission("outsider", "dev1").block());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.adapters.secondary.EmbeddedLogKVStore;
+import com.example.slackbot.application.TeamService;
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.StatusKeys;
+import com.example.slackbot.domain.StatusSummary;
+import com.example.slackbot.domain.Team;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class StatusRollupServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedLogKVStore kvStore;
+    private VersionedValueCodec codec;
+    private Team team;
+    private StatusRollupServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        codec = new VersionedValueCodec(new ObjectMapper());
+        kvStore = new EmbeddedLogKVStore(directory.toString(), 1 << 20, 0.5, false, codec);
+
+        team = new Team();
+        team.setId("team1");
+        team.addMember("dev1");
+        TeamService teamService = Mockito.mock(TeamService.class);
+        when(teamService.getAllTeams()).thenReturn(Collections.singletonList(team));
+
+        service = new StatusRollupServiceImpl(kvStore, teamService, codec, "UTC", 30, "week", 0, 31);
+    }
+
+    private void submit(String date, String userId) {
+        DailyStatus status = new DailyStatus();
+        status.setDeveloperId(userId);
+        status.setDate(date);
+        status.setAvailability("Available");
+        status.setTasks("Tasks of " + date);
+        kvStore.storeDailyStatus(status);
+        kvStore.put(StatusKeys.teamIndexKey("team1", date), "[\"" + userId + "\"]");
+        kvStore.putStatusSummary(StatusKeys.digestEntryKey("team1", date, userId), StatusSummary.of(status));
+    }
+
+    @Test
+    void testNothingToRollUpRecordsTheCutoff() {
+        submit("2023-11-01", "dev1");
+
+        assertEquals(0, service.rollUpStatuses(LocalDate.parse("2023-11-10")));
+        assertEquals("2023-10-10", kvStore.get(StatusKeys.ROLLUP_CURSOR_KEY));
+    }
+
+    @Test
+    void testOldStatusesAreRolledUpAndExpire() {
+        submit("2023-10-09", "dev1");
+        submit("2023-10-10", "dev1");
+        submit("2023-11-20", "dev1");
+
+        // Thirty days of retention keep statuses from 2023-10-11 on
+        assertEquals(2, service.rollUpStatuses(LocalDate.parse("2023-11-10")));
+        assertEquals("2023-10-10", kvStore.get(StatusKeys.ROLLUP_CURSOR_KEY));
+        assertEquals(0, service.rollUpStatuses(LocalDate.parse("2023-11-10")));
+
+        List<StatusSummary> history = service.getTeamStatusHistory("team1", "2023-10-10");
+        assertEquals(1, history.size());
+        assertEquals("Tasks of 2023-10-10", history.get(0).getTasks());
+
+        kvStore.expireKeys();
+        assertNull(kvStore.get(StatusKeys.statusKey("2023-10-10", "dev1")));
+        assertNull(kvStore.get(StatusKeys.teamIndexKey("team1", "2023-10-10")));
+        assertNull(kvStore.get(StatusKeys.digestEntryKey("team1", "2023-10-10", "dev1")));
+        assertNotNull(kvStore.get(StatusKeys.digestEntryKey("team1", "2023-11-20", "dev1")));
+        assertNotNull(kvStore.get(StatusKeys.statusKey("2023-11-20", "dev1")));
+    }
+
+    @Test
+    void testScheduledRunOnlyRollsUpWhereEnabled() {
+        submit("2023-10-09", "dev1");
+        TeamService teamService = Mockito.mock(TeamService.class);
+        when(teamService.getAllTeams()).thenReturn(Collections.singletonList(team));
+
+        StatusRollupServiceImpl disabled = new StatusRollupServiceImpl(
+            kvStore, teamService, codec, "UTC", 30, "week", 0, 31, false);
+        assertEquals(0, disabled.rollUpStatuses());
+        assertNull(kvStore.get(StatusKeys.ROLLUP_CURSOR_KEY));
+
+        StatusRollupServiceImpl enabled = new StatusRollupServiceImpl(
+            kvStore, teamService, codec, "UTC", 30, "week", 0, 31, true);
+        assertEquals(31, enabled.rollUpStatuses());
+        assertEquals("2023-11-08", kvStore.get(StatusKeys.ROLLUP_CURSOR_KEY));
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.domain.MemberSet;
+import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamHierarchy;
+import com.example.slackbot.domain.TeamSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeamMembershipIndexTest {
+
+    private static Team team(String id, String manager, String... members) {
+        Team team = new Team();
+        team.setId(id);
+        team.addManager(manager);
+        for (String member : members) {
+            team.addMember(member);
+        }
+        return team;
+    }
+
+    @Test
+    void testUpdatesMoveOnlyChangedUsers() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team("team1", "manager1", "dev1", "dev2"));
+        index.put(team("team2", "manager2", "dev1"));
+
+        assertEquals(Set.of("team1", "team2"), index.getTeamIds("dev1"));
+        assertEquals(Set.of("team1"), index.getTeamIds("manager1"));
+
+        index.put(team("team1", "manager1", "dev2"));
+        assertEquals(Set.of("team2"), index.getTeamIds("dev1"));
+
+        index.remove("team2");
+        assertTrue(index.getTeamIds("dev1").isEmpty());
+        assertTrue(index.getTeamIds("manager2").isEmpty());
+    }
+
+    @Test
+    void testChangesDuringRebuildWinOverTheTeamsRead() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team("team3", "manager3", "dev3"));
+        assertFalse(index.isLoaded());
+
+        long generation = index.beginRebuild();
+        // Written after the rebuild read its teams
+        index.put(team("team1", "manager1", "dev1", "dev2"));
+        index.remove("team2");
+        index.finishRebuild(generation, Arrays.asList(team("team1", "manager1", "dev1"), team("team2", "manager2", "dev2")));
+
+        assertTrue(index.isLoaded());
+        assertEquals(Set.of("team1"), index.getTeamIds("dev2"));
+        assertEquals(Collections.emptySet(), index.getTeamIds("manager2"));
+        // Teams no longer in KV are dropped
+        assertTrue(index.getTeamIds("dev3").isEmpty());
+    }
+
+    @Test
+    void testOverlappingRebuildsKeepTheirOwnChanges() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        long first = index.beginRebuild();
+        index.put(team("team1", "manager1", "dev1"));
+        long second = index.beginRebuild();
+        index.put(team("team2", "manager2", "dev2"));
+
+        // The second rebuild read team1 but not team2, and keeps the write of team2
+        assertTrue(index.finishRebuild(second, Collections.singletonList(team("team1", "manager1", "dev1"))));
+        assertEquals(Set.of("team2"), index.getTeamIds("dev2"));
+
+        // The first rebuild read teams before the second did and is dropped
+        assertFalse(index.finishRebuild(first, Collections.emptyList()));
+        assertEquals(Set.of("team1"), index.getTeamIds("dev1"));
+        assertEquals(Set.of("team2"), index.getTeamIds("dev2"));
+
+        assertThrows(IllegalStateException.class, () -> index.finishRebuild(first, Collections.emptyList()));
+    }
+
+    @Test
+    void testHandsOutTheSameSnapshotUntilTheTeamChanges() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team("team1", "manager1", "dev1"));
+
+        TeamSnapshot snapshot = index.getTeam("team1");
+        assertSame(snapshot, index.getTeams("dev1").get(0));
+        assertSame(snapshot, index.getTeams("manager1").get(0));
+
+        index.put(team("team1", "manager1", "dev1", "dev2"));
+        assertNotSame(snapshot, index.getTeam("team1"));
+        assertFalse(snapshot.isMember("dev2"));
+        assertTrue(index.getTeam("team1").isMember("dev2"));
+
+        index.remove("team1");
+        assertNull(index.getTeam("team1"));
+        assertTrue(index.getTeams("dev1").isEmpty());
+    }
+
+    @Test
+    void testVisibleUsersFollowMembershipChanges() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team("team1", "manager1", "dev1", "dev2"));
+        index.put(team("team2", "manager2", "dev2", "designer1"));
+
+        assertEquals(Set.of("manager1", "dev1", "dev2"), index.getVisibleUserIds("dev1"));
+        assertEquals(Set.of("manager1", "manager2", "dev1", "dev2", "designer1"), index.getVisibleUserIds("dev2"));
+        assertTrue(index.getVisibleUserIds("outsider").isEmpty());
+
+        // Joins are added to the cached sets of old and new members alike
+        index.put(team("team1", "manager1", "dev1", "dev2", "outsider"));
+        assertTrue(index.getVisibleUserIds("dev1").contains("outsider"));
+        assertEquals(Set.of("manager1", "dev1", "dev2", "outsider"), index.getVisibleUserIds("outsider"));
+
+        // dev2 leaves team1 but still shares team2 with designer1
+        index.put(team("team1", "manager1", "dev1", "outsider"));
+        assertFalse(index.getVisibleUserIds("dev1").contains("dev2"));
+        assertEquals(Set.of("manager2", "dev2", "designer1"), index.getVisibleUserIds("dev2"));
+
+        index.remove("team2");
+        assertTrue(index.getVisibleUserIds("designer1").isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> index.getVisibleUserIds("dev1").add("dev2"));
+    }
+
+    private static Team child(String id, String parentId, String manager, String... members) {
+        Team team = team(id, manager, members);
+        team.setParentId(parentId);
+        return team;
+    }
+
+    @Test
+    void testHierarchyFollowsNestingChanges() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        // A squad indexed before its department is linked once the department arrives
+        index.put(child("squad1", "dept", "lead1", "dev1"));
+        index.put(team("dept", "head"));
+        index.put(child("squad2", "dept", "lead2", "dev2"));
+        index.put(child("pod", "squad2", "lead3", "dev3"));
+
+        TeamHierarchy dept = index.getHierarchy("dept");
+        assertEquals(Arrays.asList("squad1", "squad2"), dept.getChildIds());
+        assertEquals(Set.of("squad1", "squad2", "pod"), Set.copyOf(dept.getDescendantIds()));
+        assertEquals(Set.of("head", "lead1", "dev1", "lead2", "dev2", "lead3", "dev3"), dept.getMemberIds());
+        assertEquals(Arrays.asList("squad2", "dept"), index.getHierarchy("pod").getAncestorIds());
+        assertTrue(index.getHierarchy("pod").isManagedFromAbove("head"));
+        assertTrue(index.getVisibleUserIds("head").contains("dev3"));
+
+        // Moving a sub-tree updates the ancestors on both sides
+        index.put(team("squad2", "lead2", "dev2"));
+        assertEquals(Set.of("head", "lead1", "dev1"), index.getHierarchy("dept").getMemberIds());
+        assertEquals(Collections.singletonList("squad2"), index.getHierarchy("pod").getAncestorIds());
+        assertFalse(index.getVisibleUserIds("head").contains("dev3"));
+
+        // Membership changes below reach the department's flattened members
+        index.put(child("squad1", "dept", "lead1", "dev1", "dev4"));
+        assertTrue(index.getHierarchy("dept").getMemberIds().contains("dev4"));
+        assertTrue(index.getVisibleUserIds("head").contains("dev4"));
+
+        index.remove("dept");
+        assertNull(index.getHierarchy("dept"));
+        assertTrue(index.getHierarchy("squad1").getAncestorIds().isEmpty());
+    }
+
+    @Test
+    void testPromotedAndDemotedManagersSeeTheTeamsBelowOrNot() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team("dept", "head", "dev1"));
+        index.put(child("squad", "dept", "lead", "dev2"));
+        assertEquals(Set.of("head", "dev1"), index.getVisibleUserIds("dev1"));
+
+        Team promoted = team("dept", "head", "dev1");
+        promoted.addManager("dev1");
+        index.put(promoted);
+        assertEquals(Set.of("head", "dev1", "lead", "dev2"), index.getVisibleUserIds("dev1"));
+
+        index.put(team("dept", "head", "dev1"));
+        assertEquals(Set.of("head", "dev1"), index.getVisibleUserIds("dev1"));
+        assertTrue(index.getVisibleUserIds("head").contains("dev2"));
+    }
+
+    @Test
+    void testReparentedTeamMovesBetweenTheViewsOfItsAncestorsManagers() {
+        TeamMembershipIndex index = new TeamMembershipIndex();
+        index.put(team("org", "ceo"));
+        index.put(child("deptA", "org", "headA"));
+        index.put(child("deptB", "org", "headB"));
+        index.put(child("squad", "deptA", "lead", "dev1"));
+        index.put(child("pod", "squad", "podLead", "dev2"));
+        assertEquals(Set.of("headA", "lead", "dev1", "podLead", "dev2"), index.getVisibleUserIds("headA"));
+        assertEquals(Set.of("headB"), index.getVisibleUserIds("headB"));
+        assertTrue(index.getVisibleUserIds("ceo").contains("dev2"));
+        MemberSet leadView = index.getVisibleUserIds("lead");
+
+        index.put(child("squad", "deptB", "lead", "dev1"));
+
+        assertEquals(Set.of("headA"), index.getVisibleUserIds("headA"));
+        assertEquals(Set.of("headB", "lead", "dev1", "podLead", "dev2"), index.getVisibleUserIds("headB"));
+        assertTrue(index.getVisibleUserIds("ceo").contains("dev2"));
+        assertEquals(leadView, index.getVisibleUserIds("lead"));
+        assertEquals(Arrays.asList("squad", "deptB", "org"), index.getHierarchy("pod").getAncestorIds());
+    }
+}
@@ -1,8 +1,8 @@
 package com.example.slackbot.application.impl;
 
 import com.example.slackbot.IntegrationTestConfig;
-import com.example.slackbot.adapters.secondary.CloudflareKVAdapter;
 import com.example.slackbot.adapters.secondary.OutlookCalendarAdapter;
+import com.example.slackbot.application.KeyValueStore;
 import com.example.slackbot.domain.Team;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,6 +21,7 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -29,7 +30,7 @@ import static org.mockito.Mockito.*;
 class TeamServiceIntegrationTest {
 
     @MockBean
-    private CloudflareKVAdapter kvAdapter;
+    private KeyValueStore kvAdapter;
     
     private TeamServiceImpl teamService;
     private ObjectMapper objectMapper;
@@ -62,6 +63,18 @@ class TeamServiceIntegrationTest {
         team2.addManager("user5");
         team2.addMember("user6");
         when(kvAdapter.get("team:team2")).thenReturn(objectMapper.writeValueAsString(team2));
+        
+        // Bulk reads resolve through the single-key stubs above
+        when(kvAdapter.getMany(anyCollection())).thenAnswer(invocation -> {
+            Map<String, String> values = new HashMap<>();
+            for (String key : invocation.<Collection<String>>getArgument(0)) {
+                String value = kvAdapter.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values;
+        });
     }
 
     @Test
@@ -1,7 +1,9 @@
 package com.example.slackbot.application.impl;
 
-import com.example.slackbot.adapters.secondary.CloudflareKVAdapter;
+import com.example.slackbot.application.KeyValueStore;
+import com.example.slackbot.domain.MembershipResult;
 import com.example.slackbot.domain.Team;
+import com.example.slackbot.domain.TeamPage;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,17 +11,20 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class TeamServiceTest {
 
     @Mock
-    private CloudflareKVAdapter kvAdapter;
+    private KeyValueStore kvAdapter;
 
     private TeamServiceImpl teamService;
     private ObjectMapper objectMapper;
@@ -53,6 +58,18 @@ class TeamServiceTest {
         team2.addManager("user5");
         team2.addMember("user6");
         when(kvAdapter.get("team:team2")).thenReturn(objectMapper.writeValueAsString(team2));
+        
+        // Bulk reads resolve through the single-key stubs above
+        when(kvAdapter.getMany(anyCollection())).thenAnswer(invocation -> {
+            Map<String, String> values = new HashMap<>();
+            for (String key : invocation.<Collection<String>>getArgument(0)) {
+                String value = kvAdapter.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values;
+        });
     }
 
     @Test
@@ -168,4 +185,166 @@ class TeamServiceTest {
         Team teamAfterRemove = objectMapper.readValue(removeValueCaptor.getValue(), Team.class);
         assertFalse(teamAfterRemove.isMember("user4"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testCreateTeamWritesOnlyItsIndexShard() throws JsonProcessingException {
+        Team newTeam = new Team();
+        newTeam.setId("team3");
+        newTeam.setName("QA Team");
+        teamService.createTeam(newTeam);
+        
+        String shardKey = KVRecords.teamIndexShardKey("team3", 16);
+        verify(kvAdapter).put(shardKey, objectMapper.writeValueAsString(Arrays.asList("team3")));
+        verify(kvAdapter, never()).put(eq("all_teams"), anyString());
+        
+        // The merged index still includes the teams of the legacy index
+        when(kvAdapter.get(shardKey)).thenReturn(objectMapper.writeValueAsString(Arrays.asList("team3")));
+        when(kvAdapter.get("team:team3")).thenReturn(objectMapper.writeValueAsString(newTeam));
+        assertEquals(3, teamService.getAllTeams().size());
+    }
+
+    @Test
+    void testRepairTeamIndexFoldsLegacyIndexIntoShards() throws JsonProcessingException {
+        // team3 exists but its index update was lost; team4 is indexed but deleted
+        Team team3 = new Team();
+        team3.setId("team3");
+        when(kvAdapter.get("team:team3")).thenReturn(objectMapper.writeValueAsString(team3));
+        when(kvAdapter.listKeys("team:")).thenReturn(Flux.just("team:team1", "team:team2", "team:team3"));
+        String team4Shard = KVRecords.teamIndexShardKey("team4", 16);
+        when(kvAdapter.get(team4Shard)).thenReturn(objectMapper.writeValueAsString(Arrays.asList("team4")));
+        
+        teamService.repairTeamIndex();
+        
+        Map<String, List<String>> shards = new HashMap<>();
+        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> valueCaptor = ArgumentCaptor.forClass(String.class);
+        verify(kvAdapter, atLeastOnce()).put(keyCaptor.capture(), valueCaptor.capture());
+        for (int i = 0; i < keyCaptor.getAllValues().size(); i++) {
+            shards.put(keyCaptor.getAllValues().get(i), Arrays.asList(objectMapper.readValue(valueCaptor.getAllValues().get(i), String[].class)));
+        }
+        
+        for (String teamId : Arrays.asList("team1", "team2", "team3")) {
+            assertTrue(shards.get(KVRecords.teamIndexShardKey(teamId, 16)).contains(teamId));
+        }
+        assertFalse(shards.get(team4Shard).contains("team4"));
+        verify(kvAdapter).delete("all_teams");
+    }
+
+    @Test
+    void testAddUsersToTeamWritesOnce() throws Exception {
+        Map<String, MembershipResult> results =
+            teamService.addUsersToTeam("team1", Arrays.asList("user7", "user2", "user8", "user7"));
+        
+        assertEquals(Arrays.asList("user7", "user2", "user8"), new ArrayList<>(results.keySet()));
+        assertEquals(MembershipResult.ADDED, results.get("user7"));
+        assertEquals(MembershipResult.ALREADY_MEMBER, results.get("user2"));
+        
+        verify(kvAdapter, times(1)).get("team:team1");
+        ArgumentCaptor<String> valueCaptor = ArgumentCaptor.forClass(String.class);
+        verify(kvAdapter, times(1)).put(eq("team:team1"), valueCaptor.capture());
+        Team updatedTeam = objectMapper.readValue(valueCaptor.getValue(), Team.class);
+        assertTrue(updatedTeam.isMember("user7"));
+        assertTrue(updatedTeam.isMember("user8"));
+        assertEquals(5, updatedTeam.getMemberIds().size());
+    }
+    
+    @Test
+    void testRemoveUsersFromTeamKeepsTheLastManager() throws Exception {
+        Map<String, MembershipResult> results =
+            teamService.removeUsersFromTeam("team1", Arrays.asList("user1", "user2", "user9"));
+        
+        assertEquals(MembershipResult.LAST_MANAGER, results.get("user1"));
+        assertEquals(MembershipResult.REMOVED, results.get("user2"));
+        assertEquals(MembershipResult.NOT_MEMBER, results.get("user9"));
+        
+        ArgumentCaptor<String> valueCaptor = ArgumentCaptor.forClass(String.class);
+        verify(kvAdapter, times(1)).put(eq("team:team1"), valueCaptor.capture());
+        Team updatedTeam = objectMapper.readValue(valueCaptor.getValue(), Team.class);
+        assertTrue(updatedTeam.isManager("user1"));
+        assertFalse(updatedTeam.isMember("user2"));
+    }
+    
+    @Test
+    void testReplaceTeamMembersKeepsManagers() throws Exception {
+        Map<String, MembershipResult> results =
+            teamService.replaceTeamMembers("team2", Arrays.asList("user6", "user7"));
+        
+        assertEquals(MembershipResult.ALREADY_MEMBER, results.get("user6"));
+        assertEquals(MembershipResult.ADDED, results.get("user7"));
+        assertEquals(MembershipResult.KEPT_MANAGER, results.get("user4"));
+        assertEquals(MembershipResult.KEPT_MANAGER, results.get("user5"));
+        
+        ArgumentCaptor<String> valueCaptor = ArgumentCaptor.forClass(String.class);
+        verify(kvAdapter, times(1)).put(eq("team:team2"), valueCaptor.capture());
+        Team updatedTeam = objectMapper.readValue(valueCaptor.getValue(), Team.class);
+        assertEquals(Set.of("user4", "user5", "user6", "user7"), updatedTeam.getMemberIds());
+    }
+    
+    @Test
+    void testBulkChangesThatChangeNothingDoNotWrite() {
+        teamService.addUsersToTeam("team1", Arrays.asList("user2", "user3"));
+        
+        verify(kvAdapter, never()).put(eq("team:team1"), anyString());
+        assertThrows(NoSuchElementException.class,
+            () -> teamService.addUsersToTeam("unknown", Collections.singletonList("user2")));
+    }
+
+    @Test
+    void testListTeamsReadsOnlyThePageShown() {
+        TeamPage first = teamService.listTeams(null, 1);
+        assertEquals(1, first.getTeams().size());
+        assertEquals("team1", first.getTeams().get(0).getId());
+        assertEquals("team1", first.getNextCursor());
+        verify(kvAdapter, never()).get("team:team2");
+        
+        TeamPage second = teamService.listTeams(first.getNextCursor(), 1);
+        assertEquals("team2", second.getTeams().get(0).getId());
+        assertFalse(second.hasNext());
+    }
+    
+    @Test
+    void testListTeamsByUserIdUsesTheMembershipIndex() {
+        TeamPage page = teamService.listTeamsByUserId("user4", null, 10);
+        
+        assertEquals(1, page.getTeams().size());
+        assertEquals("Design Team", page.getTeams().get(0).getName());
+        assertFalse(page.hasNext());
+        assertTrue(teamService.listTeamsByUserId("nobody", null, 10).getTeams().isEmpty());
+    }
+
+    @Test
+    void testParentThatWouldCreateACycleIsRejected() throws Exception {
+        // team2 is already below team1
+        Team team2 = objectMapper.readValue(kvAdapter.get("team:team2"), Team.class);
+        team2.setParentId("team1");
+        teamService.updateTeam(team2);
+        when(kvAdapter.get("team:team2")).thenReturn(objectMapper.writeValueAsString(team2));
+        
+        Team team1 = teamService.getTeamById("team1").get();
+        team1.setParentId("team2");
+        assertThrows(IllegalArgumentException.class, () -> teamService.updateTeam(team1));
+        
+        team1.setParentId("team1");
+        assertThrows(IllegalArgumentException.class, () -> teamService.updateTeam(team1));
+        
+        team1.setParentId("missing");
+        assertThrows(NoSuchElementException.class, () -> teamService.updateTeam(team1));
+        
+        verify(kvAdapter, times(1)).put(anyString(), anyString());
+    }
+
+    @Test
+    void testDeleteTeamMovesSubTeamsUpBeforeTheIndexIsLoaded() throws Exception {
+        Team team2 = objectMapper.readValue(kvAdapter.get("team:team2"), Team.class);
+        team2.setParentId("team1");
+        when(kvAdapter.get("team:team2")).thenReturn(objectMapper.writeValueAsString(team2));
+        
+        // A fresh service has not loaded its membership index yet
+        new TeamServiceImpl(kvAdapter, objectMapper).deleteTeam("team1");
+        
+        ArgumentCaptor<String> saved = ArgumentCaptor.forClass(String.class);
+        verify(kvAdapter).put(eq("team:team2"), saved.capture());
+        assertNull(objectMapper.readValue(saved.getValue(), Team.class).getParentId());
+        verify(kvAdapter).delete("team:team1");
+    }
+}
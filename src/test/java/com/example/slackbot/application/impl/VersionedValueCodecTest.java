@@ -0,0 +1,107 @@
+package com.example.slackbot.application.impl;
+
+import com.example.slackbot.domain.DailyStatus;
+import com.example.slackbot.domain.Team;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionedValueCodecTest {
+    private ObjectMapper objectMapper;
+    private VersionedValueCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        codec = new VersionedValueCodec(objectMapper, "smile", 256);
+    }
+
+    @Test
+    void testTeamRoundTripIsSmallerThanJson() throws IOException {
+        Team team = new Team();
+        team.setId("team1");
+        team.setName("Engineering");
+        for (int i = 0; i < 50; i++) {
+            team.addMember("U0" + (1000000 + i) + "ABCD");
+        }
+        team.addManager("U01000000ABCD");
+
+        String stored = codec.encode(team);
+        assertEquals(VersionedValueCodec.FORMAT_SMILE, Base64.getDecoder().decode(stored)[0]);
+        assertTrue(stored.length() < objectMapper.writeValueAsString(team).length());
+
+        Team decoded = codec.decode(stored, Team.class);
+        assertEquals("Engineering", decoded.getName());
+        assertEquals(team.getMemberIds(), decoded.getMemberIds());
+        assertTrue(decoded.isManager("U01000000ABCD"));
+    }
+
+    @Test
+    void testTypicalStatusIsNoLargerThanJson() throws IOException {
+        DailyStatus status = new DailyStatus();
+        status.setDeveloperId("U01000000ABCD");
+        status.setDate("2023-10-10");
+        status.setAvailability("Available");
+        status.setTasks("Review the deploy pipeline changes\nPair on the flaky integration test");
+        status.setNotes("Out for lunch 12-1");
+
+        String stored = codec.encode(status);
+        assertTrue(stored.length() <= objectMapper.writeValueAsBytes(status).length);
+
+        DailyStatus decoded = codec.decode(stored, DailyStatus.class);
+        assertEquals(status.getTasks(), decoded.getTasks());
+        assertEquals(status.getNotes(), decoded.getNotes());
+    }
+
+    @Test
+    void testSmallTeamIsNoLargerThanJson() throws IOException {
+        Team team = new Team();
+        team.setId("team1");
+        team.setName("Platform");
+        for (int i = 0; i < 5; i++) {
+            team.addMember("U0" + (1000000 + i) + "ABCD");
+        }
+        team.addManager("U01000000ABCD");
+
+        String stored = codec.encode(team);
+        assertTrue(stored.length() <= objectMapper.writeValueAsBytes(team).length);
+        assertEquals(team.getMemberIds(), codec.decode(stored, Team.class).getMemberIds());
+    }
+
+    @Test
+    void testValueSmallerAsJsonIsWrittenAsJson() throws IOException {
+        assertEquals("[\"dev1\"]", codec.encode(new String[] {"dev1"}));
+    }
+
+    @Test
+    void testReadsJsonWrittenBeforeTheCodec() throws IOException {
+        DailyStatus status = codec.decode("{\"availability\": \"Available\", \"tasks\": \"Review\", \"date\": \"2023-10-10\"}", DailyStatus.class);
+        assertEquals("Available", status.getAvailability());
+        assertEquals("2023-10-10", status.getDate());
+
+        assertArrayEquals(new String[] {"dev1", "dev2"}, codec.decode("[\"dev1\",\"dev2\"]", String[].class));
+        assertNull(codec.decode(null, Team.class));
+    }
+
+    @Test
+    void testJsonFormatWritesPlainJson() throws IOException {
+        VersionedValueCodec jsonCodec = new VersionedValueCodec(objectMapper);
+        String stored = jsonCodec.encode(new String[] {"dev1"});
+        assertEquals("[\"dev1\"]", stored);
+
+        // Either codec reads what the other wrote
+        assertArrayEquals(new String[] {"dev1"}, codec.decode(stored, String[].class));
+        assertArrayEquals(new String[] {"dev1"}, jsonCodec.decode(codec.encode(new String[] {"dev1"}), String[].class));
+    }
+
+    @Test
+    void testUnknownFormatVersionIsRejected() {
+        String stored = Base64.getEncoder().encodeToString(new byte[] {9, 0, 1, 2});
+        assertThrows(IOException.class, () -> codec.decode(stored, Team.class));
+    }
+}
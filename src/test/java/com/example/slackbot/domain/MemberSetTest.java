@@ -0,0 +1,114 @@
+package com.example.slackbot.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberSetTest {
+
+    @Test
+    void testBehavesLikeASetOfUserIds() {
+        MemberSet members = new MemberSet(Arrays.asList("U1", "U2", "U2"));
+        assertEquals(2, members.size());
+        assertTrue(members.contains("U1"));
+        assertFalse(members.contains("U-never-seen"));
+        assertEquals(new HashSet<>(Arrays.asList("U1", "U2")), members);
+
+        assertTrue(members.remove("U1"));
+        assertFalse(members.remove("U1"));
+        assertEquals(Set.of("U2"), members);
+
+        Iterator<String> iterator = members.iterator();
+        iterator.next();
+        iterator.remove();
+        assertTrue(members.isEmpty());
+    }
+
+    @Test
+    void testIntersection() {
+        Team platform = new Team();
+        platform.addMember("U1");
+        platform.addMember("U2");
+        platform.addMember("U3");
+        Team design = new Team();
+        design.addMember("U2");
+        design.addMember("U3");
+        design.addMember("U4");
+
+        assertEquals(Set.of("U2", "U3"), platform.getCommonMemberIds(design));
+        assertEquals(2, platform.getMemberIds().intersectionSize(design.getMemberIds()));
+        // The operands are left unchanged
+        assertEquals(3, platform.getMemberIds().size());
+    }
+
+    @Test
+    void testSparseSetOfHighIdsStaysSmall() {
+        UserIdDictionary dictionary = new UserIdDictionary();
+        for (int i = 0; i < 200_000; i++) {
+            dictionary.intern("U" + i);
+        }
+        MemberSet team = new MemberSet(dictionary);
+        for (int i = 199_995; i < 200_000; i++) {
+            team.add("U" + i);
+        }
+
+        assertEquals(5, team.size());
+        assertTrue(team.contains("U199997"));
+        assertFalse(team.contains("U0"));
+        // A bitmap up to the highest ID would take 25,000 bytes
+        assertTrue(team.storageBytes() <= 8 * Integer.BYTES);
+        assertEquals(5 * Integer.BYTES, team.frozen().storageBytes());
+    }
+
+    @Test
+    void testDenseAndSparseSetsCombine() {
+        UserIdDictionary dictionary = new UserIdDictionary();
+        MemberSet everyone = new MemberSet(dictionary);
+        for (int i = 0; i < 1000; i++) {
+            everyone.add("U" + i);
+        }
+        // Past a bit per ID of the dictionary, a bitmap is the smaller form
+        assertTrue(everyone.storageBytes() < 1000 * Integer.BYTES);
+
+        MemberSet squad = new MemberSet(dictionary);
+        squad.add("U999");
+        squad.add("U5");
+        squad.add("U-new");
+
+        assertEquals(2, everyone.intersectionSize(squad));
+        assertEquals(2, squad.intersectionSize(everyone));
+        assertEquals(Arrays.asList("U5", "U999"), new ArrayList<>(everyone.intersection(squad)));
+
+        MemberSet joined = squad.mutableCopy();
+        joined.addAll(everyone);
+        assertEquals(1001, joined.size());
+        assertTrue(joined.contains("U-new"));
+
+        squad.retainAll(everyone);
+        assertEquals(Set.of("U5", "U999"), squad);
+    }
+
+    @Test
+    void testTeamIsStoredWithUserIds() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Team team = new Team();
+        team.setId("team1");
+        team.addManager("U1");
+        team.addMember("U2");
+
+        String json = objectMapper.writeValueAsString(team);
+        assertTrue(json.contains("\"managerIds\":[\"U1\"]"));
+
+        Team decoded = objectMapper.readValue(json, Team.class);
+        assertTrue(decoded.isManager("U1"));
+        assertTrue(decoded.isMember("U2"));
+        assertEquals(team.getMemberIds(), decoded.getMemberIds());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.slackbot.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeamDigestTest {
+
+    @Test
+    void testPutReplacesTheUsersEarlierSummary() {
+        TeamDigest digest = new TeamDigest("team1", "2023-10-10");
+        assertTrue(digest.put(new StatusSummary("dev1", "Available", "Review", false)));
+        assertTrue(digest.put(new StatusSummary("dev2", "Available", "Deploy", false)));
+        assertTrue(digest.put(new StatusSummary("dev1", "Away", "Review", true)));
+
+        assertEquals(Arrays.asList("dev1", "dev2"), Arrays.asList(digest.getEntries().keySet().toArray()));
+        assertEquals(Map.of("Available", 1, "Away", 1), digest.getAvailabilityCounts());
+        assertTrue(digest.getEntries().get("dev1").hasNotes());
+    }
+
+    @Test
+    void testPutOfAnUnchangedSummaryLeavesTheDigestAsItWas() {
+        TeamDigest digest = new TeamDigest("team1", "2023-10-10");
+        digest.put(new StatusSummary("dev1", "Available", "Review", false));
+
+        assertFalse(digest.put(new StatusSummary("dev1", "Available", "Review", false)));
+        assertEquals(Map.of("Available", 1), digest.getAvailabilityCounts());
+    }
+
+    @Test
+    void testMergeKeepsTheSummaryAlreadyInTheDigest() {
+        TeamDigest department = new TeamDigest("dept", "2023-10-10");
+        department.put(new StatusSummary("manager1", "Available", "Planning", false));
+        TeamDigest squad = new TeamDigest("squad", "2023-10-10");
+        squad.put(new StatusSummary("manager1", "Available", "Planning", false));
+        squad.put(new StatusSummary("dev1", "Out", null, false));
+
+        department.merge(squad);
+
+        assertEquals(2, department.getSummaries().size());
+        assertEquals(Map.of("Available", 1, "Out", 1), department.getAvailabilityCounts());
+    }
+
+    @Test
+    void testVersionKeyIsDerivedFromTheSummaries() {
+        TeamDigest squad = new TeamDigest("squad", "2023-10-10");
+        squad.put(new StatusSummary("dev1", "Available", "Review", false));
+        String versionKey = squad.getVersionKey();
+
+        // Another node reading the same entries derives the same key
+        TeamDigest sameEntries = new TeamDigest("squad", "2023-10-10");
+        sameEntries.put(new StatusSummary("dev1", "Available", "Review", false));
+        assertEquals(versionKey, sameEntries.getVersionKey());
+
+        squad.put(new StatusSummary("dev1", "Available", "Review", false));
+        assertEquals(versionKey, squad.getVersionKey());
+        squad.put(new StatusSummary("dev1", "Away", "Review", false));
+        assertNotEquals(versionKey, squad.getVersionKey());
+    }
+
+    @Test
+    void testVersionKeyTellsMissingFieldsFromTheirSpelling() {
+        TeamDigest missing = new TeamDigest("squad", "2023-10-10");
+        missing.put(new StatusSummary("dev1", "Out", null, false));
+        TeamDigest spelled = new TeamDigest("squad", "2023-10-10");
+        spelled.put(new StatusSummary("dev1", "Out", "null", false));
+
+        assertNotEquals(missing.getVersionKey(), spelled.getVersionKey());
+    }
+
+    @Test
+    void testMergedVersionKeyChangesWhenOneSubTeamDoes() {
+        TeamDigest squad1 = new TeamDigest("squad1", "2023-10-10");
+        squad1.put(new StatusSummary("dev1", "Available", "Review", false));
+        TeamDigest squad2 = new TeamDigest("squad2", "2023-10-10");
+        squad2.put(new StatusSummary("dev2", "Away", "Deploy", false));
+        TeamDigest merged = new TeamDigest("dept", "2023-10-10");
+        merged.merge(squad1);
+        merged.merge(squad2);
+
+        // The same availability counts spread differently over the members
+        TeamDigest swapped1 = new TeamDigest("squad1", "2023-10-10");
+        swapped1.put(new StatusSummary("dev1", "Away", "Review", false));
+        TeamDigest swapped2 = new TeamDigest("squad2", "2023-10-10");
+        swapped2.put(new StatusSummary("dev2", "Available", "Deploy", false));
+        TeamDigest other = new TeamDigest("dept", "2023-10-10");
+        other.merge(swapped1);
+        other.merge(swapped2);
+
+        assertEquals(merged.getAvailabilityCounts(), other.getAvailabilityCounts());
+        assertNotEquals(merged.getVersionKey(), other.getVersionKey());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.slackbot.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeamSnapshotTest {
+
+    private static Team team() {
+        Team team = new Team();
+        team.setId("team1");
+        team.setName("Engineering");
+        team.addManager("manager1");
+        team.addMember("dev1");
+        return team;
+    }
+
+    @Test
+    void testSnapshotIsUnaffectedByTheTeamItWasTakenFrom() {
+        Team team = team();
+        TeamSnapshot snapshot = TeamSnapshot.of(team);
+
+        team.addMember("dev2");
+        team.removeManager("manager1");
+
+        assertEquals(Set.of("manager1", "dev1"), snapshot.getMemberIds());
+        assertTrue(snapshot.isManager("manager1"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getMemberIds().add("dev3"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getManagerIds().clear());
+    }
+
+    @Test
+    void testWithMethodsReturnNewVersions() {
+        TeamSnapshot snapshot = TeamSnapshot.of(team());
+
+        TeamSnapshot promoted = snapshot.withManager("dev2");
+        assertNotSame(snapshot, promoted);
+        assertTrue(promoted.isMember("dev2"));
+        assertTrue(promoted.isManager("dev2"));
+        assertFalse(snapshot.isMember("dev2"));
+
+        TeamSnapshot renamed = promoted.withName("Platform").withoutManager("manager1");
+        assertEquals("Platform", renamed.getName());
+        assertFalse(renamed.isManager("manager1"));
+        assertTrue(renamed.isMember("manager1"));
+        assertEquals("Engineering", promoted.getName());
+
+        // Changes that change nothing keep the same version
+        assertSame(snapshot, snapshot.withMember("dev1"));
+        assertSame(snapshot, snapshot.withoutMember("dev9"));
+    }
+
+    @Test
+    void testToTeamGivesAMutableCopy() {
+        TeamSnapshot snapshot = TeamSnapshot.of(team());
+
+        Team copy = snapshot.toTeam();
+        copy.addMember("dev2");
+
+        assertEquals("team1", copy.getId());
+        assertTrue(copy.isMember("dev2"));
+        assertFalse(snapshot.isMember("dev2"));
+    }
+}
@@ -15,15 +15,20 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import com.slack.api.model.event.AppMentionEvent;
 import com.slack.api.bolt.context.builtin.EventContext;
 import com.slack.api.bolt.request.builtin.EventRequest;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import java.io.IOException;
+import java.nio.file.Path;
 import com.slack.api.methods.SlackApiException;
 
 import static org.mockito.Mockito.verify;
@@ -33,8 +38,18 @@ import static org.mockito.Mockito.doAnswer;
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(classes = {SlackbotApplication.class, IntegrationTestConfig.class})
 @ActiveProfiles("integrationTest")
+// Close the context, and with it the embedded store, before its directory is deleted
+@DirtiesContext
 public class SlackBotIntegrationTest {
 
+    @TempDir
+    static Path kvDirectory;
+
+    @DynamicPropertySource
+    static void embeddedKVDirectory(DynamicPropertyRegistry registry) {
+        registry.add("kv.embedded.directory", () -> kvDirectory.toString());
+    }
+
     @Autowired
     private SlackEventAdapter slackEventAdapter;
 